@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -21,8 +21,10 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 
 /**
  * @author Clinton Begin
@@ -44,6 +46,36 @@ public @interface CacheNamespace {
   
   boolean blocking() default false;
 
+  /**
+   * Serializer used to copy the cached objects of a read/write cache.
+   * @since 3.4.6
+   */
+  Class<? extends CacheSerializer> serializer() default JdkCacheSerializer.class;
+
+  /**
+   * Milliseconds after which an entry expires once put, 0 meaning never.
+   * @since 3.4.6
+   */
+  long expireAfterWrite() default 0;
+
+  /**
+   * Milliseconds after which an entry expires once last read, 0 meaning never.
+   * @since 3.4.6
+   */
+  long expireAfterAccess() default 0;
+
+  /**
+   * Upper bound of the random delay added to {@link #expireAfterWrite()}.
+   * @since 3.4.6
+   */
+  long expiryJitter() default 0;
+
+  /**
+   * Whether the entries are indexed by the tables they read, so that a write only removes the dependent entries.
+   * @since 3.4.6
+   */
+  boolean tableInvalidation() default false;
+
   /**
    * Property values for a implementation object.
    * @since 3.4.2
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -63,4 +63,12 @@ public @interface Options {
   String keyColumn() default "";
   
   String resultSets() default "";
+
+  /**
+   * Comma separated tables read (select) or written (insert, update and delete) by the statement,
+   * used to invalidate only the dependent entries of the second level cache.
+   *
+   * @since 3.4.6
+   */
+  String tables() default "";
 }
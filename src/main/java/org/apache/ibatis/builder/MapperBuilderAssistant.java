@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -26,6 +26,8 @@ import java.util.Set;
 import java.util.StringTokenizer;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.executor.ErrorContext;
@@ -43,8 +45,10 @@ import org.apache.ibatis.mapping.ResultSetType;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.SqlSource;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.parsing.SqlTableParser;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -132,16 +136,42 @@ public class MapperBuilderAssistant extends BaseBuilder {
       boolean readWrite,
       boolean blocking,
       Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, null, null, null, null, false, props);
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass,
+      Class<? extends Cache> evictionClass,
+      Long flushInterval,
+      Integer size,
+      boolean readWrite,
+      boolean blocking,
+      Class<? extends CacheSerializer> serializer,
+      Long expireAfterWrite,
+      Long expireAfterAccess,
+      Long expiryJitter,
+      boolean tableInvalidation,
+      Properties props) {
+    CacheStatistics statistics = new CacheStatistics(currentNamespace, configuration.getCacheStatsListeners());
     Cache cache = new CacheBuilder(currentNamespace)
         .implementation(valueOrDefault(typeClass, PerpetualCache.class))
         .addDecorator(valueOrDefault(evictionClass, LruCache.class))
         .clearInterval(flushInterval)
+        .expireAfterWrite(expireAfterWrite)
+        .expireAfterAccess(expireAfterAccess)
+        .expiryJitter(expiryJitter)
         .size(size)
         .readWrite(readWrite)
+        .serializer(serializer)
         .blocking(blocking)
+        .tableInvalidation(tableInvalidation || configuration.isDeriveCacheTables())
         .properties(props)
+        .statistics(statistics)
         .build();
     configuration.addCache(cache);
+    configuration.addCacheStatistics(statistics);
     currentCache = cache;
     return cache;
   }
@@ -270,7 +300,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
       String keyColumn,
       String databaseId,
       LanguageDriver lang,
-      String resultSets) {
+      String resultSets,
+      String tables) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -291,6 +322,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .lang(lang)
         .resultOrdered(resultOrdered)
         .resultSets(resultSets)
+        .tables(tables != null ? tables : deriveTables(sqlSource, sqlCommandType))
         .resultMaps(getStatementResultMaps(resultMap, resultType, id))
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
@@ -485,6 +517,62 @@ public class MapperBuilderAssistant extends BaseBuilder {
     return configuration.getLanguageRegistry().getDriver(langClass);
   }
 
+  /*
+   * The sql of a static statement is parsed once here, the one of a dynamic statement is parsed when it is run.
+   */
+  private String deriveTables(SqlSource sqlSource, SqlCommandType sqlCommandType) {
+    if (!configuration.isDeriveCacheTables() || !(sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource)) {
+      return null;
+    }
+    String sql = sqlSource.getBoundSql(null).getSql();
+    Set<String> tables;
+    if (sqlCommandType == SqlCommandType.SELECT) {
+      tables = SqlTableParser.findReadTables(sql);
+    } else if (sqlCommandType == SqlCommandType.INSERT || sqlCommandType == SqlCommandType.UPDATE
+        || sqlCommandType == SqlCommandType.DELETE) {
+      tables = SqlTableParser.findWrittenTables(sql);
+    } else {
+      tables = null;
+    }
+    if (tables == null) {
+      return null;
+    }
+    StringBuilder names = new StringBuilder();
+    for (String table : tables) {
+      names.append(names.length() == 0 ? "" : ",").append(table);
+    }
+    return names.toString();
+  }
+
+  /** Backward compatibility signature */
+  public MappedStatement addMappedStatement(
+      String id,
+      SqlSource sqlSource,
+      StatementType statementType,
+      SqlCommandType sqlCommandType,
+      Integer fetchSize,
+      Integer timeout,
+      String parameterMap,
+      Class<?> parameterType,
+      String resultMap,
+      Class<?> resultType,
+      ResultSetType resultSetType,
+      boolean flushCache,
+      boolean useCache,
+      boolean resultOrdered,
+      KeyGenerator keyGenerator,
+      String keyProperty,
+      String keyColumn,
+      String databaseId,
+      LanguageDriver lang,
+      String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, null);
+  }
+
   /** Backward compatibility signature */
   public MappedStatement addMappedStatement(
     String id,
@@ -510,7 +598,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
       id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
       parameterMap, parameterType, resultMap, resultType, resultSetType,
       flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
-      keyColumn, databaseId, lang, null);
+      keyColumn, databaseId, lang, null, null);
   }
 
 }
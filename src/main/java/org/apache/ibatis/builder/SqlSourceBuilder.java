@@ -40,7 +40,19 @@ public class SqlSourceBuilder extends BaseBuilder {
   }
 
   public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters) {
-    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters);
+    return parse(originalSql, parameterType, additionalParameters, null);
+  }
+
+  /**
+   * Parses the sql like {@link #parse(String, Class, Map)} and reports, for every property referenced by the sql,
+   * the type that was resolved from the additional parameters (<code>null</code> if the property is not one of them).
+   * The result is only valid for calls that resolve the same types, which is what callers caching it must check.
+   *
+   * @since 3.4.6
+   */
+  public SqlSource parse(String originalSql, Class<?> parameterType, Map<String, Object> additionalParameters,
+      Map<String, Class<?>> additionalParameterTypes) {
+    ParameterMappingTokenHandler handler = new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters, additionalParameterTypes);
     GenericTokenParser parser = new GenericTokenParser("#{", "}", handler);
     String sql = parser.parse(originalSql);
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
@@ -51,11 +63,14 @@ public class SqlSourceBuilder extends BaseBuilder {
     private List<ParameterMapping> parameterMappings = new ArrayList<ParameterMapping>();
     private Class<?> parameterType;
     private MetaObject metaParameters;
+    private Map<String, Class<?>> additionalParameterTypes;
 
-    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    public ParameterMappingTokenHandler(Configuration configuration, Class<?> parameterType, Map<String, Object> additionalParameters,
+        Map<String, Class<?>> additionalParameterTypes) {
       super(configuration);
       this.parameterType = parameterType;
       this.metaParameters = configuration.newMetaObject(additionalParameters);
+      this.additionalParameterTypes = additionalParameterTypes;
     }
 
     public List<ParameterMapping> getParameterMappings() {
@@ -72,8 +87,12 @@ public class SqlSourceBuilder extends BaseBuilder {
       Map<String, String> propertiesMap = parseParameterMapping(content);
       String property = propertiesMap.get("property");
       Class<?> propertyType;
-      if (metaParameters.hasGetter(property)) { // issue #448 get type from additional params
-        propertyType = metaParameters.getGetterType(property);
+      Class<?> additionalParameterType = metaParameters.hasGetter(property) ? metaParameters.getGetterType(property) : null;
+      if (additionalParameterTypes != null) {
+        additionalParameterTypes.put(property, additionalParameterType);
+      }
+      if (additionalParameterType != null) { // issue #448 get type from additional params
+        propertyType = additionalParameterType;
       } else if (typeHandlerRegistry.hasTypeHandler(parameterType)) {
         propertyType = parameterType;
       } else if (JdbcType.CURSOR.name().equals(propertiesMap.get("jdbcType"))) {
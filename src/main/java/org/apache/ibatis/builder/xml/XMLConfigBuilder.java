@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Properties;
 import javax.sql.DataSource;
 
@@ -403,11 +405,22 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setUseColumnLabel(booleanValueOf(props.getProperty("useColumnLabel"), true));
     configuration.setUseGeneratedKeys(booleanValueOf(props.getProperty("useGeneratedKeys"), false));
     configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
+    configuration.setBatchReordering(booleanValueOf(props.getProperty("batchReordering"), false));
+    String batchInsertOrder = props.getProperty("batchInsertOrder");
+    configuration.setBatchInsertOrder(batchInsertOrder == null ? Collections.<String>emptyList() : Arrays.asList(batchInsertOrder.split(",")));
+    configuration.setBatchMaxRows(integerValueOf(props.getProperty("batchMaxRows"), 0));
+    configuration.setBatchMaxStatements(integerValueOf(props.getProperty("batchMaxStatements"), 0));
+    configuration.setBatchMaxBytes(longValueOf(props.getProperty("batchMaxBytes"), 0L));
+    configuration.setBatchMultiRowInsert(booleanValueOf(props.getProperty("batchMultiRowInsert"), false));
+    configuration.setBatchMaxRowsPerInsert(integerValueOf(props.getProperty("batchMaxRowsPerInsert"), 1000));
+    configuration.setBatchMaxBindParameters(integerValueOf(props.getProperty("batchMaxBindParameters"), 2000));
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheSize(integerValueOf(props.getProperty("localCacheSize"), 0));
+    configuration.setLocalCacheMaxWeight(longValueOf(props.getProperty("localCacheMaxWeight"), 0L));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -418,6 +431,12 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 64));
+    configuration.setForeachPaddingMaxSize(integerValueOf(props.getProperty("foreachPaddingMaxSize"), 1000));
+    configuration.setAutoMappingCacheSize(integerValueOf(props.getProperty("autoMappingCacheSize"), 256));
+    configuration.setColumnIndexMappingEnabled(booleanValueOf(props.getProperty("columnIndexMappingEnabled"), false));
+    configuration.setRowMapperGenerationEnabled(booleanValueOf(props.getProperty("rowMapperGenerationEnabled"), false));
+    configuration.setDeriveCacheTables(booleanValueOf(props.getProperty("deriveCacheTables"), false));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
@@ -33,6 +33,7 @@ import org.apache.ibatis.builder.IncompleteElementException;
 import org.apache.ibatis.builder.MapperBuilderAssistant;
 import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.Discriminator;
@@ -244,13 +245,23 @@ public class XMLMapperBuilder extends BaseBuilder {
       Integer size = context.getIntAttribute("size");
       //是否只读
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
-      // blocking（是否使用阻塞缓存）: 默认为false，当指定为true时将采用BlockingCache进行封装，blocking，阻塞的意思，
-      // 使用BlockingCache会在查询缓存时锁住对应的Key，如果缓存命中了则会释放对应的锁，否则会在查询数据库以后再释放锁这样可以阻止并发情况下多个线程同时查询数据，
-      // 详情可参考BlockingCache的源码
+      // blocking（是否使用阻塞缓存）: 默认为false，当指定为true时将采用SingleFlightCache进行封装，blocking，阻塞的意思，
+      // 使用SingleFlightCache会在查询缓存时锁住对应的Key，如果缓存命中了则会释放对应的锁，否则会在查询数据库以后再释放锁这样可以阻止并发情况下多个线程同时查询数据，
+      // 详情可参考SingleFlightCache的源码
       boolean blocking = context.getBooleanAttribute("blocking", false);
+      // serializer: 可读写缓存复制对象时使用的序列化方式, 默认为java序列化
+      String serializer = context.getStringAttribute("serializer");
+      Class<? extends CacheSerializer> serializerClass = typeAliasRegistry.resolveAlias(serializer);
+      // expireAfterWrite/expireAfterAccess: 单个缓存项写入/最后访问之后的过期毫秒数, expiryJitter: 写入过期时间的随机延长上限
+      Long expireAfterWrite = context.getLongAttribute("expireAfterWrite");
+      Long expireAfterAccess = context.getLongAttribute("expireAfterAccess");
+      Long expiryJitter = context.getLongAttribute("expiryJitter");
+      // tableInvalidation: 是否按表索引缓存项, 使写语句只清除依赖其表的缓存项
+      boolean tableInvalidation = context.getBooleanAttribute("tableInvalidation", false);
       Properties props = context.getChildrenAsProperties();
       //将cache信息存放到Configuration中
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, serializerClass,
+          expireAfterWrite, expireAfterAccess, expiryJitter, tableInvalidation, props);
     }
   }
 
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,8 +15,13 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.reflection.ArrayUtil;
@@ -28,50 +33,133 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final long serialVersionUID = 1146682552656046210L;
 
+  // the serialized form is the one of the List based implementation, primitive updates are written boxed
+  private static final ObjectStreamField[] serialPersistentFields = {
+      new ObjectStreamField("multiplier", int.class),
+      new ObjectStreamField("hashcode", int.class),
+      new ObjectStreamField("checksum", long.class),
+      new ObjectStreamField("count", int.class),
+      new ObjectStreamField("updateList", List.class)
+  };
+
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
 
-  private final int multiplier;
+  private int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  private Object[] updateList;
+  // values of the int and long updates, at the same index as their slot in updateList (allocated on first use)
+  private long[] primitiveList;
 
   public CacheKey() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdateCount the number of updates the key is expected to receive, to size its storage
+   * @since 3.4.6
+   */
+  public CacheKey(int expectedUpdateCount) {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLYER;
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.updateList = new Object[Math.max(expectedUpdateCount, 1)];
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   public void update(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
+    add(baseHashCode);
+    updateList[count - 1] = object;
+  }
+
+  /**
+   * Same as <code>update(Integer.valueOf(value))</code>, without boxing the value.
+   *
+   * @since 3.4.6
+   */
+  public void update(int value) {
+    add(value);
+    setPrimitive(PrimitiveSlot.INT, value);
+  }
+
+  /**
+   * Same as <code>update(Long.valueOf(value))</code>, without boxing the value.
+   *
+   * @since 3.4.6
+   */
+  public void update(long value) {
+    add((int) (value ^ (value >>> 32)));
+    setPrimitive(PrimitiveSlot.LONG, value);
+  }
+
+  /**
+   * Same as <code>update(Byte.valueOf(value))</code>.
+   *
+   * @since 3.4.6
+   */
+  public void update(byte value) {
+    update((Object) Byte.valueOf(value));
+  }
+
+  /**
+   * Same as <code>update(Short.valueOf(value))</code>.
+   *
+   * @since 3.4.6
+   */
+  public void update(short value) {
+    update((Object) Short.valueOf(value));
+  }
+
+  /**
+   * Same as <code>update(Character.valueOf(value))</code>.
+   *
+   * @since 3.4.6
+   */
+  public void update(char value) {
+    update((Object) Character.valueOf(value));
+  }
+
+  public void updateAll(Object[] objects) {
+    for (Object o : objects) {
+      update(o);
+    }
+  }
 
+  private void add(int baseHashCode) {
     count++;
     checksum += baseHashCode;
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
 
-    updateList.add(object);
+    if (count > updateList.length) {
+      updateList = Arrays.copyOf(updateList, updateList.length << 1);
+    }
   }
 
-  public void updateAll(Object[] objects) {
-    for (Object o : objects) {
-      update(o);
+  private void setPrimitive(PrimitiveSlot slot, long value) {
+    if (primitiveList == null) {
+      primitiveList = new long[updateList.length];
+    } else if (primitiveList.length < updateList.length) {
+      primitiveList = Arrays.copyOf(primitiveList, updateList.length);
     }
+    updateList[count - 1] = slot;
+    primitiveList[count - 1] = value;
   }
 
   @Override
@@ -95,16 +183,37 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updateList[i];
+      Object thatObject = cacheKey.updateList[i];
+      if (thisObject instanceof PrimitiveSlot && thatObject instanceof PrimitiveSlot) {
+        if (thisObject != thatObject || primitiveList[i] != cacheKey.primitiveList[i]) {
+          return false;
+        }
+      } else if (thisObject instanceof PrimitiveSlot || thatObject instanceof PrimitiveSlot) {
+        if (!ArrayUtil.equals(get(i), cacheKey.get(i))) {
+          return false;
+        }
+      } else if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
     return true;
   }
 
+  /*
+   * Boxes the primitive updates, only used when comparing them with boxed updates and for display.
+   */
+  private Object get(int index) {
+    Object object = updateList[index];
+    if (object == PrimitiveSlot.INT) {
+      return (int) primitiveList[index];
+    } else if (object == PrimitiveSlot.LONG) {
+      return primitiveList[index];
+    }
+    return object;
+  }
+
   @Override
   public int hashCode() {
     return hashcode;
@@ -113,8 +222,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public String toString() {
     StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(get(i)));
     }
     return returnValue.toString();
   }
@@ -122,8 +231,45 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    // room for one more update, as combined keys get the parent key appended
+    clonedCacheKey.updateList = Arrays.copyOf(updateList, count + 1);
+    if (primitiveList != null) {
+      clonedCacheKey.primitiveList = Arrays.copyOf(primitiveList, count + 1);
+    }
     return clonedCacheKey;
   }
 
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    List<Object> objects = new ArrayList<Object>(count);
+    for (int i = 0; i < count; i++) {
+      objects.add(get(i));
+    }
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", multiplier);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", checksum);
+    fields.put("count", count);
+    fields.put("updateList", objects);
+    out.writeFields();
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    multiplier = fields.get("multiplier", DEFAULT_MULTIPLYER);
+    hashcode = fields.get("hashcode", DEFAULT_HASHCODE);
+    checksum = fields.get("checksum", 0L);
+    count = fields.get("count", 0);
+    List<?> objects = (List<?>) fields.get("updateList", null);
+    updateList = objects == null ? new Object[Math.max(count, 1)] : objects.toArray(new Object[Math.max(objects.size(), 1)]);
+  }
+
+  private static final class PrimitiveSlot {
+
+    static final PrimitiveSlot INT = new PrimitiveSlot();
+    static final PrimitiveSlot LONG = new PrimitiveSlot();
+
+    private PrimitiveSlot() {
+    }
+  }
+
 }
@@ -0,0 +1,213 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.CacheStatsListener.Event;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+
+/**
+ * Live statistics of a cache: hits, misses, puts, evictions, time spent loading missed entries, size and
+ * estimated memory.
+ * <p>
+ * Hits, misses and puts are counted by {@link org.apache.ibatis.cache.decorators.LoggingCache}, evictions by the
+ * caches of the chain accepting an {@link EvictionListener}, and loads by
+ * {@link org.apache.ibatis.executor.CachingExecutor}. The estimated memory is the total weight of a weighted
+ * cache of the chain, or -1 when there is none.
+ *
+ * @since 3.4.6
+ */
+public class CacheStatistics implements CacheStatisticsMBean, EvictionListener {
+
+  private final String id;
+  private final List<CacheStatsListener> listeners;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong puts = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private final AtomicLong loads = new AtomicLong();
+  private final AtomicLong loadTime = new AtomicLong();
+  private Cache cache;
+  private Cache weightedCache;
+
+  public CacheStatistics(String id) {
+    this(id, Collections.<CacheStatsListener>emptyList());
+  }
+
+  /**
+   * @param listeners notified of each event, the list may change afterwards and must then be thread safe
+   */
+  public CacheStatistics(String id, List<CacheStatsListener> listeners) {
+    this.id = id;
+    this.listeners = listeners;
+  }
+
+  public void recordHit() {
+    hits.incrementAndGet();
+    fire(Event.HIT, 0);
+  }
+
+  public void recordMiss() {
+    misses.incrementAndGet();
+    fire(Event.MISS, 0);
+  }
+
+  public void recordPut() {
+    puts.incrementAndGet();
+    fire(Event.PUT, 0);
+  }
+
+  public void recordLoad(long nanos) {
+    loads.incrementAndGet();
+    loadTime.addAndGet(nanos);
+    fire(Event.LOAD, nanos);
+  }
+
+  @Override
+  public void onEviction(Object key) {
+    evictions.incrementAndGet();
+    fire(Event.EVICTION, 0);
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  @Override
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  @Override
+  public double getHitRatio() {
+    long hitCount = hits.get();
+    long requests = hitCount + misses.get();
+    return requests == 0 ? 0 : (double) hitCount / requests;
+  }
+
+  @Override
+  public long getPutCount() {
+    return puts.get();
+  }
+
+  @Override
+  public long getEvictionCount() {
+    return evictions.get();
+  }
+
+  @Override
+  public long getLoadCount() {
+    return loads.get();
+  }
+
+  /**
+   * Returns the nanoseconds spent loading missed entries.
+   */
+  @Override
+  public long getTotalLoadTime() {
+    return loadTime.get();
+  }
+
+  @Override
+  public double getAverageLoadTime() {
+    long loadCount = loads.get();
+    return loadCount == 0 ? 0 : (double) loadTime.get() / loadCount;
+  }
+
+  @Override
+  public int getSize() {
+    return cache == null ? 0 : cache.getSize();
+  }
+
+  @Override
+  public long getEstimatedBytes() {
+    if (weightedCache == null) {
+      return -1;
+    }
+    return (Long) SystemMetaObject.forObject(weightedCache).getValue("totalWeight");
+  }
+
+  @Override
+  public void reset() {
+    hits.set(0);
+    misses.set(0);
+    puts.set(0);
+    evictions.set(0);
+    loads.set(0);
+    loadTime.set(0);
+  }
+
+  /**
+   * Sets the cache whose size is reported.
+   */
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  /**
+   * Sets the cache whose <code>totalWeight</code> property is reported as the estimated memory.
+   */
+  public void setWeightedCache(Cache weightedCache) {
+    MetaObject metaCache = SystemMetaObject.forObject(weightedCache);
+    if (!metaCache.hasGetter("totalWeight")) {
+      throw new CacheException("Cache " + weightedCache.getClass().getName() + " has no totalWeight property");
+    }
+    this.weightedCache = weightedCache;
+  }
+
+  /**
+   * Registers these statistics in the platform MBean server, under
+   * <code>org.apache.ibatis:type=CacheStatistics,id=&lt;cache id&gt;</code>.
+   */
+  public ObjectName registerMBean() {
+    return registerMBean(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  public ObjectName registerMBean(MBeanServer server) {
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=CacheStatistics,id=" + ObjectName.quote(id));
+      if (!server.isRegistered(name)) {
+        server.registerMBean(this, name);
+      }
+      return name;
+    } catch (Exception e) {
+      throw new CacheException("Could not register the statistics of the cache " + id + ". Cause: " + e, e);
+    }
+  }
+
+  private void fire(Event event, long nanos) {
+    if (!listeners.isEmpty()) {
+      for (CacheStatsListener listener : listeners) {
+        listener.onEvent(id, event, nanos);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Receives the events counted by the {@link CacheStatistics} of every namespace cache, to export them to a
+ * metrics system. Registered with {@link org.apache.ibatis.session.Configuration#addCacheStatsListener}.
+ * <p>
+ * Listeners are called on the threads using the caches, so they must be thread safe and fast.
+ *
+ * @since 3.4.6
+ */
+public interface CacheStatsListener {
+
+  enum Event {
+    HIT, MISS, PUT, EVICTION, LOAD
+  }
+
+  /**
+   * @param loadTime nanoseconds spent querying the database after a miss, for <code>LOAD</code> events only
+   */
+  void onEvent(String cacheId, Event event, long loadTime);
+
+}
@@ -0,0 +1,30 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Notified of the entries a cache evicts by itself, to make room for others or because they expired.
+ * <p>
+ * Caches and decorators that evict entries accept a listener through a <code>setEvictionListener</code> method,
+ * which {@link org.apache.ibatis.mapping.CacheBuilder} uses to count evictions in the {@link CacheStatistics}.
+ *
+ * @since 3.4.6
+ */
+public interface EvictionListener {
+
+  void onEviction(Object key);
+
+}
@@ -0,0 +1,30 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Marks a {@link Cache} implementation that can be used by several threads at once without external locking.
+ * <p>
+ * When such a class is configured as the cache type, the {@link org.apache.ibatis.mapping.CacheBuilder} applies the
+ * standard decorators (size, flush interval, read/write and blocking) to it, but does not wrap it in a
+ * {@link org.apache.ibatis.cache.decorators.SynchronizedCache}. Eviction decorators are not applied either,
+ * so the implementation is expected to bound its own size.
+ *
+ * @since 3.4.6
+ */
+public interface ThreadSafeCache extends Cache {
+
+}
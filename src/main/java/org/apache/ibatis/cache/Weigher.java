@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Estimates the memory held by a cache entry, for caches bounded by weight rather than by number of entries
+ * such as {@link org.apache.ibatis.cache.decorators.WeightedLruCache}.
+ * <p>
+ * Implementations must be thread safe and need a public no-arg constructor to be configured on a
+ * <code>&lt;cache&gt;</code>.
+ *
+ * @since 3.4.6
+ */
+public interface Weigher {
+
+  /**
+   * Returns the weight of an entry, in bytes for the built-in weigher. Must not be negative.
+   */
+  long weigh(Object key, Object value);
+
+}
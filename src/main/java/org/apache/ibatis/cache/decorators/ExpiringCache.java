@@ -0,0 +1,361 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
+
+/**
+ * Per entry expiration decorator.
+ * <p>
+ * Entries expire <code>expireAfterWrite</code> milliseconds after they were put, plus a random delay of up to
+ * <code>expiryJitter</code> milliseconds so that entries loaded together do not expire together, and/or
+ * <code>expireAfterAccess</code> milliseconds after they were last read.
+ * <p>
+ * Expiration times are kept in a hierarchical timing wheel: each operation advances the wheel and removes at most
+ * a few dozen expired entries, the remaining ones being removed by the next operations. An expired entry which
+ * has not been removed yet is never returned.
+ *
+ * @since 3.4.6
+ */
+public class ExpiringCache implements Cache {
+
+  private static final int WHEEL_BITS = 6;
+  private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private static final int LEVELS = 4;
+  private static final int EXPIRE_BUDGET = 64;
+  private static final long NEVER = Long.MAX_VALUE;
+
+  private final Cache delegate;
+  private final ConcurrentMap<Object, Timer> timers = new ConcurrentHashMap<Object, Timer>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Timer[][] wheels = new Timer[LEVELS][WHEEL_SIZE];
+  private final int[] counts = new int[LEVELS];
+  private final Random random = new Random();
+  private final long origin = System.nanoTime();
+  private long expireAfterWrite;
+  private long expireAfterAccess;
+  private long expiryJitter;
+  private long tickMillis;
+  private volatile long currentTick;
+  private volatile boolean draining;
+  private EvictionListener evictionListener;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    for (Timer[] wheel : wheels) {
+      for (int i = 0; i < WHEEL_SIZE; i++) {
+        wheel[i] = new Timer(null);
+      }
+    }
+    updateTick();
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    expireEntries();
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    lock.lock();
+    try {
+      delegate.putObject(key, value);
+      long now = now();
+      Timer timer = timers.remove(key);
+      if (timer != null) {
+        unlink(timer);
+      }
+      timer = new Timer(key);
+      timer.writeDeadline = expireAfterWrite > 0 ? now + expireAfterWrite + jitter() : NEVER;
+      timer.deadline = expireAfterAccess > 0 ? Math.min(timer.writeDeadline, now + expireAfterAccess) : timer.writeDeadline;
+      if (timer.deadline != NEVER) {
+        timers.put(key, timer);
+        schedule(timer, currentTick + 1);
+      }
+    } finally {
+      lock.unlock();
+    }
+    expireEntries();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    expireEntries();
+    Object value = delegate.getObject(key);
+    Timer timer = timers.get(key);
+    if (timer == null) {
+      return value;
+    }
+    long now = now();
+    if (now >= timer.deadline) {
+      lock.lock();
+      try {
+        if (timers.remove(key, timer)) {
+          unlink(timer);
+          delegate.removeObject(key);
+          if (evictionListener != null) {
+            evictionListener.onEviction(key);
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+      return null;
+    }
+    if (value != null && expireAfterAccess > 0 && timer.deadline < timer.writeDeadline
+        && now + expireAfterAccess - timer.deadline >= tickMillis) {
+      lock.lock();
+      try {
+        if (timers.get(key) == timer) {
+          unlink(timer);
+          timer.deadline = Math.min(timer.writeDeadline, now + expireAfterAccess);
+          schedule(timer, currentTick + 1);
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.lock();
+    try {
+      Timer timer = timers.remove(key);
+      if (timer != null) {
+        unlink(timer);
+      }
+      return delegate.removeObject(key);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.lock();
+    try {
+      for (Timer timer : timers.values()) {
+        unlink(timer);
+      }
+      timers.clear();
+      delegate.clear();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getExpireAfterWrite() {
+    return expireAfterWrite;
+  }
+
+  public void setExpireAfterWrite(long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+    updateTick();
+  }
+
+  public long getExpireAfterAccess() {
+    return expireAfterAccess;
+  }
+
+  public void setExpireAfterAccess(long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+    updateTick();
+  }
+
+  public long getExpiryJitter() {
+    return expiryJitter;
+  }
+
+  public void setExpiryJitter(long expiryJitter) {
+    this.expiryJitter = expiryJitter;
+  }
+
+  private void updateTick() {
+    lock.lock();
+    try {
+      if (timers.isEmpty()) {
+        long shortest = Math.min(expireAfterWrite > 0 ? expireAfterWrite : NEVER,
+            expireAfterAccess > 0 ? expireAfterAccess : NEVER);
+        // a few ticks per expiration period, to make each tick hold a fraction of the entries
+        tickMillis = shortest == NEVER ? 1000 : Math.max(1, shortest / 16);
+        currentTick = now() / tickMillis;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private long jitter() {
+    return expiryJitter > 0 ? (long) (random.nextDouble() * expiryJitter) : 0;
+  }
+
+  private long now() {
+    return (System.nanoTime() - origin) / 1000000;
+  }
+
+  /*
+   * Advances the wheel, skipped when another thread is already doing it.
+   */
+  private void expireEntries() {
+    long nowTick = now() / tickMillis;
+    if ((nowTick <= currentTick && !draining) || !lock.tryLock()) {
+      return;
+    }
+    try {
+      List<Object> expired = new ArrayList<Object>();
+      advance(nowTick, expired);
+      for (Object key : expired) {
+        delegate.removeObject(key);
+        if (evictionListener != null) {
+          evictionListener.onEviction(key);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void advance(long nowTick, List<Object> expired) {
+    while (true) {
+      Timer head = wheels[0][(int) (currentTick & WHEEL_MASK)];
+      while (head.next != head) {
+        if (expired.size() >= EXPIRE_BUDGET) {
+          // the rest of the slot is left to the next operations
+          draining = true;
+          return;
+        }
+        Timer timer = head.next;
+        unlink(timer);
+        if (timers.remove(timer.key, timer)) {
+          expired.add(timer.key);
+        }
+      }
+      draining = false;
+      if (currentTick >= nowTick) {
+        return;
+      }
+      if (timers.isEmpty()) {
+        currentTick = nowTick;
+        return;
+      }
+      if (counts[0] == 0) {
+        // nothing to expire before the next cascade from the upper levels
+        long last = currentTick | WHEEL_MASK;
+        if (last >= nowTick) {
+          currentTick = nowTick;
+          return;
+        }
+        currentTick = last;
+      }
+      currentTick++;
+      if ((currentTick & WHEEL_MASK) == 0) {
+        cascade(1);
+      }
+    }
+  }
+
+  private void cascade(int level) {
+    if (level >= LEVELS) {
+      return;
+    }
+    int slot = (int) (currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK;
+    if (slot == 0) {
+      cascade(level + 1);
+    }
+    Timer head = wheels[level][slot];
+    while (head.next != head) {
+      Timer timer = head.next;
+      unlink(timer);
+      schedule(timer, currentTick);
+    }
+  }
+
+  private void schedule(Timer timer, long minTick) {
+    long tick = Math.max((timer.deadline + tickMillis - 1) / tickMillis, minTick);
+    long delta = tick - currentTick;
+    int level = 0;
+    while (level < LEVELS - 1 && delta >= 1L << (WHEEL_BITS * (level + 1))) {
+      level++;
+    }
+    Timer head = wheels[level][(int) (tick >>> (WHEEL_BITS * level)) & WHEEL_MASK];
+    timer.level = level;
+    timer.prev = head.prev;
+    timer.next = head;
+    head.prev.next = timer;
+    head.prev = timer;
+    counts[level]++;
+  }
+
+  private void unlink(Timer timer) {
+    if (timer.next != null) {
+      timer.prev.next = timer.next;
+      timer.next.prev = timer.prev;
+      timer.prev = null;
+      timer.next = null;
+      counts[timer.level]--;
+    }
+  }
+
+  private static class Timer {
+
+    private final Object key;
+    private long writeDeadline;
+    private volatile long deadline;
+    private int level;
+    private Timer prev;
+    private Timer next;
+
+    Timer(Object key) {
+      this.key = key;
+      if (key == null) {
+        // list head
+        prev = this;
+        next = this;
+      }
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.Map;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.EvictionListener;
 
 /**
  * Lru (least recently used) cache decorator
@@ -31,12 +32,20 @@ public class LruCache implements Cache {
   private final Cache delegate;
   private Map<Object, Object> keyMap;
   private Object eldestKey;
+  private EvictionListener evictionListener;
 
   public LruCache(Cache delegate) {
     this.delegate = delegate;
     setSize(1024);
   }
 
+  /**
+   * @since 3.4.6
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -94,6 +103,9 @@ public class LruCache implements Cache {
     keyMap.put(key, key);
     if (eldestKey != null) {
       delegate.removeObject(eldestKey);
+      if (evictionListener != null) {
+        evictionListener.onEviction(eldestKey);
+      }
       eldestKey = null;
     }
   }
@@ -0,0 +1,230 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Blocking decorator letting a single thread load a missing entry while the others wait for it.
+ * <p>
+ * Like {@link BlockingCache}, a thread missing an entry becomes its loader until it puts the entry or releases it
+ * with {@link #removeObject(Object)}, and the other threads asking for the key wait meanwhile. Unlike it, the
+ * pending load is forgotten as soon as it completes, so nothing is kept for keys that are not being loaded, and a
+ * thread that waits longer than <code>blockingTimeout</code> milliseconds, or whose loader died, gives up waiting
+ * and loads the entry by itself instead of failing.
+ * <p>
+ * When <code>refreshAhead</code> is set, entries older than that many milliseconds are stale: the first thread
+ * reading a stale entry gets a miss and reloads it, while the other threads keep getting the stale value
+ * instead of waiting.
+ *
+ * @since 3.4.6
+ */
+public class SingleFlightCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(SingleFlightCache.class);
+
+  private static final long OWNER_CHECK_INTERVAL = 1000;
+
+  private final Cache delegate;
+  private final ConcurrentMap<Object, Flight> flights = new ConcurrentHashMap<Object, Flight>();
+  private long blockingTimeout;
+  private long refreshAhead;
+
+  public SingleFlightCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    try {
+      delegate.putObject(key, refreshAhead > 0 && value != null ? new StampedValue(value) : value);
+    } finally {
+      completeFlight(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    while (true) {
+      Object value = delegate.getObject(key);
+      boolean stale = false;
+      if (value instanceof StampedValue) {
+        StampedValue stamped = (StampedValue) value;
+        stale = System.currentTimeMillis() - stamped.getTimestamp() >= refreshAhead;
+        value = stamped.getValue();
+      }
+      if (value != null && !stale) {
+        return value;
+      }
+      Flight flight = new Flight(key);
+      Flight current = flights.putIfAbsent(key, flight);
+      if (current == null || current.owner == Thread.currentThread()) {
+        return null;
+      }
+      if (value != null) {
+        // stale value served while the owner of the flight refreshes it
+        return value;
+      }
+      if (!current.await(blockingTimeout)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Gave up waiting for the key " + key + " at the cache " + getId());
+        }
+        return null;
+      }
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    // like BlockingCache, this method is called only to release the flight of a missed entry
+    completeFlight(key);
+    return null;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * Returns the number of entries being loaded.
+   */
+  public int getPendingCount() {
+    return flights.size();
+  }
+
+  public long getBlockingTimeout() {
+    return blockingTimeout;
+  }
+
+  public void setBlockingTimeout(long blockingTimeout) {
+    this.blockingTimeout = blockingTimeout;
+  }
+
+  public long getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  public void setRefreshAhead(long refreshAhead) {
+    this.refreshAhead = refreshAhead;
+  }
+
+  private void completeFlight(Object key) {
+    Flight flight = flights.get(key);
+    if (flight != null && flight.owner == Thread.currentThread()) {
+      flights.remove(key, flight);
+      flight.latch.countDown();
+    }
+  }
+
+  private class Flight {
+
+    private final Object key;
+    private final Thread owner = Thread.currentThread();
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    Flight(Object key) {
+      this.key = key;
+    }
+
+    /*
+     * Returns false when the caller should stop waiting and load the entry itself.
+     */
+    boolean await(long timeout) {
+      long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+      try {
+        while (true) {
+          long wait = Math.min(deadline - System.currentTimeMillis(), OWNER_CHECK_INTERVAL);
+          if (wait <= 0) {
+            return false;
+          }
+          if (latch.await(wait, TimeUnit.MILLISECONDS)) {
+            return true;
+          }
+          if (!owner.isAlive()) {
+            // the owner will never complete the flight, let the next reader take it over
+            flights.remove(key, this);
+            latch.countDown();
+            return true;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Cached value with the time it was put, used to find stale entries.
+   */
+  public static class StampedValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private Object value;
+    private long timestamp;
+
+    public StampedValue() {
+    }
+
+    public StampedValue(Object value) {
+      this.value = value;
+      this.timestamp = System.currentTimeMillis();
+    }
+
+    public Object getValue() {
+      return value;
+    }
+
+    public void setValue(Object value) {
+      this.value = value;
+    }
+
+    public long getTimestamp() {
+      return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+      this.timestamp = timestamp;
+    }
+  }
+
+}
@@ -0,0 +1,168 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Keeps an index from table names to the keys of the entries that depend on them.
+ * <p>
+ * This decorator is placed right above the base cache, so that it sees every removal made by the eviction
+ * decorators. Entries are indexed as depending on unknown tables when they are put, until
+ * {@link #setTables(Object, Set)} tells which tables they were read from.
+ * The index is guarded by its own monitor, so it can be queried from outside of the cache locks.
+ *
+ * @since 3.4.6
+ * @see TableInvalidatingCache
+ */
+public class TableIndexCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<String, Set<Object>> keysByTable = new HashMap<String, Set<Object>>();
+  private final Map<Object, Set<String>> tablesByKey = new HashMap<Object, Set<String>>();
+  private final Set<Object> keysWithUnknownTables = new HashSet<Object>();
+
+  public TableIndexCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+    synchronized (this) {
+      if (!tablesByKey.containsKey(key)) {
+        tablesByKey.put(key, null);
+        keysWithUnknownTables.add(key);
+      }
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object value = delegate.removeObject(key);
+    synchronized (this) {
+      unindex(key);
+    }
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    synchronized (this) {
+      keysByTable.clear();
+      tablesByKey.clear();
+      keysWithUnknownTables.clear();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  /**
+   * Records the tables an entry depends on. Keys that are no longer cached are ignored.
+   */
+  public synchronized void setTables(Object key, Set<String> tables) {
+    if (!tablesByKey.containsKey(key)) {
+      return;
+    }
+    unindex(key);
+    tablesByKey.put(key, tables);
+    for (String table : tables) {
+      Set<Object> keys = keysByTable.get(table);
+      if (keys == null) {
+        keys = new HashSet<Object>();
+        keysByTable.put(table, keys);
+      }
+      keys.add(key);
+    }
+  }
+
+  /**
+   * Returns the keys of the entries depending on any of the tables, including those depending on unknown tables.
+   */
+  public synchronized Set<Object> getDependentKeys(Collection<String> tables) {
+    Set<Object> keys = new HashSet<Object>(keysWithUnknownTables);
+    for (String table : tables) {
+      Set<Object> tableKeys = keysByTable.get(table);
+      if (tableKeys != null) {
+        keys.addAll(tableKeys);
+      }
+    }
+    return keys;
+  }
+
+  public synchronized boolean dependsOn(Object key, Collection<String> tables) {
+    if (!tablesByKey.containsKey(key)) {
+      return false;
+    }
+    Set<String> keyTables = tablesByKey.get(key);
+    if (keyTables == null) {
+      return true;
+    }
+    for (String table : tables) {
+      if (keyTables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void unindex(Object key) {
+    if (!tablesByKey.containsKey(key)) {
+      return;
+    }
+    Set<String> tables = tablesByKey.remove(key);
+    if (tables == null) {
+      keysWithUnknownTables.remove(key);
+      return;
+    }
+    for (String table : tables) {
+      Set<Object> keys = keysByTable.get(table);
+      if (keys != null) {
+        keys.remove(key);
+        if (keys.isEmpty()) {
+          keysByTable.remove(table);
+        }
+      }
+    }
+  }
+
+}
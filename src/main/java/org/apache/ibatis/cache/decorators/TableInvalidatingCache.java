@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * Outermost decorator of a cache built with a {@link TableIndexCache}, able to remove only the entries
+ * that depend on a set of tables instead of clearing the whole cache.
+ * <p>
+ * Entries are removed through the decorator chain below any {@link SingleFlightCache}, so that they go through the
+ * same locks and eviction bookkeeping as any other removal.
+ *
+ * @since 3.4.6
+ */
+public class TableInvalidatingCache implements Cache {
+
+  private final Cache delegate;
+  private final Cache removalDelegate;
+  private final TableIndexCache tableIndex;
+
+  public TableInvalidatingCache(Cache delegate, Cache removalDelegate, TableIndexCache tableIndex) {
+    this.delegate = delegate;
+    this.removalDelegate = removalDelegate;
+    this.tableIndex = tableIndex;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    delegate.putObject(key, value);
+  }
+
+  /**
+   * Puts an entry read from the given tables, <code>null</code> meaning unknown tables.
+   */
+  public void putObject(Object key, Object value, Set<String> tables) {
+    delegate.putObject(key, value);
+    if (tables != null) {
+      tableIndex.setTables(key, tables);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+  }
+
+  /**
+   * Removes the entries depending on any of the tables, and those whose tables are unknown.
+   */
+  public void clear(Collection<String> tables) {
+    for (Object key : tableIndex.getDependentKeys(tables)) {
+      removalDelegate.removeObject(key);
+    }
+  }
+
+  public boolean dependsOn(Object key, Collection<String> tables) {
+    return tableIndex.dependsOn(key, tables);
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,11 +17,14 @@ package org.apache.ibatis.cache.decorators;
 
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -44,12 +47,26 @@ public class TransactionalCache implements Cache {
   private boolean clearOnCommit;
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
+  private final Map<Object, Set<String>> tablesOfEntriesToAdd;
+  private final Set<String> tablesToClearOnCommit;
+  private final CacheInvalidationBus invalidationBus;
 
   public TransactionalCache(Cache delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @param invalidationBus notified of the entries cleared on commit, may be <code>null</code>
+   * @since 3.4.6
+   */
+  public TransactionalCache(Cache delegate, CacheInvalidationBus invalidationBus) {
     this.delegate = delegate;
+    this.invalidationBus = invalidationBus;
     this.clearOnCommit = false;
     this.entriesToAddOnCommit = new HashMap<Object, Object>();
     this.entriesMissedInCache = new HashSet<Object>();
+    this.tablesOfEntriesToAdd = new HashMap<Object, Set<String>>();
+    this.tablesToClearOnCommit = new HashSet<String>();
   }
 
   @Override
@@ -70,7 +87,7 @@ public class TransactionalCache implements Cache {
       entriesMissedInCache.add(key);
     }
     // issue #146
-    if (clearOnCommit) {
+    if (clearOnCommit || dependsOnTablesToClear(key)) {
       return null;
     } else {
       return object;
@@ -84,7 +101,17 @@ public class TransactionalCache implements Cache {
 
   @Override
   public void putObject(Object key, Object object) {
+    putObject(key, object, null);
+  }
+
+  /**
+   * Puts an entry read from the given tables, <code>null</code> meaning unknown tables.
+   *
+   * @since 3.4.6
+   */
+  public void putObject(Object key, Object object, Set<String> tables) {
     entriesToAddOnCommit.put(key, object);
+    tablesOfEntriesToAdd.put(key, tables);
   }
 
   @Override
@@ -96,13 +123,39 @@ public class TransactionalCache implements Cache {
   public void clear() {
     clearOnCommit = true;
     entriesToAddOnCommit.clear();
+    tablesOfEntriesToAdd.clear();
+  }
+
+  /**
+   * Clears only the entries depending on the given tables, when the cache keeps a table index.
+   * Otherwise, or when the tables are unknown (<code>null</code>), clears the whole cache.
+   *
+   * @since 3.4.6
+   */
+  public void clear(Set<String> tables) {
+    if (tables == null || !(delegate instanceof TableInvalidatingCache)) {
+      clear();
+      return;
+    }
+    tablesToClearOnCommit.addAll(tables);
+    Iterator<Map.Entry<Object, Set<String>>> iterator = tablesOfEntriesToAdd.entrySet().iterator();
+    while (iterator.hasNext()) {
+      Map.Entry<Object, Set<String>> entry = iterator.next();
+      if (entry.getValue() == null || containsAny(entry.getValue(), tables)) {
+        entriesToAddOnCommit.remove(entry.getKey());
+        iterator.remove();
+      }
+    }
   }
 
   public void commit() {
     if (clearOnCommit) {
       delegate.clear();
+    } else if (!tablesToClearOnCommit.isEmpty()) {
+      ((TableInvalidatingCache) delegate).clear(tablesToClearOnCommit);
     }
     flushPendingEntries();
+    publishInvalidation();
     reset();
   }
 
@@ -115,11 +168,28 @@ public class TransactionalCache implements Cache {
     clearOnCommit = false;
     entriesToAddOnCommit.clear();
     entriesMissedInCache.clear();
+    tablesOfEntriesToAdd.clear();
+    tablesToClearOnCommit.clear();
+  }
+
+  private void publishInvalidation() {
+    if (invalidationBus == null) {
+      return;
+    }
+    if (clearOnCommit) {
+      invalidationBus.publish(CacheInvalidation.clear(delegate.getId()));
+    } else if (!tablesToClearOnCommit.isEmpty()) {
+      invalidationBus.publish(CacheInvalidation.tables(delegate.getId(), tablesToClearOnCommit));
+    }
   }
 
   private void flushPendingEntries() {
     for (Map.Entry<Object, Object> entry : entriesToAddOnCommit.entrySet()) {
-      delegate.putObject(entry.getKey(), entry.getValue());
+      if (delegate instanceof TableInvalidatingCache) {
+        ((TableInvalidatingCache) delegate).putObject(entry.getKey(), entry.getValue(), tablesOfEntriesToAdd.get(entry.getKey()));
+      } else {
+        delegate.putObject(entry.getKey(), entry.getValue());
+      }
     }
     for (Object entry : entriesMissedInCache) {
       if (!entriesToAddOnCommit.containsKey(entry)) {
@@ -128,6 +198,19 @@ public class TransactionalCache implements Cache {
     }
   }
 
+  private boolean dependsOnTablesToClear(Object key) {
+    return !tablesToClearOnCommit.isEmpty() && ((TableInvalidatingCache) delegate).dependsOn(key, tablesToClearOnCommit);
+  }
+
+  private static boolean containsAny(Set<String> tables, Set<String> otherTables) {
+    for (String table : otherTables) {
+      if (tables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   private void unlockMissedEntries() {
     for (Object entry : entriesMissedInCache) {
       try {
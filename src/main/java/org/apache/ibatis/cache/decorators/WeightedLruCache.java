@@ -0,0 +1,194 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Lru (least recently used) cache decorator bounding the total weight of the entries instead of their number.
+ * <p>
+ * Entries are weighed by a {@link Weigher}, an {@link ObjectSizeWeigher} by default, when they are put. Once the
+ * total weight exceeds <code>maxWeight</code> (64MB by default) the least recently used entries are evicted, and
+ * an entry heavier than <code>maxWeight</code> on its own is not cached at all.
+ *
+ * @since 3.4.6
+ */
+public class WeightedLruCache implements Cache {
+
+  private static final Log log = LogFactory.getLog(WeightedLruCache.class);
+
+  private final Cache delegate;
+  private final LinkedHashMap<Object, Long> weights = new LinkedHashMap<Object, Long>(16, .75F, true);
+  private Weigher weigher = new ObjectSizeWeigher();
+  private long maxWeight = 64 * 1024 * 1024;
+  private long totalWeight;
+  private long evictionCount;
+  private EvictionListener evictionListener;
+
+  public WeightedLruCache(Cache delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long weight = weigher.weigh(key, value);
+    if (weight > maxWeight) {
+      if (log.isDebugEnabled()) {
+        log.debug("Not caching an entry of weight " + weight + " over the maximum weight " + maxWeight
+            + " of the cache " + getId());
+      }
+      removeObject(key);
+      return;
+    }
+    delegate.putObject(key, value);
+    Long previous = weights.put(key, weight);
+    totalWeight += weight - (previous == null ? 0 : previous);
+    evict();
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    weights.get(key); // touch
+    return delegate.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    delegate.clear();
+    weights.clear();
+    totalWeight = 0;
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public void setMaxWeight(long maxWeight) {
+    this.maxWeight = maxWeight;
+    evict();
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * Sets the weigher from its fully qualified class name, as done by a <code>&lt;property&gt;</code> of the cache.
+   */
+  public void setWeigherType(String weigherType) {
+    try {
+      this.weigher = (Weigher) Resources.classForName(weigherType).newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate weigher (" + weigherType + "). Cause: " + e, e);
+    }
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * Returns the keys of the heaviest entries with their weight, heaviest first.
+   */
+  public Map<Object, Long> getLargestEntries(int count) {
+    List<Map.Entry<Object, Long>> entries = new ArrayList<Map.Entry<Object, Long>>(weights.entrySet());
+    Collections.sort(entries, new Comparator<Map.Entry<Object, Long>>() {
+      @Override
+      public int compare(Map.Entry<Object, Long> o1, Map.Entry<Object, Long> o2) {
+        return o2.getValue().compareTo(o1.getValue());
+      }
+    });
+    Map<Object, Long> largest = new LinkedHashMap<Object, Long>();
+    for (Map.Entry<Object, Long> entry : entries.subList(0, Math.min(count, entries.size()))) {
+      largest.put(entry.getKey(), entry.getValue());
+    }
+    return largest;
+  }
+
+  private void evict() {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while (totalWeight > maxWeight && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      totalWeight -= eldest.getValue();
+      evictionCount++;
+      delegate.removeObject(eldest.getKey());
+      if (evictionListener != null) {
+        evictionListener.onEviction(eldest.getKey());
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Evicted an entry of weight " + eldest.getValue() + " from the cache " + getId()
+            + ", total weight is now " + totalWeight);
+      }
+    }
+  }
+
+}
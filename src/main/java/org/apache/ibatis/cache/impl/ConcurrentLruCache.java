@@ -0,0 +1,243 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.ThreadSafeCache;
+
+/**
+ * Bounded cache that serves reads without taking any lock.
+ * <p>
+ * Entries live in a {@link ConcurrentHashMap} and remember the tick of their last access, where the tick is a
+ * counter advanced by every write. Writes are serialized by a lock that reads never touch, and once the cache holds
+ * more than <code>size</code> entries the least recently used of a few randomly sampled entries is evicted
+ * (sampled LRU). Caches holding no more entries than the sample are evicted in exact LRU order.
+ *
+ * @since 3.4.6
+ */
+public class ConcurrentLruCache implements ThreadSafeCache {
+
+  private static final int SAMPLE_SIZE = 8;
+
+  private final String id;
+  private final ConcurrentMap<Object, Entry> entries = new ConcurrentHashMap<Object, Entry>();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile long clock;
+  private volatile int size = 1024;
+  // guarded by writeLock
+  private Entry[] slots = new Entry[16];
+  private int slotCount;
+  private long seed = System.nanoTime() | 1L;
+  private EvictionListener evictionListener;
+
+  public ConcurrentLruCache(String id) {
+    this.id = id;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    return entries.size();
+  }
+
+  public void setSize(int size) {
+    writeLock.lock();
+    try {
+      this.size = size;
+      evictExcessEntries();
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    writeLock.lock();
+    try {
+      Entry entry = new Entry(key, value, ++clock);
+      Entry previous = entries.put(key, entry);
+      if (previous == null) {
+        addSlot(entry);
+        evictExcessEntries();
+      } else {
+        entry.slot = previous.slot;
+        slots[entry.slot] = entry;
+      }
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return null;
+    }
+    long now = clock;
+    // hot entries are only written once per tick, so concurrent hits do not keep invalidating the same cache line
+    if (entry.accessTick != now) {
+      entry.accessTick = now;
+    }
+    return entry.value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    writeLock.lock();
+    try {
+      Entry entry = entries.remove(key);
+      if (entry == null) {
+        return null;
+      }
+      removeSlot(entry);
+      return entry.value;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    writeLock.lock();
+    try {
+      entries.clear();
+      slots = new Entry[16];
+      slotCount = 0;
+    } finally {
+      writeLock.unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void evictExcessEntries() {
+    while (slotCount > size) {
+      Entry victim = slotCount <= SAMPLE_SIZE ? leastRecentlyUsed() : sampledLeastRecentlyUsed();
+      entries.remove(victim.key);
+      removeSlot(victim);
+      if (evictionListener != null) {
+        evictionListener.onEviction(victim.key);
+      }
+    }
+  }
+
+  private Entry leastRecentlyUsed() {
+    Entry victim = slots[0];
+    for (int i = 1; i < slotCount; i++) {
+      if (slots[i].accessTick < victim.accessTick) {
+        victim = slots[i];
+      }
+    }
+    return victim;
+  }
+
+  private Entry sampledLeastRecentlyUsed() {
+    Entry victim = null;
+    for (int i = 0; i < SAMPLE_SIZE; i++) {
+      Entry candidate = slots[nextIndex(slotCount)];
+      if (victim == null || candidate.accessTick < victim.accessTick) {
+        victim = candidate;
+      }
+    }
+    return victim;
+  }
+
+  private int nextIndex(int bound) {
+    // xorshift
+    seed ^= seed << 13;
+    seed ^= seed >>> 7;
+    seed ^= seed << 17;
+    return (int) ((seed >>> 1) % bound);
+  }
+
+  private void addSlot(Entry entry) {
+    if (slotCount == slots.length) {
+      Entry[] newSlots = new Entry[slots.length * 2];
+      System.arraycopy(slots, 0, newSlots, 0, slotCount);
+      slots = newSlots;
+    }
+    entry.slot = slotCount;
+    slots[slotCount++] = entry;
+  }
+
+  private void removeSlot(Entry entry) {
+    Entry last = slots[--slotCount];
+    slots[entry.slot] = last;
+    last.slot = entry.slot;
+    slots[slotCount] = null;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  private static class Entry {
+
+    private final Object key;
+    private final Object value;
+    private volatile long accessTick;
+    private int slot;
+
+    Entry(Object key, Object value, long accessTick) {
+      this.key = key;
+      this.value = value;
+      this.accessTick = accessTick;
+    }
+  }
+
+}
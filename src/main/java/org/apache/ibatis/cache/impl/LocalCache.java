@@ -0,0 +1,205 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+
+/**
+ * First level cache of a session, optionally bounded by a number of entries and/or an estimated weight.
+ * <p>
+ * Unbounded by default, like a {@link PerpetualCache}. Once bounded, the least recently used entries are evicted
+ * by {@link #evict()}, which the executor calls between top level queries only: the entries put while a query
+ * runs are needed until its deferred loads are resolved. Changing the bounds of a non empty unbounded cache
+ * clears it, as the order of its entries is not tracked.
+ * <p>
+ * Hits and misses are recorded by the executor, so that lookups made to resolve deferred loads are not counted.
+ *
+ * @since 3.4.6
+ */
+public class LocalCache extends PerpetualCache {
+
+  private final LinkedHashMap<Object, Long> weights = new LinkedHashMap<Object, Long>(16, .75F, true);
+  private Weigher weigher = new ObjectSizeWeigher();
+  private int maxEntries;
+  private long maxWeight;
+  private long totalWeight;
+  private long hits;
+  private long misses;
+  private long evictions;
+  private EvictionListener evictionListener;
+
+  public LocalCache(String id) {
+    super(id);
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value);
+    if (isBounded()) {
+      long weight = maxWeight > 0 ? weigher.weigh(key, value) : 0;
+      Long previous = weights.put(key, weight);
+      totalWeight += weight - (previous == null ? 0 : previous);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    if (isBounded()) {
+      weights.get(key); // touch
+    }
+    return super.getObject(key);
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Long weight = weights.remove(key);
+    if (weight != null) {
+      totalWeight -= weight;
+    }
+    return super.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    weights.clear();
+    totalWeight = 0;
+  }
+
+  /**
+   * Evicts the least recently used entries until the cache is within its bounds.
+   */
+  public void evict() {
+    Iterator<Map.Entry<Object, Long>> iterator = weights.entrySet().iterator();
+    while ((maxEntries > 0 && weights.size() > maxEntries || maxWeight > 0 && totalWeight > maxWeight)
+        && iterator.hasNext()) {
+      Map.Entry<Object, Long> eldest = iterator.next();
+      iterator.remove();
+      totalWeight -= eldest.getValue();
+      evictions++;
+      super.removeObject(eldest.getKey());
+      if (evictionListener != null) {
+        evictionListener.onEviction(eldest.getKey());
+      }
+    }
+  }
+
+  public void recordHit() {
+    hits++;
+  }
+
+  public void recordMiss() {
+    misses++;
+  }
+
+  public boolean isBounded() {
+    return maxEntries > 0 || maxWeight > 0;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Sets the maximum number of entries, 0 for no limit.
+   */
+  public void setMaxEntries(int maxEntries) {
+    boolean wasBounded = isBounded();
+    this.maxEntries = maxEntries;
+    boundsChanged(wasBounded);
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  /**
+   * Sets the maximum estimated weight of the entries, in bytes for the default weigher, 0 for no limit.
+   */
+  public void setMaxWeight(long maxWeight) {
+    boolean wasBounded = isBounded();
+    long previousMaxWeight = this.maxWeight;
+    this.maxWeight = maxWeight;
+    if (wasBounded && previousMaxWeight <= 0 && maxWeight > 0) {
+      // entries were not weighed so far
+      reweigh();
+    }
+    boundsChanged(wasBounded);
+  }
+
+  public Weigher getWeigher() {
+    return weigher;
+  }
+
+  public void setWeigher(Weigher weigher) {
+    this.weigher = weigher;
+    if (maxWeight > 0) {
+      reweigh();
+    }
+  }
+
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  public long getTotalWeight() {
+    return totalWeight;
+  }
+
+  public long getHitCount() {
+    return hits;
+  }
+
+  public long getMissCount() {
+    return misses;
+  }
+
+  public double getHitRatio() {
+    long requests = hits + misses;
+    return requests == 0 ? 0 : (double) hits / requests;
+  }
+
+  public long getEvictionCount() {
+    return evictions;
+  }
+
+  private void boundsChanged(boolean wasBounded) {
+    if (!wasBounded && isBounded()) {
+      clear();
+    } else if (!isBounded()) {
+      weights.clear();
+      totalWeight = 0;
+    } else {
+      evict();
+    }
+  }
+
+  private void reweigh() {
+    totalWeight = 0;
+    for (Map.Entry<Object, Long> entry : weights.entrySet()) {
+      long weight = maxWeight > 0 ? weigher.weigh(entry.getKey(), super.getObject(entry.getKey())) : 0;
+      entry.setValue(weight);
+      totalWeight += weight;
+    }
+  }
+
+}
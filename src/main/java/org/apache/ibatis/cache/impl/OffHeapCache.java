@@ -0,0 +1,444 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.ThreadSafeCache;
+import org.apache.ibatis.cache.decorators.SerializedCache.CustomObjectInputStream;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Cache that keeps serialized entries out of the java heap, in a direct {@link ByteBuffer} or, when a
+ * <code>file</code> is set, in a memory-mapped file.
+ * <p>
+ * Entries are appended to a ring shaped log of <code>capacity</code> bytes and the oldest ones are evicted when
+ * there is no room left for a new entry. Only the keys and their positions in the log stay on heap.
+ * Values that already are <code>byte[]</code> (as written by a {@link org.apache.ibatis.cache.decorators.SerializedCache})
+ * are stored as they are, other values are serialized.
+ * <p>
+ * With a file, the log survives restarts: the entries found in the file are loaded again when the cache is
+ * initialized, so keys must be serializable too. Entries whose classes can no longer be read are dropped.
+ *
+ * @since 3.4.6
+ */
+public class OffHeapCache implements ThreadSafeCache, InitializingObject {
+
+  private static final Log log = LogFactory.getLog(OffHeapCache.class);
+
+  private static final int MAGIC = 0x4d424f48;
+  private static final int VERSION = 1;
+  // magic, version, capacity, head, tail, record count
+  private static final int HEADER_SIZE = 24;
+  // length, live flag, key length, value type
+  private static final int RECORD_HEADER_SIZE = 10;
+  private static final int WRAP = -1;
+
+  private static final byte SERIALIZED_VALUE = 0;
+  private static final byte BYTES_VALUE = 1;
+  private static final byte NULL_VALUE = 2;
+
+  private final String id;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Object, Integer> positions = new HashMap<Object, Integer>();
+  private final Map<Integer, Object> keysByPosition = new HashMap<Integer, Object>();
+  private int capacity = 64 * 1024 * 1024;
+  private String file;
+  private ByteBuffer buffer;
+  private int head;
+  private int tail;
+  private int recordCount;
+  private EvictionListener evictionListener;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+  }
+
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Sets the number of bytes available for entries. Defaults to 64MB.
+   */
+  public void setCapacity(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public String getFile() {
+    return file;
+  }
+
+  /**
+   * Sets the file to map the entries to, making them survive restarts.
+   */
+  public void setFile(String file) {
+    this.file = file;
+  }
+
+  @Override
+  public void initialize() throws IOException {
+    lock.writeLock().lock();
+    try {
+      if (file == null) {
+        buffer = ByteBuffer.allocateDirect(HEADER_SIZE + capacity);
+        reset();
+      } else {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(new File(file), "rw");
+        try {
+          randomAccessFile.setLength(HEADER_SIZE + capacity);
+          buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + capacity);
+        } finally {
+          randomAccessFile.close();
+        }
+        load();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public void setEvictionListener(EvictionListener evictionListener) {
+    this.evictionListener = evictionListener;
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  @Override
+  public int getSize() {
+    lock.readLock().lock();
+    try {
+      return positions.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    byte[] keyBytes = file == null ? new byte[0] : serialize(key);
+    byte type;
+    byte[] valueBytes;
+    if (value == null) {
+      type = NULL_VALUE;
+      valueBytes = new byte[0];
+    } else if (value instanceof byte[]) {
+      type = BYTES_VALUE;
+      valueBytes = (byte[]) value;
+    } else {
+      type = SERIALIZED_VALUE;
+      valueBytes = serialize(value);
+    }
+    int length = RECORD_HEADER_SIZE + keyBytes.length + valueBytes.length;
+    lock.writeLock().lock();
+    try {
+      if (buffer == null) {
+        initialize();
+      }
+      removeEntry(key);
+      if (length > capacity) {
+        return;
+      }
+      int position = reserve(length);
+      ByteBuffer record = record(position);
+      record.putInt(length);
+      record.put((byte) 1);
+      record.putInt(keyBytes.length);
+      record.put(type);
+      record.put(keyBytes);
+      record.put(valueBytes);
+      head = position + length;
+      recordCount++;
+      positions.put(key, position);
+      keysByPosition.put(position, key);
+      writeHeader();
+    } catch (IOException e) {
+      throw new CacheException("Error initializing off heap cache " + id + ".  Cause: " + e, e);
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte type;
+    byte[] valueBytes;
+    lock.readLock().lock();
+    try {
+      Integer position = positions.get(key);
+      if (position == null) {
+        return null;
+      }
+      ByteBuffer record = record(position);
+      int length = record.getInt();
+      record.get();
+      int keyLength = record.getInt();
+      type = record.get();
+      valueBytes = new byte[length - RECORD_HEADER_SIZE - keyLength];
+      record.position(record.position() + keyLength);
+      record.get(valueBytes);
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (type == NULL_VALUE) {
+      return null;
+    } else if (type == BYTES_VALUE) {
+      return valueBytes;
+    }
+    try {
+      return deserialize(valueBytes);
+    } catch (ClassNotFoundException e) {
+      removeObject(key);
+      return null;
+    } catch (InvalidClassException e) {
+      removeObject(key);
+      return null;
+    }
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    lock.writeLock().lock();
+    try {
+      removeEntry(key);
+      return null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      if (buffer != null) {
+        reset();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  private void removeEntry(Object key) {
+    Integer position = positions.remove(key);
+    if (position != null) {
+      keysByPosition.remove(position);
+      buffer.put(HEADER_SIZE + position + 4, (byte) 0);
+    }
+  }
+
+  /*
+   * Returns the position of a free region of the given length, evicting the oldest records as needed.
+   * The live records are in [tail, head), or in [tail, capacity) and [0, head) once the log has wrapped.
+   */
+  private int reserve(int length) {
+    while (true) {
+      if (recordCount == 0) {
+        head = 0;
+        tail = 0;
+      }
+      if (recordCount == 0 || head > tail) {
+        if (capacity - head >= length) {
+          return head;
+        }
+        if (capacity - head >= 4) {
+          buffer.putInt(HEADER_SIZE + head, WRAP);
+        }
+        head = 0;
+      }
+      if (head < tail && tail - head >= length) {
+        return head;
+      }
+      evictTail();
+    }
+  }
+
+  private void evictTail() {
+    if (capacity - tail < 4 || buffer.getInt(HEADER_SIZE + tail) == WRAP) {
+      tail = 0;
+      return;
+    }
+    int length = buffer.getInt(HEADER_SIZE + tail);
+    Object key = keysByPosition.remove(tail);
+    if (key != null) {
+      positions.remove(key);
+      if (evictionListener != null) {
+        evictionListener.onEviction(key);
+      }
+    }
+    tail += length;
+    recordCount--;
+    if (tail == capacity) {
+      tail = 0;
+    }
+  }
+
+  private void reset() {
+    positions.clear();
+    keysByPosition.clear();
+    head = 0;
+    tail = 0;
+    recordCount = 0;
+    writeHeader();
+  }
+
+  private void writeHeader() {
+    buffer.putInt(0, MAGIC);
+    buffer.putInt(4, VERSION);
+    buffer.putInt(8, capacity);
+    buffer.putInt(12, head);
+    buffer.putInt(16, tail);
+    buffer.putInt(20, recordCount);
+  }
+
+  private void load() {
+    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION || buffer.getInt(8) != capacity) {
+      reset();
+      return;
+    }
+    head = buffer.getInt(12);
+    tail = buffer.getInt(16);
+    recordCount = buffer.getInt(20);
+    try {
+      int position = tail;
+      for (int i = 0; i < recordCount; i++) {
+        if (capacity - position < 4 || buffer.getInt(HEADER_SIZE + position) == WRAP) {
+          position = 0;
+        }
+        ByteBuffer record = record(position);
+        int length = record.getInt();
+        if (length < RECORD_HEADER_SIZE || length > capacity - position) {
+          throw new IllegalStateException("Invalid record length " + length + " at " + position);
+        }
+        boolean live = record.get() == 1;
+        byte[] keyBytes = new byte[record.getInt()];
+        record.get();
+        record.get(keyBytes);
+        if (live) {
+          loadKey(position, keyBytes);
+        }
+        position += length;
+      }
+    } catch (RuntimeException e) {
+      log.warn("Discarding unreadable entries of off heap cache " + id + " in " + file + ".  Cause: " + e);
+      reset();
+    }
+  }
+
+  private void loadKey(int position, byte[] keyBytes) {
+    try {
+      Object key = deserialize(keyBytes);
+      positions.put(key, position);
+      keysByPosition.put(position, key);
+    } catch (ClassNotFoundException e) {
+      buffer.put(HEADER_SIZE + position + 4, (byte) 0);
+    } catch (InvalidClassException e) {
+      buffer.put(HEADER_SIZE + position + 4, (byte) 0);
+    }
+  }
+
+  private ByteBuffer record(int position) {
+    ByteBuffer record = buffer.duplicate();
+    record.position(HEADER_SIZE + position);
+    return record;
+  }
+
+  private byte[] serialize(Object value) {
+    if (!(value instanceof Serializable)) {
+      throw new CacheException("Off heap cache " + id + " failed to store a non-serializable object: " + value);
+    }
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(value);
+      oos.flush();
+      oos.close();
+      return bos.toByteArray();
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+  }
+
+  private Object deserialize(byte[] value) throws ClassNotFoundException, InvalidClassException {
+    try {
+      ObjectInputStream ois = new CustomObjectInputStream(new ByteArrayInputStream(value));
+      Object result = ois.readObject();
+      ois.close();
+      return result;
+    } catch (ClassNotFoundException e) {
+      throw e;
+    } catch (InvalidClassException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+}
@@ -0,0 +1,175 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.TableInvalidatingCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Invalidation bus coalescing the invalidations published during <code>batchDelay</code> milliseconds (50 by
+ * default) into one batch per cache, sent by a background thread through an {@link InvalidationTransport}.
+ * <p>
+ * The batches received from the other nodes are applied to the caches of the configuration: tables are cleared
+ * through the table index of the cache when it has one, and the whole cache is cleared otherwise.
+ *
+ * @since 3.4.6
+ */
+public class BatchingInvalidationBus implements CacheInvalidationBus, InvalidationTransport.Receiver {
+
+  private static final Log log = LogFactory.getLog(BatchingInvalidationBus.class);
+
+  private final Configuration configuration;
+  private final InvalidationTransport transport;
+  private final Map<String, CacheInvalidation> pending = new LinkedHashMap<String, CacheInvalidation>();
+  private final ScheduledExecutorService scheduler;
+  private long batchDelay = 50;
+  private int maxKeys = 1000;
+  private boolean flushScheduled;
+
+  public BatchingInvalidationBus(Configuration configuration, InvalidationTransport transport) {
+    this.configuration = configuration;
+    this.transport = transport;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-cache-invalidation");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      transport.open(this);
+    } catch (IOException e) {
+      scheduler.shutdown();
+      throw new CacheException("Could not open the cache invalidation transport. Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public void publish(CacheInvalidation invalidation) {
+    synchronized (pending) {
+      CacheInvalidation previous = pending.get(invalidation.getCacheId());
+      pending.put(invalidation.getCacheId(), previous == null ? invalidation : previous.merge(invalidation, maxKeys));
+      if (!flushScheduled) {
+        flushScheduled = true;
+        scheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            flush();
+          }
+        }, batchDelay, TimeUnit.MILLISECONDS);
+      }
+    }
+  }
+
+  /**
+   * Sends the pending invalidations right away.
+   */
+  public void flush() {
+    List<CacheInvalidation> batch;
+    synchronized (pending) {
+      flushScheduled = false;
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = new ArrayList<CacheInvalidation>(pending.values());
+      pending.clear();
+    }
+    try {
+      transport.send(batch);
+    } catch (Exception e) {
+      log.warn("Could not send " + batch.size() + " cache invalidations to the other nodes. Cause: " + e);
+    }
+  }
+
+  @Override
+  public void receive(List<CacheInvalidation> invalidations) {
+    for (CacheInvalidation invalidation : invalidations) {
+      if (configuration.hasCache(invalidation.getCacheId())) {
+        apply(configuration.getCache(invalidation.getCacheId()), invalidation);
+      }
+    }
+  }
+
+  @Override
+  public void reset() {
+    for (Cache cache : new HashSet<Cache>(configuration.getCaches())) {
+      cache.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    flush();
+    scheduler.shutdown();
+    transport.close();
+  }
+
+  public long getBatchDelay() {
+    return batchDelay;
+  }
+
+  public void setBatchDelay(long batchDelay) {
+    this.batchDelay = batchDelay;
+  }
+
+  public int getMaxKeys() {
+    return maxKeys;
+  }
+
+  /**
+   * Sets the number of keys of a cache above which the whole cache is invalidated instead.
+   */
+  public void setMaxKeys(int maxKeys) {
+    this.maxKeys = maxKeys;
+  }
+
+  private void apply(Cache cache, CacheInvalidation invalidation) {
+    if (log.isDebugEnabled()) {
+      log.debug("Applying remote cache invalidation: " + invalidation);
+    }
+    if (invalidation.isClear()) {
+      cache.clear();
+      return;
+    }
+    if (!invalidation.getTables().isEmpty()) {
+      if (!(cache instanceof TableInvalidatingCache)) {
+        cache.clear();
+        return;
+      }
+      ((TableInvalidatingCache) cache).clear(invalidation.getTables());
+    }
+    for (Object key : invalidation.getKeys()) {
+      cache.removeObject(key);
+    }
+  }
+
+}
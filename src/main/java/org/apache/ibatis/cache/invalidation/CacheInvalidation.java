@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Invalidation of the entries of a cache, either all of them, those depending on some tables, or some keys.
+ * <p>
+ * Invalidations of the same cache can be merged, so that a burst of writes is sent as a single message.
+ * Keys must be serializable to be sent to other nodes.
+ *
+ * @since 3.4.6
+ */
+public final class CacheInvalidation implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final String cacheId;
+  private final boolean clear;
+  private final Set<String> tables;
+  private final Set<Object> keys;
+
+  private CacheInvalidation(String cacheId, boolean clear, Set<String> tables, Set<Object> keys) {
+    this.cacheId = cacheId;
+    this.clear = clear;
+    this.tables = Collections.unmodifiableSet(tables);
+    this.keys = Collections.unmodifiableSet(keys);
+  }
+
+  public static CacheInvalidation clear(String cacheId) {
+    return new CacheInvalidation(cacheId, true, Collections.<String>emptySet(), Collections.emptySet());
+  }
+
+  public static CacheInvalidation tables(String cacheId, Collection<String> tables) {
+    return new CacheInvalidation(cacheId, false, new HashSet<String>(tables), Collections.emptySet());
+  }
+
+  public static CacheInvalidation keys(String cacheId, Collection<?> keys) {
+    return new CacheInvalidation(cacheId, false, Collections.<String>emptySet(), new HashSet<Object>(keys));
+  }
+
+  /**
+   * Returns an invalidation covering both this one and the other one, which must be of the same cache.
+   * A clear absorbs everything, and when more than <code>maxKeys</code> keys are invalidated the whole cache
+   * is cleared instead.
+   */
+  public CacheInvalidation merge(CacheInvalidation other, int maxKeys) {
+    if (!cacheId.equals(other.cacheId)) {
+      throw new IllegalArgumentException("Cannot merge invalidations of caches " + cacheId + " and " + other.cacheId);
+    }
+    if (clear || other.clear) {
+      return clear ? this : other;
+    }
+    Set<Object> mergedKeys = new HashSet<Object>(keys);
+    mergedKeys.addAll(other.keys);
+    if (mergedKeys.size() > maxKeys) {
+      return clear(cacheId);
+    }
+    Set<String> mergedTables = new HashSet<String>(tables);
+    mergedTables.addAll(other.tables);
+    return new CacheInvalidation(cacheId, false, mergedTables, mergedKeys);
+  }
+
+  public String getCacheId() {
+    return cacheId;
+  }
+
+  public boolean isClear() {
+    return clear;
+  }
+
+  public Set<String> getTables() {
+    return tables;
+  }
+
+  public Set<Object> getKeys() {
+    return keys;
+  }
+
+  @Override
+  public String toString() {
+    if (clear) {
+      return "clear " + cacheId;
+    }
+    return "invalidate " + cacheId + " tables=" + tables + " keys=" + keys.size();
+  }
+
+}
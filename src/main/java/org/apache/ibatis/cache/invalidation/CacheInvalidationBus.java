@@ -0,0 +1,34 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+/**
+ * Receives the invalidations committed on this node, to propagate them to the caches of the other nodes.
+ * <p>
+ * Set with {@link org.apache.ibatis.session.Configuration#setCacheInvalidationBus}, it is called by
+ * {@link org.apache.ibatis.cache.decorators.TransactionalCache} once the local cache has been updated on commit.
+ * Implementations are called by all the sessions, so they must be thread safe and should not block.
+ *
+ * @since 3.4.6
+ * @see BatchingInvalidationBus
+ */
+public interface CacheInvalidationBus {
+
+  void publish(CacheInvalidation invalidation);
+
+  void close();
+
+}
@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Carries batches of invalidations between the nodes sharing a {@link BatchingInvalidationBus} setup.
+ * <p>
+ * A transport must not hand back to a node the batches that node sent.
+ *
+ * @since 3.4.6
+ * @see JournalInvalidationTransport
+ */
+public interface InvalidationTransport {
+
+  void open(Receiver receiver) throws IOException;
+
+  void send(List<CacheInvalidation> invalidations) throws IOException;
+
+  void close();
+
+  interface Receiver {
+
+    void receive(List<CacheInvalidation> invalidations);
+
+    /**
+     * Called when invalidations sent by other nodes may have been lost, all the caches must then be cleared.
+     */
+    void reset();
+
+  }
+
+}
@@ -0,0 +1,287 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.invalidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * Transport appending the batches to a journal file shared by the nodes of one machine, or of a shared file
+ * system honoring file locks, and polling it every <code>pollInterval</code> milliseconds (100 by default).
+ * <p>
+ * The journal starts with a generation number. Once it would grow over <code>maxJournalSize</code> bytes
+ * (16MB by default) it is truncated and its generation incremented. The header keeps the previous generation
+ * and the offset it ended at, so that only the nodes that had not read all of it are
+ * {@link InvalidationTransport.Receiver#reset() reset}. New nodes start reading at the end of the journal.
+ * Each record holds the length of the batch, the id of the sending node and the batch serialized by a
+ * {@link CacheSerializer}, java serialization by default.
+ *
+ * @since 3.4.6
+ */
+public class JournalInvalidationTransport implements InvalidationTransport {
+
+  private static final Log log = LogFactory.getLog(JournalInvalidationTransport.class);
+
+  private static final int MAGIC = 0x4D42494A;
+  // magic, generation, previous generation and end offset of the previous generation
+  private static final int HEADER_SIZE = 28;
+  // length and node id
+  private static final int RECORD_HEADER_SIZE = 12;
+
+  // file locks are held by the whole JVM, so nodes of the same JVM also lock on a monitor per journal
+  private static final ConcurrentMap<String, Object> localLocks = new ConcurrentHashMap<String, Object>();
+
+  private final File file;
+  private final long nodeId = UUID.randomUUID().getMostSignificantBits();
+  private CacheSerializer serializer = new JdkCacheSerializer();
+  private long maxJournalSize = 16 * 1024 * 1024;
+  private long pollInterval = 100;
+  private Object localLock;
+  private FileChannel channel;
+  private ScheduledExecutorService poller;
+  private Receiver receiver;
+  private long generation;
+  private long position;
+
+  public JournalInvalidationTransport(File file) {
+    this.file = file;
+  }
+
+  @Override
+  public void open(Receiver receiver) throws IOException {
+    this.receiver = receiver;
+    String path = file.getCanonicalPath();
+    localLocks.putIfAbsent(path, new Object());
+    localLock = localLocks.get(path);
+    channel = new RandomAccessFile(file, "rw").getChannel();
+    synchronized (localLock) {
+      FileLock lock = channel.lock();
+      try {
+        if (channel.size() < HEADER_SIZE) {
+          writeHeader(0, -1, HEADER_SIZE);
+        }
+        generation = readGeneration();
+        position = channel.size();
+      } finally {
+        lock.release();
+      }
+    }
+    poller = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-invalidation-journal");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    poller.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          poll();
+        } catch (Exception e) {
+          log.warn("Could not read the cache invalidation journal " + file + ". Cause: " + e);
+        }
+      }
+    }, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void send(List<CacheInvalidation> invalidations) throws IOException {
+    byte[] bytes = serializer.serialize(new ArrayList<CacheInvalidation>(invalidations));
+    ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bytes.length);
+    record.putInt(bytes.length).putLong(nodeId).put(bytes);
+    record.flip();
+    synchronized (this) {
+      synchronized (localLock) {
+        FileLock lock = channel.lock();
+        try {
+          long end = channel.size();
+          if (end + record.remaining() > maxJournalSize && end > HEADER_SIZE) {
+            long previousGeneration = readGeneration();
+            long newGeneration = previousGeneration + 1;
+            channel.truncate(HEADER_SIZE);
+            writeHeader(newGeneration, previousGeneration, end);
+            if (position == end) {
+              // nothing unread was dropped for this node
+              generation = newGeneration;
+              position = HEADER_SIZE;
+            }
+            end = HEADER_SIZE;
+          }
+          write(record, end);
+          if (position == end) {
+            position = end + RECORD_HEADER_SIZE + bytes.length;
+          }
+        } finally {
+          lock.release();
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the batches appended by the other nodes since the last poll.
+   */
+  public void poll() throws IOException {
+    List<byte[]> batches = new ArrayList<byte[]>();
+    boolean reset = false;
+    synchronized (this) {
+      synchronized (localLock) {
+        FileLock lock = channel.lock();
+        try {
+          ByteBuffer header = readHeader();
+          long currentGeneration = header.getLong();
+          if (currentGeneration != generation) {
+            long previousGeneration = header.getLong();
+            long previousEnd = header.getLong();
+            // batches were lost only if this node had not read the previous generation up to its end
+            reset = previousGeneration != generation || position < previousEnd;
+            generation = currentGeneration;
+            position = HEADER_SIZE;
+          }
+          long end = channel.size();
+          ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+          while (position + RECORD_HEADER_SIZE <= end) {
+            recordHeader.clear();
+            read(recordHeader, position);
+            int length = recordHeader.getInt();
+            long sender = recordHeader.getLong();
+            if (sender != nodeId) {
+              ByteBuffer batch = ByteBuffer.allocate(length);
+              read(batch, position + RECORD_HEADER_SIZE);
+              batches.add(batch.array());
+            }
+            position += RECORD_HEADER_SIZE + length;
+          }
+        } finally {
+          lock.release();
+        }
+      }
+    }
+    // caches are updated once the journal is unlocked
+    if (reset) {
+      receiver.reset();
+    }
+    for (byte[] batch : batches) {
+      @SuppressWarnings("unchecked")
+      List<CacheInvalidation> invalidations = (List<CacheInvalidation>) serializer.deserialize(batch);
+      receiver.receive(invalidations);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (poller != null) {
+      poller.shutdown();
+    }
+    try {
+      if (channel != null) {
+        channel.close();
+      }
+    } catch (IOException e) {
+      // ignore
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  public void setSerializer(CacheSerializer serializer) {
+    this.serializer = serializer;
+  }
+
+  public long getMaxJournalSize() {
+    return maxJournalSize;
+  }
+
+  public void setMaxJournalSize(long maxJournalSize) {
+    this.maxJournalSize = maxJournalSize;
+  }
+
+  public long getPollInterval() {
+    return pollInterval;
+  }
+
+  /**
+   * Sets the poll interval in milliseconds, must be called before the transport is opened.
+   */
+  public void setPollInterval(long pollInterval) {
+    this.pollInterval = pollInterval;
+  }
+
+  private long readGeneration() throws IOException {
+    return readHeader().getLong();
+  }
+
+  /*
+   * Returns the header positioned after the magic number.
+   */
+  private ByteBuffer readHeader() throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    read(header, 0);
+    if (header.getInt() != MAGIC) {
+      throw new IOException(file + " is not a cache invalidation journal");
+    }
+    return header;
+  }
+
+  private void writeHeader(long newGeneration, long previousGeneration, long previousEnd) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putInt(MAGIC).putLong(newGeneration).putLong(previousGeneration).putLong(previousEnd);
+    header.flip();
+    write(header, 0);
+  }
+
+  private void read(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, offset + buffer.position()) < 0) {
+        throw new IOException("Unexpected end of the cache invalidation journal " + file);
+      }
+    }
+    buffer.flip();
+  }
+
+  private void write(ByteBuffer buffer, long offset) throws IOException {
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, offset + buffer.position());
+    }
+  }
+
+}
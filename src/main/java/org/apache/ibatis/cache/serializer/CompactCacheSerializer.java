@@ -0,0 +1,721 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Jdk;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Compact binary serializer for the values usually found in result caches.
+ * <p>
+ * Boxed primitives, strings, big numbers, dates, <code>java.time</code> local dates and instants, enums,
+ * <code>byte[]</code>, object arrays, the common <code>java.util</code> lists, sets and maps, and serializable beans
+ * are written in a tagged binary format. Beans are written through the getters and setters of their
+ * {@link Reflector}; a bean qualifies when it has a default constructor, does not customize its serialization,
+ * and each of its serializable fields is a readable and writable property. Its property names are written once per
+ * value, so a class that changes between a write and a read loses the properties it no longer has
+ * instead of failing.
+ * <p>
+ * Anything else, including lazy loading proxies, is embedded using java serialization.
+ * References to the same object are kept, so cyclic object graphs are supported.
+ *
+ * @since 3.4.6
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  private static final byte NULL = 0;
+  private static final byte TRUE = 1;
+  private static final byte FALSE = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte CHARACTER = 7;
+  private static final byte FLOAT = 8;
+  private static final byte DOUBLE = 9;
+  private static final byte STRING = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte BYTE_ARRAY = 17;
+  private static final byte OBJECT_ARRAY = 18;
+  private static final byte ARRAY_LIST = 19;
+  private static final byte LINKED_LIST = 20;
+  private static final byte HASH_SET = 21;
+  private static final byte LINKED_HASH_SET = 22;
+  private static final byte TREE_SET = 23;
+  private static final byte HASH_MAP = 24;
+  private static final byte LINKED_HASH_MAP = 25;
+  private static final byte TREE_MAP = 26;
+  private static final byte ENUM = 27;
+  private static final byte BEAN = 28;
+  private static final byte REFERENCE = 29;
+  private static final byte SERIALIZED = 30;
+  private static final byte LOCAL_DATE = 31;
+  private static final byte LOCAL_TIME = 32;
+  private static final byte LOCAL_DATE_TIME = 33;
+  private static final byte INSTANT = 34;
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final BeanType NOT_A_BEAN = new BeanType(null, new String[0], new Invoker[0]);
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final ConcurrentMap<Class<?>, BeanType> beanTypes = new ConcurrentHashMap<Class<?>, BeanType>();
+  private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+  private final JdkCacheSerializer jdkSerializer = new JdkCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object value) {
+    Writer writer = new Writer();
+    try {
+      writer.write(value);
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    }
+    return writer.toByteArray();
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new Reader(bytes).read();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanType getBeanType(Class<?> type) {
+    BeanType beanType = beanTypes.get(type);
+    if (beanType == null) {
+      beanType = createBeanType(type);
+      beanTypes.put(type, beanType);
+    }
+    return beanType;
+  }
+
+  private BeanType createBeanType(Class<?> type) {
+    if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+        || WriteReplaceInterface.class.isAssignableFrom(type) || Modifier.isAbstract(type.getModifiers())) {
+      return NOT_A_BEAN;
+    }
+    Reflector reflector = reflectorFactory.findForClass(type);
+    if (!reflector.hasDefaultConstructor()) {
+      return NOT_A_BEAN;
+    }
+    List<String> properties = new ArrayList<String>();
+    // like java serialization, stop at the first non serializable super class
+    for (Class<?> current = type; Serializable.class.isAssignableFrom(current); current = current.getSuperclass()) {
+      if (customizesSerialization(current)) {
+        return NOT_A_BEAN;
+      }
+      for (Field field : current.getDeclaredFields()) {
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+          continue;
+        }
+        String name = field.getName();
+        if (Modifier.isFinal(modifiers) || properties.contains(name)
+            || !reflector.hasGetter(name) || !reflector.hasSetter(name)) {
+          return NOT_A_BEAN;
+        }
+        properties.add(name);
+      }
+    }
+    String[] names = properties.toArray(new String[properties.size()]);
+    Arrays.sort(names);
+    Invoker[] getters = new Invoker[names.length];
+    for (int i = 0; i < names.length; i++) {
+      getters[i] = reflector.getGetInvoker(names[i]);
+    }
+    return new BeanType(type, names, getters);
+  }
+
+  private static boolean customizesSerialization(Class<?> type) {
+    for (Method method : type.getDeclaredMethods()) {
+      String name = method.getName();
+      if ("writeObject".equals(name) || "readObject".equals(name) || "readObjectNoData".equals(name)
+          || "writeReplace".equals(name) || "readResolve".equals(name)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Class<?> classForName(String name) throws ClassNotFoundException {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = Resources.classForName(name);
+      classes.put(name, type);
+    }
+    return type;
+  }
+
+  private static class BeanType {
+
+    private final Class<?> type;
+    private final String[] properties;
+    private final Invoker[] getters;
+
+    BeanType(Class<?> type, String[] properties, Invoker[] getters) {
+      this.type = type;
+      this.properties = properties;
+      this.getters = getters;
+    }
+  }
+
+  private class Writer {
+
+    private byte[] buffer = new byte[256];
+    private int position;
+    private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    // classes and bean descriptors are numbered separately, the reader keeps them in separate tables
+    private final Map<Class<?>, Integer> classIndexes = new HashMap<Class<?>, Integer>();
+    private final Map<Class<?>, Integer> beanIndexes = new HashMap<Class<?>, Integer>();
+
+    void write(Object value) throws Exception {
+      if (value == null) {
+        writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        writeByte(INTEGER);
+        writeVarLong(zigZag((Integer) value));
+      } else if (type == Long.class) {
+        writeByte(LONG);
+        writeVarLong(zigZag((Long) value));
+      } else if (type == Boolean.class) {
+        writeByte((Boolean) value ? TRUE : FALSE);
+      } else if (type == Double.class) {
+        writeByte(DOUBLE);
+        writeFixedLong(Double.doubleToLongBits((Double) value));
+      } else if (type == Float.class) {
+        writeByte(FLOAT);
+        writeVarLong(Float.floatToIntBits((Float) value) & 0xffffffffL);
+      } else if (type == Short.class) {
+        writeByte(SHORT);
+        writeVarLong(zigZag((Short) value));
+      } else if (type == Byte.class) {
+        writeByte(BYTE);
+        writeByte((Byte) value);
+      } else if (type == Character.class) {
+        writeByte(CHARACTER);
+        writeVarLong((Character) value);
+      } else if (type == BigDecimal.class) {
+        writeByte(BIG_DECIMAL);
+        writeVarLong(zigZag(((BigDecimal) value).scale()));
+        writeBytes(((BigDecimal) value).unscaledValue().toByteArray());
+      } else if (type == BigInteger.class) {
+        writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == Date.class) {
+        writeByte(DATE);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == java.sql.Date.class) {
+        writeByte(SQL_DATE);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == Time.class) {
+        writeByte(SQL_TIME);
+        writeVarLong(zigZag(((Date) value).getTime()));
+      } else if (type == Timestamp.class) {
+        writeByte(SQL_TIMESTAMP);
+        writeVarLong(zigZag(((Timestamp) value).getTime()));
+        writeVarLong(((Timestamp) value).getNanos());
+      } else if (type == byte[].class) {
+        writeByte(BYTE_ARRAY);
+        writeBytes((byte[]) value);
+      } else if (Jdk.dateAndTimeApiExists && JavaTime.write(this, value)) {
+        return;
+      } else {
+        writeReference(value, type);
+      }
+    }
+
+    private void writeReference(Object value, Class<?> type) throws Exception {
+      Integer reference = references.get(value);
+      if (reference != null) {
+        writeByte(REFERENCE);
+        writeVarLong(reference);
+        return;
+      }
+      references.put(value, references.size());
+      if (value instanceof Enum) {
+        writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (type == ArrayList.class) {
+        writeCollection(ARRAY_LIST, (Collection<?>) value);
+      } else if (type == HashMap.class) {
+        writeMap(HASH_MAP, (Map<?, ?>) value);
+      } else if (type == LinkedHashMap.class) {
+        writeMap(LINKED_HASH_MAP, (Map<?, ?>) value);
+      } else if (type == HashSet.class) {
+        writeCollection(HASH_SET, (Collection<?>) value);
+      } else if (type == LinkedHashSet.class) {
+        writeCollection(LINKED_HASH_SET, (Collection<?>) value);
+      } else if (type == LinkedList.class) {
+        writeCollection(LINKED_LIST, (Collection<?>) value);
+      } else if (type == TreeSet.class && ((TreeSet<?>) value).comparator() == null) {
+        writeCollection(TREE_SET, (Collection<?>) value);
+      } else if (type == TreeMap.class && ((TreeMap<?, ?>) value).comparator() == null) {
+        writeMap(TREE_MAP, (Map<?, ?>) value);
+      } else if (type.isArray() && !type.getComponentType().isPrimitive()) {
+        Object[] array = (Object[]) value;
+        writeByte(OBJECT_ARRAY);
+        writeClass(type.getComponentType());
+        writeVarLong(array.length);
+        for (Object element : array) {
+          write(element);
+        }
+      } else {
+        BeanType beanType = getBeanType(type);
+        if (beanType == NOT_A_BEAN) {
+          writeByte(SERIALIZED);
+          writeBytes(jdkSerializer.serialize(value));
+        } else {
+          writeBean(beanType, value);
+        }
+      }
+    }
+
+    private void writeBean(BeanType beanType, Object value) throws Exception {
+      writeByte(BEAN);
+      Integer index = beanIndexes.get(beanType.type);
+      if (index != null) {
+        writeVarLong(index);
+      } else {
+        writeVarLong(beanIndexes.size());
+        beanIndexes.put(beanType.type, beanIndexes.size());
+        writeString(beanType.type.getName());
+        writeVarLong(beanType.properties.length);
+        for (String property : beanType.properties) {
+          writeString(property);
+        }
+      }
+      for (Invoker getter : beanType.getters) {
+        write(getter.invoke(value, NO_ARGUMENTS));
+      }
+    }
+
+    private void writeCollection(byte tag, Collection<?> collection) throws Exception {
+      writeByte(tag);
+      writeVarLong(collection.size());
+      for (Object element : collection) {
+        write(element);
+      }
+    }
+
+    private void writeMap(byte tag, Map<?, ?> map) throws Exception {
+      writeByte(tag);
+      writeVarLong(map.size());
+      for (Map.Entry<?, ?> entry : map.entrySet()) {
+        write(entry.getKey());
+        write(entry.getValue());
+      }
+    }
+
+    private void writeClass(Class<?> type) {
+      Integer index = classIndexes.get(type);
+      if (index != null) {
+        writeVarLong(index);
+      } else {
+        writeVarLong(classIndexes.size());
+        classIndexes.put(type, classIndexes.size());
+        writeString(type.getName());
+      }
+    }
+
+    void writeByte(int value) {
+      ensureCapacity(1);
+      buffer[position++] = (byte) value;
+    }
+
+    void writeVarLong(long value) {
+      ensureCapacity(10);
+      while ((value & ~0x7fL) != 0) {
+        buffer[position++] = (byte) ((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      buffer[position++] = (byte) value;
+    }
+
+    void writeFixedLong(long value) {
+      ensureCapacity(8);
+      for (int shift = 56; shift >= 0; shift -= 8) {
+        buffer[position++] = (byte) (value >>> shift);
+      }
+    }
+
+    private void writeBytes(byte[] bytes) {
+      writeVarLong(bytes.length);
+      ensureCapacity(bytes.length);
+      System.arraycopy(bytes, 0, buffer, position, bytes.length);
+      position += bytes.length;
+    }
+
+    private void writeString(String value) {
+      int length = value.length();
+      writeVarLong(length);
+      ensureCapacity(length);
+      for (int i = 0; i < length; i++) {
+        char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[position++] = (byte) c;
+        } else {
+          // chars are varints, non ascii ones take the room reserved for them plus up to two more bytes
+          writeVarLong(c);
+          ensureCapacity(length - i);
+        }
+      }
+    }
+
+    private void ensureCapacity(int length) {
+      if (position + length > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, position);
+    }
+  }
+
+  private class Reader {
+
+    private final byte[] buffer;
+    private int position;
+    private final List<Object> references = new ArrayList<Object>();
+    private final List<Class<?>> classes = new ArrayList<Class<?>>();
+    private final List<BeanReader> beanReaders = new ArrayList<BeanReader>();
+
+    Reader(byte[] buffer) {
+      this.buffer = buffer;
+    }
+
+    Object read() throws Exception {
+      byte tag = buffer[position++];
+      switch (tag) {
+        case NULL:
+          return null;
+        case TRUE:
+          return Boolean.TRUE;
+        case FALSE:
+          return Boolean.FALSE;
+        case INTEGER:
+          return (int) unZigZag(readVarLong());
+        case LONG:
+          return unZigZag(readVarLong());
+        case SHORT:
+          return (short) unZigZag(readVarLong());
+        case BYTE:
+          return buffer[position++];
+        case CHARACTER:
+          return (char) readVarLong();
+        case FLOAT:
+          return Float.intBitsToFloat((int) readVarLong());
+        case DOUBLE:
+          return Double.longBitsToDouble(readFixedLong());
+        case STRING:
+          return readString();
+        case BIG_DECIMAL:
+          int scale = (int) unZigZag(readVarLong());
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new Date(unZigZag(readVarLong()));
+        case SQL_DATE:
+          return new java.sql.Date(unZigZag(readVarLong()));
+        case SQL_TIME:
+          return new Time(unZigZag(readVarLong()));
+        case SQL_TIMESTAMP:
+          Timestamp timestamp = new Timestamp(unZigZag(readVarLong()));
+          timestamp.setNanos((int) readVarLong());
+          return timestamp;
+        case BYTE_ARRAY:
+          return readBytes();
+        case ENUM:
+          return readEnum();
+        case LOCAL_DATE:
+        case LOCAL_TIME:
+        case LOCAL_DATE_TIME:
+        case INSTANT:
+          return JavaTime.read(this, tag);
+        case REFERENCE:
+          return references.get((int) readVarLong());
+        case ARRAY_LIST:
+          int size = (int) readVarLong();
+          return readElements(new ArrayList<Object>(size), size);
+        case LINKED_LIST:
+          return readElements(new LinkedList<Object>(), (int) readVarLong());
+        case HASH_SET:
+          size = (int) readVarLong();
+          return readElements(new HashSet<Object>(capacity(size)), size);
+        case LINKED_HASH_SET:
+          size = (int) readVarLong();
+          return readElements(new LinkedHashSet<Object>(capacity(size)), size);
+        case TREE_SET:
+          return readElements(new TreeSet<Object>(), (int) readVarLong());
+        case HASH_MAP:
+          size = (int) readVarLong();
+          return readEntries(new HashMap<Object, Object>(capacity(size)), size);
+        case LINKED_HASH_MAP:
+          size = (int) readVarLong();
+          return readEntries(new LinkedHashMap<Object, Object>(capacity(size)), size);
+        case TREE_MAP:
+          return readEntries(new TreeMap<Object, Object>(), (int) readVarLong());
+        case OBJECT_ARRAY:
+          return readArray();
+        case BEAN:
+          return readBean();
+        case SERIALIZED:
+          Object value = jdkSerializer.deserialize(readBytes());
+          references.add(value);
+          return value;
+        default:
+          throw new CacheException("Unknown tag " + tag + " at position " + (position - 1));
+      }
+    }
+
+    private Collection<Object> readElements(Collection<Object> collection, int size) throws Exception {
+      references.add(collection);
+      for (int i = 0; i < size; i++) {
+        collection.add(read());
+      }
+      return collection;
+    }
+
+    private Map<Object, Object> readEntries(Map<Object, Object> map, int size) throws Exception {
+      references.add(map);
+      for (int i = 0; i < size; i++) {
+        Object key = read();
+        map.put(key, read());
+      }
+      return map;
+    }
+
+    private Object readArray() throws Exception {
+      Class<?> componentType = readClass();
+      int length = (int) readVarLong();
+      Object[] array = (Object[]) Array.newInstance(componentType, length);
+      references.add(array);
+      for (int i = 0; i < length; i++) {
+        array[i] = read();
+      }
+      return array;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Object readEnum() throws Exception {
+      Class enumType = readClass();
+      Object value = Enum.valueOf(enumType, readString());
+      references.add(value);
+      return value;
+    }
+
+    private Object readBean() throws Exception {
+      int index = (int) readVarLong();
+      BeanReader beanReader;
+      if (index < beanReaders.size()) {
+        beanReader = beanReaders.get(index);
+      } else {
+        Reflector reflector = reflectorFactory.findForClass(classForName(readString()));
+        Invoker[] setters = new Invoker[(int) readVarLong()];
+        for (int i = 0; i < setters.length; i++) {
+          String property = readString();
+          setters[i] = reflector.hasSetter(property) ? reflector.getSetInvoker(property) : null;
+        }
+        beanReader = new BeanReader(reflector, setters);
+        beanReaders.add(beanReader);
+      }
+      Object bean = beanReader.reflector.getDefaultConstructor().newInstance();
+      references.add(bean);
+      for (Invoker setter : beanReader.setters) {
+        Object value = read();
+        if (setter != null) {
+          setter.invoke(bean, new Object[] { value });
+        }
+      }
+      return bean;
+    }
+
+    private Class<?> readClass() throws ClassNotFoundException {
+      int index = (int) readVarLong();
+      if (index < classes.size()) {
+        return classes.get(index);
+      }
+      Class<?> type = classForName(readString());
+      classes.add(type);
+      return type;
+    }
+
+    long readVarLong() {
+      long value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = buffer[position++];
+        value |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private long readFixedLong() {
+      long value = 0;
+      for (int i = 0; i < 8; i++) {
+        value = (value << 8) | (buffer[position++] & 0xff);
+      }
+      return value;
+    }
+
+    private byte[] readBytes() {
+      int length = (int) readVarLong();
+      byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    private String readString() {
+      int length = (int) readVarLong();
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        byte b = buffer[position];
+        if (b >= 0) {
+          chars[i] = (char) b;
+          position++;
+        } else {
+          chars[i] = (char) readVarLong();
+        }
+      }
+      return new String(chars);
+    }
+  }
+
+  private static class BeanReader {
+
+    private final Reflector reflector;
+    private final Invoker[] setters;
+
+    BeanReader(Reflector reflector, Invoker[] setters) {
+      this.reflector = reflector;
+      this.setters = setters;
+    }
+  }
+
+  @UsesJava8
+  private static class JavaTime {
+
+    static boolean write(Writer writer, Object value) {
+      Class<?> type = value.getClass();
+      if (type == LocalDate.class) {
+        writer.writeByte(LOCAL_DATE);
+        writer.writeVarLong(zigZag(((LocalDate) value).toEpochDay()));
+      } else if (type == LocalTime.class) {
+        writer.writeByte(LOCAL_TIME);
+        writer.writeVarLong(((LocalTime) value).toNanoOfDay());
+      } else if (type == LocalDateTime.class) {
+        writer.writeByte(LOCAL_DATE_TIME);
+        writer.writeVarLong(zigZag(((LocalDateTime) value).toLocalDate().toEpochDay()));
+        writer.writeVarLong(((LocalDateTime) value).toLocalTime().toNanoOfDay());
+      } else if (type == Instant.class) {
+        writer.writeByte(INSTANT);
+        writer.writeVarLong(zigZag(((Instant) value).getEpochSecond()));
+        writer.writeVarLong(((Instant) value).getNano());
+      } else {
+        return false;
+      }
+      return true;
+    }
+
+    static Object read(Reader reader, byte tag) {
+      switch (tag) {
+        case LOCAL_DATE:
+          return LocalDate.ofEpochDay(unZigZag(reader.readVarLong()));
+        case LOCAL_TIME:
+          return LocalTime.ofNanoOfDay(reader.readVarLong());
+        case LOCAL_DATE_TIME:
+          LocalDate date = LocalDate.ofEpochDay(unZigZag(reader.readVarLong()));
+          return LocalDateTime.of(date, LocalTime.ofNanoOfDay(reader.readVarLong()));
+        default:
+          long seconds = unZigZag(reader.readVarLong());
+          return Instant.ofEpochSecond(seconds, reader.readVarLong());
+      }
+    }
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static long unZigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static int capacity(int size) {
+    return Math.max((int) (size / .75f) + 1, 16);
+  }
+
+}
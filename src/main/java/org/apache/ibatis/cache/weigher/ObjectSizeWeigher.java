@@ -0,0 +1,111 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.weigher;
+
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * Rough estimate of the heap bytes held by cached values, cheap enough to be computed on each put.
+ * <p>
+ * Strings, byte arrays, boxed values, dates and big numbers are measured exactly enough. Collections, maps and
+ * arrays are measured from their size and a sample of their first elements. Other objects are estimated from
+ * the number of properties of their {@link org.apache.ibatis.reflection.Reflector} without calling any getter,
+ * so that lazy loading proxies are never triggered.
+ *
+ * @since 3.4.6
+ */
+public class ObjectSizeWeigher implements Weigher {
+
+  private static final int OBJECT_HEADER = 16;
+  private static final int REFERENCE = 8;
+  // assumed payload of each property of a bean, beyond its reference
+  private static final int PROPERTY_PAYLOAD = 24;
+  private static final int SAMPLE_SIZE = 8;
+  private static final int MAX_DEPTH = 4;
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+
+  @Override
+  public long weigh(Object key, Object value) {
+    return estimate(value, 0);
+  }
+
+  protected long estimate(Object value, int depth) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof String) {
+      return OBJECT_HEADER + 24 + 2L * ((String) value).length();
+    }
+    if (value instanceof byte[]) {
+      return OBJECT_HEADER + ((byte[]) value).length;
+    }
+    if (value instanceof Number || value instanceof Boolean || value instanceof Character
+        || value instanceof Date || value instanceof Enum) {
+      if (value instanceof BigDecimal || value instanceof BigInteger) {
+        return OBJECT_HEADER + 40;
+      }
+      return OBJECT_HEADER + 8;
+    }
+    if (depth >= MAX_DEPTH) {
+      return OBJECT_HEADER + REFERENCE;
+    }
+    if (value instanceof Collection) {
+      Collection<?> collection = (Collection<?>) value;
+      return OBJECT_HEADER + 24 + (long) REFERENCE * collection.size() + sample(collection.iterator(), collection.size(), depth);
+    }
+    if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      int size = map.size();
+      return OBJECT_HEADER + 40 + (long) (OBJECT_HEADER + 3 * REFERENCE) * size
+          + sample(map.keySet().iterator(), size, depth) + sample(map.values().iterator(), size, depth);
+    }
+    if (value instanceof Object[]) {
+      Object[] array = (Object[]) value;
+      return OBJECT_HEADER + (long) REFERENCE * array.length + sample(Arrays.asList(array).iterator(), array.length, depth);
+    }
+    if (value.getClass().isArray()) {
+      return OBJECT_HEADER + 8L * Array.getLength(value);
+    }
+    int properties = reflectorFactory.findForClass(value.getClass()).getGetablePropertyNames().length;
+    return OBJECT_HEADER + (long) (REFERENCE + PROPERTY_PAYLOAD) * properties;
+  }
+
+  /*
+   * Estimates the first elements and extrapolates to the whole size.
+   */
+  private long sample(Iterator<?> iterator, int size, int depth) {
+    long total = 0;
+    int sampled = 0;
+    while (sampled < SAMPLE_SIZE && iterator.hasNext()) {
+      total += estimate(iterator.next(), depth + 1);
+      sampled++;
+    }
+    return sampled == 0 ? 0 : total * size / sampled;
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free container of the real connections owned by a {@link ConcurrentPooledDataSource}.
+ * <p>
+ * A borrowing thread first looks at the connections it returned last (thread-local affinity), then scans the
+ * shared list, and finally waits on a fair hand-off queue that returning threads feed while somebody is waiting.
+ */
+class ConcurrentBag {
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<Entry>();
+  private final ThreadLocal<List<WeakReference<Entry>>> threadList = new ThreadLocal<List<WeakReference<Entry>>>() {
+    @Override
+    protected List<WeakReference<Entry>> initialValue() {
+      return new ArrayList<WeakReference<Entry>>(MAX_THREAD_LOCAL_ENTRIES);
+    }
+  };
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<Entry>(true);
+  private final AtomicInteger waiters = new AtomicInteger();
+  private final AtomicInteger idleCount = new AtomicInteger();
+
+  /*
+   * Takes an idle entry without blocking.
+   *
+   * @return a reserved entry or null if every entry is in use
+   */
+  public Entry poll() {
+    List<WeakReference<Entry>> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i).get();
+      if (entry != null && reserve(entry)) {
+        return entry;
+      }
+    }
+    return scan();
+  }
+
+  /*
+   * Waits for an entry handed off by a returning thread.
+   *
+   * @param timeout how long to wait, in milliseconds
+   * @return a reserved entry or null if none became available in time
+   */
+  public Entry await(long timeout) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // an entry may have been returned between poll() and the waiter registration
+      Entry entry = scan();
+      if (entry != null) {
+        return entry;
+      }
+      long remaining = TimeUnit.MILLISECONDS.toNanos(timeout);
+      do {
+        long start = System.nanoTime();
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || reserve(entry)) {
+          return entry;
+        }
+        remaining -= System.nanoTime() - start;
+      } while (remaining > 0);
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /*
+   * Returns an entry to the bag, handing it directly to a waiting thread when there is one.
+   *
+   * @param entry the entry to return
+   * @param owner the connection that currently owns the entry
+   * @return false if the owner had already lost the entry (claimed or removed)
+   */
+  public boolean requite(Entry entry, Object owner) {
+    if (!entry.owner.compareAndSet(owner, null)) {
+      return false;
+    }
+    idleCount.incrementAndGet();
+    for (int i = 0; waiters.get() > 0; i++) {
+      if (entry.owner.get() != null || handoffQueue.offer(entry)) {
+        return true;
+      } else if ((i & 0xff) == 0xff) {
+        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(10));
+      } else {
+        Thread.yield();
+      }
+    }
+    List<WeakReference<Entry>> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(new WeakReference<Entry>(entry));
+    }
+    return true;
+  }
+
+  /*
+   * Adds a new entry that is already reserved by the calling thread.
+   */
+  public void add(Entry entry) {
+    sharedList.add(entry);
+  }
+
+  /*
+   * Removes an entry from the bag.
+   *
+   * @return the previous owner of the entry, {@link Entry#REMOVED} if it was already removed
+   */
+  public Object remove(Entry entry) {
+    Object previous = entry.owner.getAndSet(Entry.REMOVED);
+    if (previous == Entry.REMOVED) {
+      return previous;
+    }
+    if (previous == null) {
+      idleCount.decrementAndGet();
+    }
+    sharedList.remove(entry);
+    return previous;
+  }
+
+  public List<Entry> values() {
+    return new ArrayList<Entry>(sharedList);
+  }
+
+  public int size() {
+    return sharedList.size();
+  }
+
+  public int getIdleCount() {
+    return idleCount.get();
+  }
+
+  public int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  private Entry scan() {
+    for (Entry entry : sharedList) {
+      if (reserve(entry)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean reserve(Entry entry) {
+    if (entry.owner.get() == null && entry.owner.compareAndSet(null, Entry.IN_TRANSIT)) {
+      idleCount.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /*
+   * A real connection and the pooled connection that currently owns it.
+   * The owner is null while idle, {@link #IN_TRANSIT} while a thread is checking it out
+   * and {@link #REMOVED} once the real connection has been discarded.
+   */
+  static class Entry {
+
+    static final Object IN_TRANSIT = new Object();
+    static final Object REMOVED = new Object();
+
+    private final Connection realConnection;
+    private final PooledStatementCache statementCache;
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+    private final AtomicReference<Object> owner = new AtomicReference<Object>(IN_TRANSIT);
+
+    Entry(Connection realConnection, PooledStatementCache statementCache) {
+      this.realConnection = realConnection;
+      this.statementCache = statementCache;
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = createdTimestamp;
+    }
+
+    public Connection getRealConnection() {
+      return realConnection;
+    }
+
+    public PooledStatementCache getStatementCache() {
+      return statementCache;
+    }
+
+    public long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    public long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    public void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+    public Object getOwner() {
+      return owner.get();
+    }
+
+    /*
+     * Hands a reserved entry over to the connection that will be given to the caller.
+     */
+    public boolean activate(Object connection) {
+      return owner.compareAndSet(IN_TRANSIT, connection);
+    }
+
+    /*
+     * Takes the entry away from its current owner, e.g. because it has been checked out for too long.
+     */
+    public boolean claim(Object currentOwner) {
+      return owner.compareAndSet(currentOwner, IN_TRANSIT);
+    }
+  }
+
+}
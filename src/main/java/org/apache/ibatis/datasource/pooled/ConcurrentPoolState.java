@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * Pool statistics of a {@link ConcurrentPooledDataSource}.
+ * Counters are striped so that updating them never serializes the threads checking out connections.
+ *
+ * @since 3.4.6
+ */
+@UsesJava8
+public class ConcurrentPoolState extends PoolState {
+
+  private final ConcurrentBag bag;
+
+  final LongAdder requestCounter = new LongAdder();
+  final LongAdder requestTime = new LongAdder();
+  final LongAdder checkoutTime = new LongAdder();
+  final LongAdder claimedOverdueCounter = new LongAdder();
+  final LongAdder checkoutTimeOfOverdueConnections = new LongAdder();
+  final LongAdder waitTime = new LongAdder();
+  final LongAdder hadToWaitCounter = new LongAdder();
+  final LongAdder badConnectionCounter = new LongAdder();
+
+  ConcurrentPoolState(ConcurrentPooledDataSource dataSource, ConcurrentBag bag) {
+    super(dataSource);
+    this.bag = bag;
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCounter.sum();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : requestTime.sum() / requests;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCounter.sum();
+    return waits == 0 ? 0 : waitTime.sum() / waits;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCounter.sum();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCounter.sum();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueCounter.sum();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueCounter.sum();
+    return claimed == 0 ? 0 : checkoutTimeOfOverdueConnections.sum() / claimed;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requests = requestCounter.sum();
+    return requests == 0 ? 0 : checkoutTime.sum() / requests;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return bag.getIdleCount();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return bag.size() - bag.getIdleCount();
+  }
+
+  /*
+   * The number of threads currently blocked waiting for a connection
+   *
+   * @return the number of waiting threads
+   */
+  public int getWaitingThreadCount() {
+    return bag.getWaitingThreadCount();
+  }
+
+}
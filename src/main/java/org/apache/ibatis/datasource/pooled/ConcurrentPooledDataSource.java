@@ -0,0 +1,310 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.lang.UsesJava8;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A connection pool with the same configuration and semantics as {@link PooledDataSource}
+ * that does not serialize check-outs and check-ins on a single monitor.
+ * <p>
+ * Idle connections are kept in a {@link ConcurrentBag}: a thread gets back the connection it used last when it is
+ * still idle, and threads that have to wait are served in arrival order by the threads returning connections.
+ *
+ * @since 3.4.6
+ */
+@UsesJava8
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  private final ConcurrentBag bag = new ConcurrentBag();
+  private final ConcurrentPoolState state = new ConcurrentPoolState(this, bag);
+  private final AtomicInteger totalConnections = new AtomicInteger();
+
+  private volatile int expectedConnectionTypeCode;
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return popConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return popConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public ConcurrentPoolState getPoolState() {
+    return state;
+  }
+
+  /*
+   * Closes all active and idle connections in the pool
+   */
+  @Override
+  public void forceCloseAll() {
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (ConcurrentBag.Entry entry : bag.values()) {
+      Object owner = bag.remove(entry);
+      if (owner == ConcurrentBag.Entry.REMOVED) {
+        continue;
+      }
+      totalConnections.decrementAndGet();
+      if (owner instanceof PooledConnection) {
+        ((PooledConnection) owner).invalidate();
+      }
+      try {
+        Connection realConn = entry.getRealConnection();
+        if (!realConn.getAutoCommit()) {
+          realConn.rollback();
+        }
+        realConn.close();
+      } catch (Exception e) {
+        // ignore
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    ConcurrentBag.Entry entry = ((EntryConnection) conn).entry;
+    if (conn.isValid()) {
+      state.checkoutTime.add(conn.getCheckoutTime());
+      conn.invalidate();
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+      entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+      if ((bag.getIdleCount() < poolMaximumIdleConnections || bag.getWaitingThreadCount() > 0)
+          && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (bag.requite(entry, conn)) {
+          if (log.isDebugEnabled()) {
+            log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+          }
+          return;
+        }
+      } else if (discard(entry, conn)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Closed connection " + conn.getRealHashCode() + ".");
+        }
+        return;
+      }
+    } else if (entry.getOwner() == conn) {
+      // the ping failed, the real connection is of no use to anyone
+      discard(entry, conn);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+    }
+    state.badConnectionCounter.increment();
+  }
+
+  private PooledConnection popConnection(String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      ConcurrentBag.Entry entry = bag.poll();
+      if (entry == null) {
+        entry = createEntry();
+      }
+      if (entry == null) {
+        entry = claimOverdueEntry();
+      }
+      if (entry == null) {
+        if (!countedWait) {
+          state.hadToWaitCounter.increment();
+          countedWait = true;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+        }
+        long wt = System.currentTimeMillis();
+        try {
+          entry = bag.await(poolTimeToWait);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLException("ConcurrentPooledDataSource: Interrupted while waiting for a connection.", e);
+        } finally {
+          state.waitTime.add(System.currentTimeMillis() - wt);
+        }
+        if (entry == null) {
+          continue;
+        }
+      }
+
+      EntryConnection conn = new EntryConnection(entry, this);
+      if (!entry.activate(conn)) {
+        // removed by forceCloseAll() in the meantime
+        continue;
+      }
+      if (conn.isValid()) {
+        if (!conn.getRealConnection().getAutoCommit()) {
+          conn.getRealConnection().rollback();
+        }
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        conn.setCheckoutTimestamp(System.currentTimeMillis());
+        conn.setLastUsedTimestamp(System.currentTimeMillis());
+        state.requestCounter.increment();
+        state.requestTime.add(System.currentTimeMillis() - t);
+        return conn;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+      }
+      discard(entry, conn);
+      state.badConnectionCounter.increment();
+      localBadConnectionCount++;
+      if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+  }
+
+  private ConcurrentBag.Entry createEntry() throws SQLException {
+    int total;
+    do {
+      total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return null;
+      }
+    } while (!totalConnections.compareAndSet(total, total + 1));
+    ConcurrentBag.Entry entry;
+    try {
+      entry = new ConcurrentBag.Entry(dataSource.getConnection(), newStatementCache());
+    } catch (SQLException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    } catch (RuntimeException e) {
+      totalConnections.decrementAndGet();
+      throw e;
+    }
+    bag.add(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Created connection " + entry.getRealConnection().hashCode() + ".");
+    }
+    return entry;
+  }
+
+  private ConcurrentBag.Entry claimOverdueEntry() {
+    for (ConcurrentBag.Entry entry : bag.values()) {
+      Object owner = entry.getOwner();
+      if (!(owner instanceof PooledConnection)) {
+        continue;
+      }
+      PooledConnection overdue = (PooledConnection) owner;
+      long checkoutTime = overdue.getCheckoutTime();
+      if (checkoutTime > poolMaximumCheckoutTime && entry.claim(overdue)) {
+        state.claimedOverdueCounter.increment();
+        state.checkoutTimeOfOverdueConnections.add(checkoutTime);
+        state.checkoutTime.add(checkoutTime);
+        overdue.invalidate();
+        try {
+          if (!entry.getRealConnection().getAutoCommit()) {
+            entry.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          // the connection will be checked (and discarded when bad) before it is handed out
+          log.debug("Bad connection. Could not roll back");
+        }
+        entry.setLastUsedTimestamp(overdue.getLastUsedTimestamp());
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + overdue.getRealHashCode() + ".");
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  private boolean discard(ConcurrentBag.Entry entry, PooledConnection conn) {
+    if (bag.remove(entry) != conn) {
+      return false;
+    }
+    totalConnections.decrementAndGet();
+    conn.invalidate();
+    try {
+      Connection realConn = entry.getRealConnection();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+    return true;
+  }
+
+  /*
+   * A pooled connection that remembers the bag entry it was checked out from.
+   */
+  static class EntryConnection extends PooledConnection {
+
+    private final ConcurrentBag.Entry entry;
+
+    EntryConnection(ConcurrentBag.Entry entry, ConcurrentPooledDataSource dataSource) {
+      super(entry.getRealConnection(), dataSource, entry.getStatementCache());
+      this.entry = entry;
+      setCreatedTimestamp(entry.getCreatedTimestamp());
+      setLastUsedTimestamp(entry.getLastUsedTimestamp());
+    }
+  }
+
+}
@@ -0,0 +1,260 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * Least recently used prepared statements of one pooled connection, kept open across the sessions borrowing it.
+ * <p>
+ * Statements are keyed by the <code>prepareStatement</code> method called and its arguments: the sql, the
+ * result set type and concurrency, and the generated key columns. Closing a statement closes the result sets
+ * it returned, generated keys included, clears its parameters and batch, restores its fetch size, max rows and
+ * query timeout, and keeps it for the next caller preparing the same statement. Only idle statements are kept,
+ * at most <code>poolStatementCacheSize</code> of them: a statement prepared again while the cached one is in
+ * use is a miss, and the least recently used statement is closed when the cache is full.
+ * <p>
+ * Result sets are not wrapped: their <code>getStatement()</code> returns the driver's statement rather than
+ * the one handed out by the cache. It must not be closed, which would drop it from the cache.
+ *
+ * @since 3.4.6
+ */
+public class PooledStatementCache {
+
+  private static final Class<?>[] IFACES = new Class<?>[] { PreparedStatement.class };
+
+  private final int size;
+  private final PoolState poolState;
+  private final Map<StatementKey, CachedStatement> idleStatements;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  PooledStatementCache(int size, PoolState poolState) {
+    this.size = size;
+    this.poolState = poolState;
+    this.idleStatements = new LinkedHashMap<StatementKey, CachedStatement>(16, 0.75f, true);
+  }
+
+  PreparedStatement prepareStatement(PooledConnection conn, Method method, Object[] args) throws Throwable {
+    StatementKey key = new StatementKey(method, args);
+    CachedStatement statement;
+    synchronized (this) {
+      statement = idleStatements.remove(key);
+    }
+    if (statement != null) {
+      hitCount.incrementAndGet();
+      poolState.statementCacheHitCount.incrementAndGet();
+    } else {
+      missCount.incrementAndGet();
+      poolState.statementCacheMissCount.incrementAndGet();
+      try {
+        statement = new CachedStatement((PreparedStatement) method.invoke(conn.getRealConnection(), args));
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+    return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(), IFACES,
+        new StatementLease(key, statement, conn.getProxyConnection()));
+  }
+
+  private void release(StatementKey key, CachedStatement statement) {
+    try {
+      statement.reset();
+    } catch (SQLException e) {
+      statement.close();
+      return;
+    }
+    CachedStatement evicted = null;
+    synchronized (this) {
+      CachedStatement previous = idleStatements.put(key, statement);
+      if (previous != null) {
+        // the same statement was prepared twice at once, keep the last one
+        evicted = previous;
+      } else if (idleStatements.size() > size) {
+        Iterator<CachedStatement> iterator = idleStatements.values().iterator();
+        evicted = iterator.next();
+        iterator.remove();
+      }
+    }
+    if (evicted != null) {
+      evicted.close();
+    }
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public synchronized int getIdleStatementCount() {
+    return idleStatements.size();
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  private static class StatementKey {
+
+    private final Method method;
+    private final Object[] args;
+    private final int hashCode;
+
+    StatementKey(Method method, Object[] args) {
+      this.method = method;
+      this.args = args;
+      this.hashCode = 31 * method.hashCode() + Arrays.deepHashCode(args);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof StatementKey)) {
+        return false;
+      }
+      StatementKey other = (StatementKey) obj;
+      return hashCode == other.hashCode && method.equals(other.method) && Arrays.deepEquals(args, other.args);
+    }
+  }
+
+  private static class CachedStatement {
+
+    private final PreparedStatement statement;
+    private final int fetchSize;
+    private final int maxRows;
+    private final int queryTimeout;
+    // the last result set and generated keys returned, executing the statement again closes the previous ones
+    private ResultSet resultSet;
+    private ResultSet generatedKeys;
+
+    CachedStatement(PreparedStatement statement) throws SQLException {
+      this.statement = statement;
+      this.fetchSize = statement.getFetchSize();
+      this.maxRows = statement.getMaxRows();
+      this.queryTimeout = statement.getQueryTimeout();
+    }
+
+    void track(String methodName, ResultSet returned) {
+      if ("getGeneratedKeys".equals(methodName)) {
+        generatedKeys = returned;
+      } else {
+        resultSet = returned;
+      }
+    }
+
+    void reset() throws SQLException {
+      try {
+        closeResultSet(resultSet);
+        closeResultSet(generatedKeys);
+      } finally {
+        resultSet = null;
+        generatedKeys = null;
+      }
+      statement.clearParameters();
+      statement.clearBatch();
+      statement.clearWarnings();
+      statement.setFetchSize(fetchSize);
+      statement.setMaxRows(maxRows);
+      statement.setQueryTimeout(queryTimeout);
+    }
+
+    private static void closeResultSet(ResultSet returned) throws SQLException {
+      if (returned != null) {
+        returned.close();
+      }
+    }
+
+    void close() {
+      try {
+        statement.close();
+      } catch (SQLException e) {
+        // ignore
+      }
+    }
+  }
+
+  /*
+   * A statement handed out by the cache, returning it to the cache once closed.
+   */
+  private class StatementLease implements InvocationHandler {
+
+    private final StatementKey key;
+    private final CachedStatement statement;
+    private final Connection proxyConnection;
+    private boolean closed;
+
+    StatementLease(StatementKey key, CachedStatement statement, Connection proxyConnection) {
+      this.key = key;
+      this.statement = statement;
+      this.proxyConnection = proxyConnection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String methodName = method.getName();
+      if ("close".equals(methodName)) {
+        if (!closed) {
+          closed = true;
+          release(key, statement);
+        }
+        return null;
+      } else if ("isClosed".equals(methodName)) {
+        return closed || statement.statement.isClosed();
+      } else if ("getConnection".equals(methodName)) {
+        return proxyConnection;
+      } else if ("equals".equals(methodName) && method.getDeclaringClass().equals(Object.class)) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(methodName) && method.getDeclaringClass().equals(Object.class)) {
+        return System.identityHashCode(proxy);
+      }
+      if (closed && !Object.class.equals(method.getDeclaringClass())) {
+        throw new SQLException("Error accessing a cached PreparedStatement. Statement is closed.");
+      }
+      Object result;
+      try {
+        result = method.invoke(statement.statement, args);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+      if (result instanceof ResultSet) {
+        // executeQuery, getResultSet and getGeneratedKeys, closed before the statement is cached again
+        statement.track(methodName, (ResultSet) result);
+      }
+      return result;
+    }
+  }
+
+}
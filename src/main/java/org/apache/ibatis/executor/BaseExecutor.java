@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,6 +24,8 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.EvictionListener;
+import org.apache.ibatis.cache.impl.LocalCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.statement.StatementUtil;
@@ -65,8 +67,17 @@ public abstract class BaseExecutor implements Executor {
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<DeferredLoad>();
-    this.localCache = new PerpetualCache("LocalCache");
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
+    LocalCache boundedCache = new LocalCache("LocalCache");
+    boundedCache.setMaxEntries(configuration.getLocalCacheSize());
+    boundedCache.setMaxWeight(configuration.getLocalCacheMaxWeight());
+    boundedCache.setEvictionListener(new EvictionListener() {
+      @Override
+      public void onEviction(Object key) {
+        localOutputParameterCache.removeObject(key);
+      }
+    });
+    this.localCache = boundedCache;
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
@@ -150,9 +161,16 @@ public abstract class BaseExecutor implements Executor {
     try {
       queryStack++;
       list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      LocalCache boundedCache = asLocalCache();
       if (list != null) {
+        if (boundedCache != null) {
+          boundedCache.recordHit();
+        }
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
+        if (resultHandler == null && boundedCache != null) {
+          boundedCache.recordMiss();
+        }
         list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
       }
     } finally {
@@ -167,6 +185,12 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        LocalCache boundedCache = asLocalCache();
+        if (boundedCache != null && boundedCache.isBounded()) {
+          // the results of the statement are no longer needed by its deferred loads
+          boundedCache.evict();
+        }
       }
     }
     return list;
@@ -196,12 +220,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id, offset, limit, sql, parameters and environment id
+    CacheKey cacheKey = new CacheKey(parameterMappings.size() + 5);
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -233,6 +258,22 @@ public abstract class BaseExecutor implements Executor {
     return localCache.getObject(key) != null;
   }
 
+  /**
+   * Returns the first level cache, to bound it or read its hit and miss counts, or <code>null</code> when a
+   * subclass replaced it with another cache.
+   * @since 3.4.6
+   */
+  public LocalCache getLocalCache() {
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    return asLocalCache();
+  }
+
+  private LocalCache asLocalCache() {
+    return localCache instanceof LocalCache ? (LocalCache) localCache : null;
+  }
+
   @Override
   public void commit(boolean required) throws SQLException {
     if (closed) {
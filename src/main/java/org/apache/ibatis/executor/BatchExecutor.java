@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,12 +17,19 @@ package org.apache.ibatis.executor;
 
 import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.apache.ibatis.cache.Weigher;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
@@ -30,6 +37,14 @@ import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.parsing.MultiRowInsertSql;
+import org.apache.ibatis.parsing.SqlTableParser;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.BatchOptions;
+import org.apache.ibatis.session.BatchResultHandler;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -46,9 +61,35 @@ public class BatchExecutor extends BaseExecutor {
   private final List<BatchResult> batchResultList = new ArrayList<BatchResult>();
   private String currentSql;
   private MappedStatement currentStatement;
+  private final BatchOptions batchOptions;
+  // reordering only: index of the open batch of each mapped statement and sql, tables written and read by each batch
+  private final Map<BatchKey, Integer> openBatches = new HashMap<BatchKey, Integer>();
+  private final List<Set<String>> batchTables = new ArrayList<Set<String>>();
+  private final List<Set<String>> batchReadTables = new ArrayList<Set<String>>();
+  // reordering only: position of each table in the insert order
+  private final Map<String, Integer> insertOrder = new HashMap<String, Integer>();
+  // results of the automatic flushes, kept for the next flush when there is no result handler
+  private final List<BatchResult> flushedResults = new ArrayList<BatchResult>();
+  // multi row inserts only: parsed sql and bound sql of each row, null entries for jdbc batches
+  private final List<MultiRowInsertSql> multiRowInserts = new ArrayList<MultiRowInsertSql>();
+  private final List<List<BoundSql>> batchBoundSqls = new ArrayList<List<BoundSql>>();
+  private final Weigher weigher = new ObjectSizeWeigher();
+  private int batchedStatements;
+  private long batchedBytes;
 
   public BatchExecutor(Configuration configuration, Transaction transaction) {
+    this(configuration, transaction, configuration.newBatchOptions());
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public BatchExecutor(Configuration configuration, Transaction transaction, BatchOptions batchOptions) {
     super(configuration, transaction);
+    this.batchOptions = batchOptions;
+    for (String table : batchOptions.getInsertOrder()) {
+      insertOrder.put(SqlTableParser.normalizeTableName(table), insertOrder.size());
+    }
   }
 
   @Override
@@ -58,24 +99,58 @@ public class BatchExecutor extends BaseExecutor {
     final BoundSql boundSql = handler.getBoundSql();
     final String sql = boundSql.getSql();
     final Statement stmt;
-    if (sql.equals(currentSql) && ms.equals(currentStatement)) {
-      int last = statementList.size() - 1;
-      stmt = statementList.get(last);
-      applyTransactionTimeout(stmt);
-     handler.parameterize(stmt);//fix Issues 322
-      BatchResult batchResult = batchResultList.get(last);
+    final BatchResult batchResult;
+    int index = findOpenBatch(ms, sql);
+    if (index >= 0) {
+      stmt = statementList.get(index);
+      batchResult = batchResultList.get(index);
       batchResult.addParameterObject(parameterObject);
+      if (stmt == null) {
+        // multi row insert, bound when flushed
+        batchBoundSqls.get(index).add(boundSql);
+      } else {
+        applyTransactionTimeout(stmt);
+       handler.parameterize(stmt);//fix Issues 322
+      }
     } else {
-      Connection connection = getConnection(ms.getStatementLog());
-      stmt = handler.prepare(connection, transaction.getTimeout());
-      handler.parameterize(stmt);    //fix Issues 322
+      MultiRowInsertSql multiRowInsert = parseMultiRowInsert(ms, parameterObject, boundSql);
+      if (multiRowInsert == null) {
+        Connection connection = getConnection(ms.getStatementLog());
+        stmt = handler.prepare(connection, transaction.getTimeout());
+        handler.parameterize(stmt);    //fix Issues 322
+        batchBoundSqls.add(null);
+      } else {
+        stmt = null;
+        List<BoundSql> boundSqls = new ArrayList<BoundSql>();
+        boundSqls.add(boundSql);
+        batchBoundSqls.add(boundSqls);
+      }
       currentSql = sql;
       currentStatement = ms;
       statementList.add(stmt);
-      batchResultList.add(new BatchResult(ms, sql, parameterObject));
+      multiRowInserts.add(multiRowInsert);
+      batchResult = new BatchResult(ms, sql, parameterObject);
+      batchResultList.add(batchResult);
+      if (batchOptions.isReordering()) {
+        openBatches.put(new BatchKey(ms.getId(), sql), statementList.size() - 1);
+        batchTables.add(ms.getTables() != null ? ms.getTables() : SqlTableParser.findWrittenTables(sql));
+        batchReadTables.add(SqlTableParser.findReadTables(sql));
+      }
     }
   // handler.parameterize(stmt);
-    handler.batch(stmt);
+    if (stmt != null) {
+      handler.batch(stmt);
+    }
+    batchedStatements++;
+    if (batchOptions.getMaxBatchBytes() > 0) {
+      batchedBytes += weigher.weigh(null, parameterObject);
+    }
+    if (isFlushNeeded(batchResult)) {
+      List<BatchResult> results = doFlushStatements(false);
+      if (batchOptions.getResultHandler() == null) {
+        flushedResults.addAll(results);
+      }
+    }
     return BATCH_UPDATE_RETURN_VALUE;
   }
 
@@ -112,13 +187,19 @@ public class BatchExecutor extends BaseExecutor {
     try {
       List<BatchResult> results = new ArrayList<BatchResult>();
       if (isRollback) {
+        flushedResults.clear();
         return Collections.emptyList();
       }
       for (int i = 0, n = statementList.size(); i < n; i++) {
         Statement stmt = statementList.get(i);
-        applyTransactionTimeout(stmt);
         BatchResult batchResult = batchResultList.get(i);
         try {
+          if (stmt == null) {
+            batchResult.setUpdateCounts(executeMultiRowInsert(batchResult, multiRowInserts.get(i), batchBoundSqls.get(i)));
+            results.add(batchResult);
+            continue;
+          }
+          applyTransactionTimeout(stmt);
           batchResult.setUpdateCounts(stmt.executeBatch());
           MappedStatement ms = batchResult.getMappedStatement();
           List<Object> parameterObjects = batchResult.getParameterObjects();
@@ -149,6 +230,17 @@ public class BatchExecutor extends BaseExecutor {
         }
         results.add(batchResult);
       }
+      BatchResultHandler resultHandler = batchOptions.getResultHandler();
+      if (resultHandler != null) {
+        if (!results.isEmpty()) {
+          resultHandler.handleBatchResults(results);
+        }
+        return results;
+      }
+      if (!flushedResults.isEmpty()) {
+        results.addAll(0, flushedResults);
+        flushedResults.clear();
+      }
       return results;
     } finally {
       for (Statement stmt : statementList) {
@@ -157,6 +249,171 @@ public class BatchExecutor extends BaseExecutor {
       currentSql = null;
       statementList.clear();
       batchResultList.clear();
+      openBatches.clear();
+      batchTables.clear();
+      batchReadTables.clear();
+      multiRowInserts.clear();
+      batchBoundSqls.clear();
+      batchedStatements = 0;
+      batchedBytes = 0;
+    }
+  }
+
+  private MultiRowInsertSql parseMultiRowInsert(MappedStatement ms, Object parameterObject, BoundSql boundSql) {
+    if (!batchOptions.isMultiRowInsert()
+        || ms.getSqlCommandType() != SqlCommandType.INSERT
+        || ms.getStatementType() != StatementType.PREPARED) {
+      return null;
+    }
+    // the rows are bound one after the other by the DefaultParameterHandler, that plugins cannot intercept:
+    // plugins and custom parameter handlers need a statement per row
+    if (!configuration.getInterceptors().isEmpty()
+        || ms.getLang().createParameterHandler(ms, parameterObject, boundSql).getClass() != DefaultParameterHandler.class) {
+      return null;
+    }
+    // keys of other generators are processed statement by statement
+    Class<?> keyGeneratorType = ms.getKeyGenerator().getClass();
+    if (!NoKeyGenerator.class.equals(keyGeneratorType) && !Jdbc3KeyGenerator.class.equals(keyGeneratorType)) {
+      return null;
+    }
+    return MultiRowInsertSql.parse(boundSql.getSql());
+  }
+
+  /**
+   * Runs the rows of a batch as multi row inserts of at most <code>maxRowsPerInsert</code> rows and
+   * <code>maxBindParameters</code> parameters each.
+   */
+  private int[] executeMultiRowInsert(BatchResult batchResult, MultiRowInsertSql multiRowInsert, List<BoundSql> boundSqls)
+      throws SQLException {
+    MappedStatement ms = batchResult.getMappedStatement();
+    List<Object> parameterObjects = batchResult.getParameterObjects();
+    int rows = parameterObjects.size();
+    int parametersPerRow = boundSqls.get(0).getParameterMappings().size();
+    int chunkSize = batchOptions.getMaxRowsPerInsert() > 0 ? batchOptions.getMaxRowsPerInsert() : rows;
+    if (batchOptions.getMaxBindParameters() > 0 && parametersPerRow > 0) {
+      chunkSize = Math.min(chunkSize, Math.max(1, batchOptions.getMaxBindParameters() / parametersPerRow));
+    }
+    int[] updateCounts = new int[rows];
+    for (int start = 0; start < rows; start += chunkSize) {
+      int end = Math.min(rows, start + chunkSize);
+      BoundSql chunkSql = new BoundSql(configuration, multiRowInsert.getSql(end - start), Collections.<ParameterMapping>emptyList(), null);
+      StatementHandler handler = configuration.newStatementHandler(wrapper, ms, null, RowBounds.DEFAULT, null, chunkSql);
+      Statement stmt = handler.prepare(getConnection(ms.getStatementLog()), transaction.getTimeout());
+      try {
+        PreparedStatement ps = (PreparedStatement) stmt;
+        for (int row = start; row < end; row++) {
+          DefaultParameterHandler parameterHandler = (DefaultParameterHandler) ms.getLang().createParameterHandler(ms, parameterObjects.get(row), boundSqls.get(row));
+          parameterHandler.setParameters(ps, 1 + (row - start) * parametersPerRow);
+        }
+        int count = ps.executeUpdate();
+        Arrays.fill(updateCounts, start, end, count == end - start ? 1 : Statement.SUCCESS_NO_INFO);
+        if (Jdbc3KeyGenerator.class.equals(ms.getKeyGenerator().getClass())) {
+          ((Jdbc3KeyGenerator) ms.getKeyGenerator()).processBatch(ms, stmt, parameterObjects.subList(start, end));
+        }
+      } catch (SQLException e) {
+        throw new BatchUpdateException(e.getMessage(), e.getSQLState(), e.getErrorCode(), Arrays.copyOf(updateCounts, start), e);
+      } finally {
+        closeStatement(stmt);
+      }
+    }
+    return updateCounts;
+  }
+
+  private boolean isFlushNeeded(BatchResult batchResult) {
+    return (batchOptions.getMaxBatchRows() > 0 && batchResult.getParameterObjects().size() >= batchOptions.getMaxBatchRows())
+        || (batchOptions.getMaxBatchedStatements() > 0 && batchedStatements >= batchOptions.getMaxBatchedStatements())
+        || (batchOptions.getMaxBatchBytes() > 0 && batchedBytes >= batchOptions.getMaxBatchBytes());
+  }
+
+  /**
+   * Returns the index of the batch the statement can be added to, -1 if a new batch must be opened.
+   */
+  private int findOpenBatch(MappedStatement ms, String sql) {
+    if (!batchOptions.isReordering()) {
+      return sql.equals(currentSql) && ms.equals(currentStatement) ? statementList.size() - 1 : -1;
+    }
+    Integer index = openBatches.get(new BatchKey(ms.getId(), sql));
+    if (index == null) {
+      return -1;
+    }
+    // the statement will run before those of the later batches: none of them may write a table it reads or
+    // writes, or read a table it writes, and their rows may be referenced by the statement
+    Set<String> written = batchTables.get(index);
+    Set<String> read = batchReadTables.get(index);
+    for (int i = index + 1; i < batchTables.size(); i++) {
+      if (overlaps(written, batchTables.get(i))
+          || overlaps(written, batchReadTables.get(i))
+          || overlaps(read, batchTables.get(i))
+          || !canRunBefore(index, i)) {
+        return -1;
+      }
+    }
+    return index;
+  }
+
+  /*
+   * Whether the rows of a batch can be written before those of a later batch writing other tables:
+   * only inserts whose tables all come first in the insert order.
+   */
+  private boolean canRunBefore(int index, int laterIndex) {
+    Set<String> laterTables = batchTables.get(laterIndex);
+    if (laterTables.isEmpty()) {
+      return true;
+    }
+    if (batchResultList.get(index).getMappedStatement().getSqlCommandType() != SqlCommandType.INSERT
+        || batchResultList.get(laterIndex).getMappedStatement().getSqlCommandType() != SqlCommandType.INSERT) {
+      return false;
+    }
+    for (String table : batchTables.get(index)) {
+      Integer position = insertOrder.get(table);
+      for (String laterTable : laterTables) {
+        Integer laterPosition = insertOrder.get(laterTable);
+        if (position == null || laterPosition == null || position >= laterPosition) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private static boolean overlaps(Set<String> tables, Set<String> otherTables) {
+    if (tables == null || otherTables == null) {
+      // unknown tables
+      return true;
+    }
+    for (String table : tables) {
+      if (otherTables.contains(table)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static class BatchKey {
+
+    private final String statementId;
+    private final String sql;
+
+    BatchKey(String statementId, String sql) {
+      this.statementId = statementId;
+      this.sql = sql;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof BatchKey)) {
+        return false;
+      }
+      BatchKey other = (BatchKey) o;
+      return statementId.equals(other.statementId) && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * statementId.hashCode() + sql.hashCode();
     }
   }
 
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,16 +17,21 @@ package org.apache.ibatis.executor;
 
 import java.sql.SQLException;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.cache.TransactionalCacheManager;
+import org.apache.ibatis.cache.impl.LocalCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.parsing.SqlTableParser;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -40,10 +45,18 @@ import org.apache.ibatis.transaction.Transaction;
 public class CachingExecutor implements Executor {
 
   private final Executor delegate;
-  private final TransactionalCacheManager tcm = new TransactionalCacheManager();
+  private final TransactionalCacheManager tcm;
 
   public CachingExecutor(Executor delegate) {
+    this(delegate, null);
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public CachingExecutor(Executor delegate, CacheInvalidationBus invalidationBus) {
     this.delegate = delegate;
+    this.tcm = new TransactionalCacheManager(invalidationBus);
     delegate.setExecutorWrapper(this);
   }
 
@@ -73,7 +86,7 @@ public class CachingExecutor implements Executor {
 
   @Override
   public int update(MappedStatement ms, Object parameterObject) throws SQLException {
-    flushCacheIfRequired(ms);
+    flushCacheIfRequired(ms, ms.getTables());
     return delegate.update(ms, parameterObject);
   }
 
@@ -101,8 +114,10 @@ public class CachingExecutor implements Executor {
         @SuppressWarnings("unchecked")
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
+          long start = System.nanoTime();
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
-          tcm.putObject(cache, key, list); // issue #578 and #116
+          recordLoad(ms, cache, System.nanoTime() - start);
+          tcm.putObject(cache, key, list, getReadTables(ms, boundSql)); // issue #578 and #116
         }
         return list;
       }
@@ -132,6 +147,13 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private void recordLoad(MappedStatement ms, Cache cache, long nanos) {
+    CacheStatistics statistics = ms.getConfiguration().getCacheStatistics(cache.getId());
+    if (statistics != null) {
+      statistics.recordLoad(nanos);
+    }
+  }
+
   private void ensureNoOutParams(MappedStatement ms, BoundSql boundSql) {
     if (ms.getStatementType() == StatementType.CALLABLE) {
       for (ParameterMapping parameterMapping : boundSql.getParameterMappings()) {
@@ -162,6 +184,14 @@ public class CachingExecutor implements Executor {
     delegate.clearLocalCache();
   }
 
+  /**
+   * Returns the first level cache of the delegate, or <code>null</code> if it does not extend {@link BaseExecutor}.
+   * @since 3.4.6
+   */
+  public LocalCache getLocalCache() {
+    return delegate instanceof BaseExecutor ? ((BaseExecutor) delegate).getLocalCache() : null;
+  }
+
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {      
@@ -169,6 +199,20 @@ public class CachingExecutor implements Executor {
     }
   }
 
+  private void flushCacheIfRequired(MappedStatement ms, Set<String> tables) {
+    Cache cache = ms.getCache();
+    if (cache != null && ms.isFlushCacheRequired()) {
+      tcm.clear(cache, tables);
+    }
+  }
+
+  private Set<String> getReadTables(MappedStatement ms, BoundSql boundSql) {
+    if (ms.getTables() != null) {
+      return ms.getTables();
+    }
+    return ms.getConfiguration().isDeriveCacheTables() ? SqlTableParser.findReadTables(boundSql.getSql()) : null;
+  }
+
   @Override
   public void setExecutorWrapper(Executor executor) {
     throw new UnsupportedOperationException("This method should not be called");
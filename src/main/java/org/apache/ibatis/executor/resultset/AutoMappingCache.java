@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * Keeps the automatic mappings of the unmapped columns across executions, so that resolving the properties and
+ * type handlers of a result map is done once per shape of result set (column labels, JDBC types and classes)
+ * instead of once per query.
+ * <p>
+ * The cache is bounded: once it holds <code>maxSize</code> entries, other shapes are resolved on every query.
+ *
+ * @since 3.4.6
+ */
+public class AutoMappingCache {
+
+  private final int maxSize;
+  private final ConcurrentMap<Key, List<UnMappedColumnAutoMapping>> entries = new ConcurrentHashMap<Key, List<UnMappedColumnAutoMapping>>();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public AutoMappingCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  List<UnMappedColumnAutoMapping> get(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> resultType, boolean mapUnderscoreToCamelCase) {
+    if (maxSize <= 0) {
+      return null;
+    }
+    List<UnMappedColumnAutoMapping> autoMapping = entries.get(new Key(rsw, resultMap, columnPrefix, resultType, mapUnderscoreToCamelCase));
+    if (autoMapping == null) {
+      misses.incrementAndGet();
+    } else {
+      hits.incrementAndGet();
+    }
+    return autoMapping;
+  }
+
+  void put(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> resultType, boolean mapUnderscoreToCamelCase,
+      List<UnMappedColumnAutoMapping> autoMapping) {
+    if (entries.size() < maxSize) {
+      entries.put(new Key(rsw, resultMap, columnPrefix, resultType, mapUnderscoreToCamelCase), autoMapping);
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public int getSize() {
+    return entries.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void clear() {
+    entries.clear();
+  }
+
+  private static class Key {
+
+    private final String resultMapId;
+    private final String columnPrefix;
+    private final Class<?> resultType;
+    private final boolean mapUnderscoreToCamelCase;
+    private final List<String> columnNames;
+    private final List<JdbcType> jdbcTypes;
+    private final List<String> classNames;
+    private final int hashCode;
+
+    Key(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, Class<?> resultType, boolean mapUnderscoreToCamelCase) {
+      this.resultMapId = resultMap.getId();
+      this.columnPrefix = columnPrefix;
+      this.resultType = resultType;
+      this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+      this.columnNames = rsw.getColumnNames();
+      this.jdbcTypes = rsw.getJdbcTypes();
+      this.classNames = rsw.getClassNames();
+      int hash = resultMapId.hashCode();
+      hash = 31 * hash + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+      hash = 31 * hash + resultType.hashCode();
+      hash = 31 * hash + columnNames.hashCode();
+      hash = 31 * hash + jdbcTypes.hashCode();
+      this.hashCode = 31 * hash + classNames.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return hashCode == other.hashCode
+          && resultType == other.resultType
+          && mapUnderscoreToCamelCase == other.mapUnderscoreToCamelCase
+          && resultMapId.equals(other.resultMapId)
+          && (columnPrefix == null ? other.columnPrefix == null : columnPrefix.equals(other.columnPrefix))
+          && columnNames.equals(other.columnNames)
+          && jdbcTypes.equals(other.jdbcTypes)
+          && classNames.equals(other.classNames);
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -45,6 +45,8 @@ import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.LongTypeHandler;
 import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
@@ -54,6 +56,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -83,9 +86,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final ReflectorFactory reflectorFactory;
 
   // nested resultmaps
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
+  private Map<CacheKey, Object> nestedResultObjects = new HashMap<CacheKey, Object>();
   private final Map<String, Object> ancestorObjects = new HashMap<String, Object>();
   private Object previousRowValue;
+  private CacheKey previousRowKey;
+  private int maxRetainedNestedResultObjects;
 
   // multiple resultsets
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<String, ResultMapping>();
@@ -104,20 +109,6 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
-  private static class UnMappedColumnAutoMapping {
-    private final String column;
-    private final String property;
-    private final TypeHandler<?> typeHandler;
-    private final boolean primitive;
-
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
-      this.column = column;
-      this.property = property;
-      this.typeHandler = typeHandler;
-      this.primitive = primitive;
-    }
-  }
-
   public DefaultResultSetHandler(Executor executor, MappedStatement mappedStatement, ParameterHandler parameterHandler, ResultHandler<?> resultHandler, BoundSql boundSql,
                                  RowBounds rowBounds) {
     this.executor = executor;
@@ -162,7 +153,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     try {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = newResultSetWrapper(rs);
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         handleRowValues(rsw, resultMap, resultHandler, new RowBounds(), null);
@@ -249,7 +240,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
     }
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? newResultSetWrapper(rs) : null;
   }
 
   private ResultSetWrapper getNextResultSet(Statement stmt) throws SQLException {
@@ -262,7 +253,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (rs == null) {
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return newResultSetWrapper(rs);
           }
         }
       }
@@ -272,6 +263,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return null;
   }
 
+  private ResultSetWrapper newResultSetWrapper(ResultSet rs) throws SQLException {
+    // the automatic mappings hold column indexes that are only valid for one result set
+    autoMappingsCache.clear();
+    return new ResultSetWrapper(rs, configuration);
+  }
+
   private void closeResultSet(ResultSet rs) {
     try {
       if (rs != null) {
@@ -350,13 +347,39 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       throws SQLException {
     DefaultResultContext<Object> resultContext = new DefaultResultContext<Object>();
     skipRows(rsw.getResultSet(), rowBounds);
+    // the first row goes through the regular mapping, which also resolves the automatic mappings of the result set
+    boolean generateRowMapper = configuration.isRowMapperGenerationEnabled() && resultMap.getDiscriminator() == null;
+    RowMapper rowMapper = null;
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
-      ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
-      Object rowValue = getRowValue(rsw, discriminatedResultMap);
+      Object rowValue;
+      if (rowMapper != null) {
+        rowValue = rowMapper.map(rsw.getResultSet());
+      } else {
+        ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
+        rowValue = getRowValue(rsw, discriminatedResultMap);
+        if (generateRowMapper) {
+          rowMapper = createRowMapper(rsw, resultMap);
+          generateRowMapper = false;
+        }
+      }
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
     }
   }
 
+  private RowMapper createRowMapper(ResultSetWrapper rsw, ResultMap resultMap) throws SQLException {
+    if (useConstructorMappings || hasTypeHandlerForResultObject(rsw, resultMap.getType())) {
+      return null;
+    }
+    List<UnMappedColumnAutoMapping> autoMapping = Collections.emptyList();
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      autoMapping = autoMappingsCache.get(resultMap.getId() + ":" + null);
+      if (autoMapping == null) {
+        return null;
+      }
+    }
+    return configuration.getRowMapperGenerator().newRowMapper(configuration, rsw, resultMap, autoMapping);
+  }
+
   private void storeObject(ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, Object rowValue, ResultMapping parentMapping, ResultSet rs) throws SQLException {
     if (parentMapping != null) {
       linkToParents(rs, parentMapping, rowValue);
@@ -425,19 +448,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
       throws SQLException {
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    final int[] columnIndexes = rsw.getPropertyMappingColumnIndexes(resultMap, columnPrefix);
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0; i < columnIndexes.length; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
       if (propertyMapping.isCompositeResult()
-          || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH)))
+          || columnIndexes[i] > 0
           || propertyMapping.getResultSet() != null) {
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndexes[i]);
         // issue #541 make property optional
         final String property = propertyMapping.getProperty();
         if (property == null) {
@@ -458,8 +477,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return foundValues;
   }
 
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-      throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+      int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) {
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {
@@ -467,6 +486,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       return DEFERED;
     } else {
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0 && configuration.isColumnIndexMappingEnabled()) {
+        return typeHandler.getResult(rs, columnIndex);
+      }
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       return typeHandler.getResult(rs, column);
     }
@@ -476,35 +498,21 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     final String mapKey = resultMap.getId() + ":" + columnPrefix;
     List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
     if (autoMapping == null) {
-      autoMapping = new ArrayList<UnMappedColumnAutoMapping>();
-      final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
-      for (String columnName : unmappedColumnNames) {
-        String propertyName = columnName;
-        if (columnPrefix != null && !columnPrefix.isEmpty()) {
-          // When columnPrefix is specified,
-          // ignore columns without the prefix.
-          if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
-            propertyName = columnName.substring(columnPrefix.length());
-          } else {
-            continue;
-          }
-        }
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
-        if (property != null && metaObject.hasSetter(property)) {
-          if (resultMap.getMappedProperties().contains(property)) {
-            continue;
-          }
-          final Class<?> propertyType = metaObject.getSetterType(property);
-          if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
-            final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
-          } else {
-            configuration.getAutoMappingUnknownColumnBehavior()
-                .doAction(mappedStatement, columnName, property, propertyType);
-          }
-        } else {
+      final AutoMappingCache sharedCache = configuration.getAutoMappingCache();
+      final Class<?> resultType = metaObject.getOriginalObject().getClass();
+      final boolean mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+      List<UnMappedColumnAutoMapping> columnMappings = sharedCache.get(rsw, resultMap, columnPrefix, resultType, mapUnderscoreToCamelCase);
+      if (columnMappings == null) {
+        columnMappings = resolveAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
+        sharedCache.put(rsw, resultMap, columnPrefix, resultType, mapUnderscoreToCamelCase, columnMappings);
+      }
+      autoMapping = new ArrayList<UnMappedColumnAutoMapping>(columnMappings.size());
+      for (UnMappedColumnAutoMapping columnMapping : columnMappings) {
+        if (columnMapping.isUnknownColumn()) {
           configuration.getAutoMappingUnknownColumnBehavior()
-              .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
+              .doAction(mappedStatement, columnMapping.column, columnMapping.property, columnMapping.propertyType);
+        } else {
+          autoMapping.add(columnMapping);
         }
       }
       autoMappingsCache.put(mapKey, autoMapping);
@@ -512,12 +520,52 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return autoMapping;
   }
 
+  /*
+   * Resolves the property and type handler of each unmapped column, including the columns that cannot be mapped
+   * so that the unknown column behavior is applied on every execution.
+   */
+  private List<UnMappedColumnAutoMapping> resolveAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
+    final List<UnMappedColumnAutoMapping> autoMapping = new ArrayList<UnMappedColumnAutoMapping>();
+    final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
+    for (String columnName : unmappedColumnNames) {
+      String propertyName = columnName;
+      if (columnPrefix != null && !columnPrefix.isEmpty()) {
+        // When columnPrefix is specified,
+        // ignore columns without the prefix.
+        if (columnName.toUpperCase(Locale.ENGLISH).startsWith(columnPrefix)) {
+          propertyName = columnName.substring(columnPrefix.length());
+        } else {
+          continue;
+        }
+      }
+      final int columnIndex = rsw.getColumnIndex(columnName);
+      final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+      if (property != null && metaObject.hasSetter(property)) {
+        if (resultMap.getMappedProperties().contains(property)) {
+          continue;
+        }
+        final Class<?> propertyType = metaObject.getSetterType(property);
+        if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
+          final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
+          autoMapping.add(new UnMappedColumnAutoMapping(columnName, columnIndex, property, propertyType, typeHandler));
+        } else {
+          autoMapping.add(new UnMappedColumnAutoMapping(columnName, columnIndex, property, propertyType, null));
+        }
+      } else {
+        autoMapping.add(new UnMappedColumnAutoMapping(columnName, columnIndex, (property != null) ? property : propertyName, null, null));
+      }
+    }
+    return autoMapping;
+  }
+
   private boolean applyAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
     List<UnMappedColumnAutoMapping> autoMapping = createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix);
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = configuration.isColumnIndexMappingEnabled()
+            ? mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex)
+            : mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
         if (value != null) {
           foundValues = true;
         }
@@ -869,15 +917,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     while (shouldProcessMoreRows(resultContext, rowBounds) && rsw.getResultSet().next()) {
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(rsw.getResultSet(), resultMap, null);
       final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
-      Object partialObject = nestedResultObjects.get(rowKey);
       // issue #577 && #542
       if (mappedStatement.isResultOrdered()) {
-        if (partialObject == null && rowValue != null) {
-          nestedResultObjects.clear();
-          storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+        // rows of a parent are consecutive: a key change completes the previous object graph, which is released
+        Object partialObject = isSameParent(rowKey) ? rowValue : null;
+        if (partialObject == null) {
+          releaseNestedResultObjects();
+          if (rowValue != null) {
+            storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
+          }
         }
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
+        previousRowKey = rowKey;
       } else {
+        Object partialObject = nestedResultObjects.get(rowKey);
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
         if (partialObject == null) {
           storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
@@ -887,11 +940,37 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, rsw.getResultSet());
       previousRowValue = null;
+      previousRowKey = null;
     } else if (rowValue != null) {
       previousRowValue = rowValue;
     }
   }
 
+  private boolean isSameParent(CacheKey rowKey) {
+    return rowKey != CacheKey.NULL_CACHE_KEY && rowKey.equals(previousRowKey);
+  }
+
+  private void releaseNestedResultObjects() {
+    if (nestedResultObjects.size() > 256) {
+      // clear() would keep the grown table and walk it for every following parent
+      nestedResultObjects = new HashMap<CacheKey, Object>();
+    } else {
+      nestedResultObjects.clear();
+    }
+  }
+
+  /**
+   * Returns the highest number of objects this handler held at once to merge the rows of nested result maps.
+   * <p>
+   * Unless the statement is <code>resultOrdered</code>, every object of a result set is held until the result set
+   * is fully read; ordered statements only hold the objects of the current parent.
+   *
+   * @since 3.4.6
+   */
+  public int getMaxRetainedNestedResultObjects() {
+    return maxRetainedNestedResultObjects;
+  }
+
   //
   // GET VALUE FROM ROW FOR NESTED RESULT MAP
   //
@@ -922,6 +1001,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       if (combinedKey != CacheKey.NULL_CACHE_KEY) {
         nestedResultObjects.put(combinedKey, rowValue);
+        if (nestedResultObjects.size() > maxRetainedNestedResultObjects) {
+          maxRetainedNestedResultObjects = nestedResultObjects.size();
+        }
       }
     }
     return rowValue;
@@ -1017,9 +1099,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    cacheKey.update(resultMap.getId());
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    // the result map id, then a column and a value per mapping
+    final CacheKey cacheKey = new CacheKey(1 + 2 * resultMappings.size());
+    cacheKey.update(resultMap.getId());
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         createRowKeyForMap(rsw, cacheKey);
@@ -1067,19 +1150,54 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       } else if (resultMapping.getNestedQueryId() == null) {
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
         final TypeHandler<?> th = resultMapping.getTypeHandler();
-        List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
-        if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+        final int columnIndex = column == null ? 0 : rsw.getColumnIndex(column);
+        if (columnIndex > 0) {
+          updateRowKey(rsw.getResultSet(), cacheKey, column, columnIndex, th);
         }
       }
     }
   }
 
+  /*
+   * When reading by column index, integer and long ids are read as primitives, which CacheKey stores without boxing them.
+   */
+  private void updateRowKey(ResultSet rs, CacheKey cacheKey, String column, int columnIndex, TypeHandler<?> th) throws SQLException {
+    if (!configuration.isColumnIndexMappingEnabled()) {
+      final Object value = th.getResult(rs, column);
+      if (value != null) {
+        cacheKey.update(column);
+        cacheKey.update(value);
+        return;
+      }
+    } else if (th.getClass() == IntegerTypeHandler.class) {
+      final int value = rs.getInt(columnIndex);
+      if (value != 0 || !rs.wasNull()) {
+        cacheKey.update(column);
+        cacheKey.update(value);
+        return;
+      }
+    } else if (th.getClass() == LongTypeHandler.class) {
+      final long value = rs.getLong(columnIndex);
+      if (value != 0 || !rs.wasNull()) {
+        cacheKey.update(column);
+        cacheKey.update(value);
+        return;
+      }
+    } else {
+      final Object value = th.getResult(rs, columnIndex);
+      if (value != null) {
+        cacheKey.update(column);
+        cacheKey.update(value);
+        return;
+      }
+    }
+    if (configuration.isReturnInstanceForEmptyRow()) {
+      cacheKey.update(column);
+      cacheKey.update(null);
+    }
+  }
+
   private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
@@ -1094,7 +1212,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         }
       }
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
+        String value = configuration.isColumnIndexMappingEnabled()
+            ? rsw.getResultSet().getString(rsw.getColumnIndex(column))
+            : rsw.getResultSet().getString(column);
         if (value != null) {
           cacheKey.update(column);
           cacheKey.update(value);
@@ -1106,7 +1226,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
     List<String> columnNames = rsw.getColumnNames();
     for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
+      final String value = configuration.isColumnIndexMappingEnabled()
+          ? rsw.getResultSet().getString(rsw.getColumnIndex(columnName))
+          : rsw.getResultSet().getString(columnName);
       if (value != null) {
         cacheKey.update(columnName);
         cacheKey.update(value);
@@ -28,6 +28,7 @@ import java.util.Map;
 import java.util.Set;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.ObjectTypeHandler;
@@ -45,9 +46,11 @@ public class ResultSetWrapper {
   private final List<String> columnNames = new ArrayList<String>();
   private final List<String> classNames = new ArrayList<String>();
   private final List<JdbcType> jdbcTypes = new ArrayList<JdbcType>();
+  private final Map<String, Integer> columnIndexMap = new HashMap<String, Integer>();
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  private final Map<String, int[]> propertyMappingColumnIndexesMap = new HashMap<String, int[]>();
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -56,9 +59,15 @@ public class ResultSetWrapper {
     final ResultSetMetaData metaData = rs.getMetaData();
     final int columnCount = metaData.getColumnCount();
     for (int i = 1; i <= columnCount; i++) {
-      columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
+      String columnName = configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i);
+      columnNames.add(columnName);
       jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
       classNames.add(metaData.getColumnClassName(i));
+      // like ResultSet#findColumn(), a name refers to the first column with that name
+      String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      if (!columnIndexMap.containsKey(upperColumnName)) {
+        columnIndexMap.put(upperColumnName, i);
+      }
     }
   }
 
@@ -74,13 +83,54 @@ public class ResultSetWrapper {
     return Collections.unmodifiableList(classNames);
   }
 
+  /**
+   * @since 3.4.6
+   */
+  public List<JdbcType> getJdbcTypes() {
+    return Collections.unmodifiableList(jdbcTypes);
+  }
+
   public JdbcType getJdbcType(String columnName) {
-    for (int i = 0 ; i < columnNames.size(); i++) {
-      if (columnNames.get(i).equalsIgnoreCase(columnName)) {
-        return jdbcTypes.get(i);
+    int columnIndex = getColumnIndex(columnName);
+    return columnIndex == 0 ? null : jdbcTypes.get(columnIndex - 1);
+  }
+
+  /**
+   * Gets the index of a column, so that values can be read without the driver looking up the name on every row.
+   *
+   * @param columnName the column name, case insensitive
+   * @return the 1-based index of the first column with that name, 0 if there is none
+   * @since 3.4.6
+   */
+  public int getColumnIndex(String columnName) {
+    Integer columnIndex = columnIndexMap.get(columnName.toUpperCase(Locale.ENGLISH));
+    return columnIndex == null ? 0 : columnIndex;
+  }
+
+  /**
+   * Gets the columns read by the property mappings of a result map.
+   *
+   * @return for each of the {@link ResultMap#getPropertyResultMappings()}, the index of its column (with the prefix)
+   *     or 0 if the mapping has no column in this result set
+   * @since 3.4.6
+   */
+  public int[] getPropertyMappingColumnIndexes(ResultMap resultMap, String columnPrefix) {
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    int[] columnIndexes = propertyMappingColumnIndexesMap.get(mapKey);
+    if (columnIndexes == null) {
+      final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+      columnIndexes = new int[propertyMappings.size()];
+      for (int i = 0; i < columnIndexes.length; i++) {
+        final ResultMapping propertyMapping = propertyMappings.get(i);
+        final String column = propertyMapping.getColumn();
+        // the user added a column attribute to a nested result map, ignore it
+        if (column != null && propertyMapping.getNestedResultMapId() == null) {
+          columnIndexes[i] = getColumnIndex(columnPrefix == null || column.isEmpty() ? column : columnPrefix + column);
+        }
       }
+      propertyMappingColumnIndexesMap.put(mapKey, columnIndexes);
     }
-    return null;
+    return columnIndexes;
   }
 
   /**
@@ -0,0 +1,67 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Base class of the row mappers generated by {@link RowMapperGenerator}.
+ * <p>
+ * Subclasses read the columns by index through the type handlers and call the setters of the result object directly,
+ * the same way <code>DefaultResultSetHandler</code> maps a row of a flat result map.
+ *
+ * @since 3.4.6
+ */
+public abstract class RowMapper {
+
+  protected Configuration configuration;
+  protected Class<?> resultType;
+  protected TypeHandler<?>[] typeHandlers;
+  protected int[] columnIndexes;
+
+  protected RowMapper() {
+  }
+
+  void init(Configuration configuration, Class<?> resultType, TypeHandler<?>[] typeHandlers, int[] columnIndexes) {
+    this.configuration = configuration;
+    this.resultType = resultType;
+    this.typeHandlers = typeHandlers;
+    this.columnIndexes = columnIndexes;
+  }
+
+  public Object map(ResultSet rs) throws SQLException {
+    Object rowValue = newInstance();
+    boolean foundValues;
+    try {
+      foundValues = setProperties(rowValue, rs, configuration.isCallSettersOnNulls());
+    } catch (ClassCastException e) {
+      throw new ExecutorException("Could not map a row to " + resultType + ".  Cause: " + e, e);
+    }
+    return foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
+  }
+
+  protected Object newInstance() {
+    return configuration.getObjectFactory().create(resultType);
+  }
+
+  protected abstract boolean setProperties(Object rowValue, ResultSet rs, boolean callSettersOnNulls) throws SQLException;
+
+}
@@ -0,0 +1,346 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.ProtectionDomain;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * Generates, with javassist, a {@link RowMapper} class per result type and list of mapped properties, so that the rows
+ * of flat result maps (no nested result maps, nested queries, discriminator or constructor mappings) are mapped
+ * without going through <code>MetaObject</code>.
+ * <p>
+ * Result types that are not public, properties without a single public setter and class loaders that cannot see
+ * MyBatis fall back to the regular mapping. The generator is bounded: once it holds <code>maxSize</code> classes,
+ * other result maps use the regular mapping.
+ *
+ * @since 3.4.6
+ */
+public class RowMapperGenerator {
+
+  private static final Log log = LogFactory.getLog(RowMapperGenerator.class);
+
+  private static final Object UNSUPPORTED = new Object();
+  private static final AtomicInteger COUNTER = new AtomicInteger();
+
+  private final int maxSize;
+  private final ConcurrentMap<Key, Object> rowMapperClasses = new ConcurrentHashMap<Key, Object>();
+
+  public RowMapperGenerator(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /*
+   * Returns null when the result map cannot be mapped by a generated class.
+   */
+  RowMapper newRowMapper(Configuration configuration, ResultSetWrapper rsw, ResultMap resultMap,
+      List<UnMappedColumnAutoMapping> autoMappings) throws SQLException {
+    if (!isFlat(configuration, resultMap)) {
+      return null;
+    }
+    final List<String> properties = new ArrayList<String>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<TypeHandler<?>>();
+    final List<Integer> columnIndexes = new ArrayList<Integer>();
+    for (UnMappedColumnAutoMapping autoMapping : autoMappings) {
+      properties.add(autoMapping.property);
+      typeHandlers.add(autoMapping.typeHandler);
+      columnIndexes.add(autoMapping.columnIndex);
+    }
+    final int[] propertyMappingColumnIndexes = rsw.getPropertyMappingColumnIndexes(resultMap, null);
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    for (int i = 0; i < propertyMappingColumnIndexes.length; i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      if (propertyMappingColumnIndexes[i] > 0 && propertyMapping.getProperty() != null) {
+        properties.add(propertyMapping.getProperty());
+        typeHandlers.add(propertyMapping.getTypeHandler());
+        columnIndexes.add(propertyMappingColumnIndexes[i]);
+      }
+    }
+    final Class<?> resultType = resultMap.getType();
+    final boolean directInstantiation = configuration.getObjectFactory().getClass() == DefaultObjectFactory.class;
+    final Class<?> rowMapperClass = getRowMapperClass(resultType, properties, directInstantiation);
+    if (rowMapperClass == null) {
+      return null;
+    }
+    final RowMapper rowMapper;
+    try {
+      rowMapper = (RowMapper) rowMapperClass.newInstance();
+    } catch (Exception e) {
+      throw new ExecutorException("Error instantiating " + rowMapperClass + ".  Cause: " + e, e);
+    }
+    final int[] indexes = new int[columnIndexes.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = columnIndexes.get(i);
+    }
+    rowMapper.init(configuration, resultType, typeHandlers.toArray(new TypeHandler<?>[typeHandlers.size()]), indexes);
+    return rowMapper;
+  }
+
+  public int getSize() {
+    return rowMapperClasses.size();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void clear() {
+    rowMapperClasses.clear();
+  }
+
+  private boolean isFlat(Configuration configuration, ResultMap resultMap) {
+    if (resultMap.getDiscriminator() != null
+        || resultMap.hasNestedResultMaps()
+        || resultMap.hasNestedQueries()
+        || !resultMap.getConstructorResultMappings().isEmpty()
+        || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return false;
+    }
+    for (ResultMapping propertyMapping : resultMap.getPropertyResultMappings()) {
+      if (propertyMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Class<?> getRowMapperClass(Class<?> resultType, List<String> properties, boolean directInstantiation) {
+    final Key key = new Key(resultType, properties, directInstantiation);
+    Object rowMapperClass = rowMapperClasses.get(key);
+    if (rowMapperClass == null) {
+      if (rowMapperClasses.size() >= maxSize) {
+        return null;
+      }
+      rowMapperClass = generate(resultType, properties, directInstantiation);
+      final Object previous = rowMapperClasses.putIfAbsent(key, rowMapperClass);
+      if (previous != null) {
+        rowMapperClass = previous;
+      }
+    }
+    return rowMapperClass == UNSUPPORTED ? null : (Class<?>) rowMapperClass;
+  }
+
+  private Object generate(Class<?> resultType, List<String> properties, boolean directInstantiation) {
+    final ClassLoader classLoader = resultType.getClassLoader();
+    if (!isSupportedType(resultType) || !canSeeRowMapper(classLoader)) {
+      return UNSUPPORTED;
+    }
+    final StringBuilder source = new StringBuilder();
+    source.append("protected boolean setProperties(Object rowValue, java.sql.ResultSet rs, boolean callSettersOnNulls)")
+        .append(" throws java.sql.SQLException {\n");
+    source.append(resultType.getName()).append(" target = (").append(resultType.getName()).append(") rowValue;\n");
+    source.append("boolean foundValues = false;\n");
+    source.append("Object value;\n");
+    for (int i = 0; i < properties.size(); i++) {
+      final Method setter = findSetter(resultType, properties.get(i));
+      if (setter == null) {
+        return UNSUPPORTED;
+      }
+      final Class<?> parameterType = setter.getParameterTypes()[0];
+      source.append("value = typeHandlers[").append(i).append("].getResult(rs, columnIndexes[").append(i).append("]);\n");
+      source.append("if (value != null) {\n");
+      source.append("foundValues = true;\n");
+      source.append("target.").append(setter.getName()).append('(').append(unbox(parameterType, "value")).append(");\n");
+      source.append('}');
+      if (!parameterType.isPrimitive()) {
+        source.append(" else if (callSettersOnNulls) {\n");
+        source.append("target.").append(setter.getName()).append("((").append(sourceName(parameterType)).append(") null);\n");
+        source.append('}');
+      }
+      source.append('\n');
+    }
+    source.append("return foundValues;\n}");
+
+    final String className = resultType.getName() + "$$RowMapper$$" + COUNTER.incrementAndGet();
+    try {
+      final ClassPool pool = new ClassPool(false);
+      pool.appendClassPath(new LoaderClassPath(classLoader));
+      pool.appendClassPath(new ClassClassPath(RowMapper.class));
+      pool.appendSystemPath();
+      final CtClass ctClass = pool.makeClass(className, pool.get(RowMapper.class.getName()));
+      ctClass.addConstructor(CtNewConstructor.defaultConstructor(ctClass));
+      ctClass.addMethod(CtNewMethod.make(source.toString(), ctClass));
+      if (directInstantiation && hasPublicDefaultConstructor(resultType)) {
+        ctClass.addMethod(CtNewMethod.make("protected Object newInstance() { return new " + resultType.getName() + "(); }", ctClass));
+      }
+      final byte[] bytecode = ctClass.toBytecode();
+      ctClass.detach();
+      return new RowMapperClassLoader(classLoader).define(className, bytecode, resultType.getProtectionDomain());
+    } catch (Throwable t) {
+      if (log.isDebugEnabled()) {
+        log.debug("Could not generate a row mapper for " + resultType + ".  Cause: " + t);
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  private boolean isSupportedType(Class<?> type) {
+    final int modifiers = type.getModifiers();
+    return Modifier.isPublic(modifiers)
+        && !Modifier.isAbstract(modifiers)
+        && !type.isInterface()
+        && !type.isArray()
+        && !type.isPrimitive()
+        && (type.getEnclosingClass() == null || Modifier.isStatic(modifiers))
+        && !Map.class.isAssignableFrom(type)
+        && !Collection.class.isAssignableFrom(type)
+        && !type.getName().startsWith("java.");
+  }
+
+  private boolean canSeeRowMapper(ClassLoader classLoader) {
+    if (classLoader == null) {
+      return false;
+    }
+    try {
+      return Class.forName(RowMapper.class.getName(), false, classLoader) == RowMapper.class;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private boolean hasPublicDefaultConstructor(Class<?> type) {
+    for (Constructor<?> constructor : type.getConstructors()) {
+      if (constructor.getParameterTypes().length == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Returns the public setter of the property, or null when there is none or more than one.
+   */
+  private Method findSetter(Class<?> type, String property) {
+    Method setter = null;
+    for (Method method : type.getMethods()) {
+      final String name = method.getName();
+      if (name.startsWith("set") && name.length() > 3
+          && method.getParameterTypes().length == 1
+          && !Modifier.isStatic(method.getModifiers())
+          && !method.isBridge()
+          && property.equals(PropertyNamer.methodToProperty(name))) {
+        if (setter != null) {
+          return null;
+        }
+        setter = method;
+      }
+    }
+    return setter == null || !Modifier.isPublic(setter.getParameterTypes()[0].getModifiers()) ? null : setter;
+  }
+
+  private String unbox(Class<?> type, String variable) {
+    if (!type.isPrimitive()) {
+      return "(" + sourceName(type) + ") " + variable;
+    }
+    final String wrapper;
+    if (type == boolean.class) {
+      wrapper = "java.lang.Boolean";
+    } else if (type == char.class) {
+      wrapper = "java.lang.Character";
+    } else if (type == byte.class) {
+      wrapper = "java.lang.Byte";
+    } else if (type == short.class) {
+      wrapper = "java.lang.Short";
+    } else if (type == int.class) {
+      wrapper = "java.lang.Integer";
+    } else if (type == long.class) {
+      wrapper = "java.lang.Long";
+    } else if (type == float.class) {
+      wrapper = "java.lang.Float";
+    } else {
+      wrapper = "java.lang.Double";
+    }
+    return "((" + wrapper + ") " + variable + ")." + type.getName() + "Value()";
+  }
+
+  private String sourceName(Class<?> type) {
+    return type.isArray() ? sourceName(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  private static class RowMapperClassLoader extends ClassLoader {
+
+    RowMapperClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    Class<?> define(String name, byte[] bytecode, ProtectionDomain protectionDomain) {
+      return defineClass(name, bytecode, 0, bytecode.length, protectionDomain);
+    }
+  }
+
+  private static class Key {
+
+    private final Class<?> resultType;
+    private final List<String> properties;
+    private final boolean directInstantiation;
+    private final int hashCode;
+
+    Key(Class<?> resultType, List<String> properties, boolean directInstantiation) {
+      this.resultType = resultType;
+      this.properties = properties;
+      this.directInstantiation = directInstantiation;
+      this.hashCode = 31 * (31 * resultType.hashCode() + properties.hashCode()) + (directInstantiation ? 1 : 0);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return resultType == other.resultType
+          && directInstantiation == other.directInstantiation
+          && properties.equals(other.properties);
+    }
+  }
+
+}
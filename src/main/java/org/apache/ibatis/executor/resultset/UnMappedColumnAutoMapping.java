@@ -0,0 +1,48 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * A column that is not mapped by the result map and is automatically mapped to a property.
+ * <p>
+ * When the column cannot be mapped (no property, or no type handler for it), the type handler is null and the
+ * unknown column behavior has to be applied instead.
+ */
+class UnMappedColumnAutoMapping {
+
+  final String column;
+  final int columnIndex;
+  final String property;
+  final Class<?> propertyType;
+  final TypeHandler<?> typeHandler;
+  final boolean primitive;
+
+  UnMappedColumnAutoMapping(String column, int columnIndex, String property, Class<?> propertyType, TypeHandler<?> typeHandler) {
+    this.column = column;
+    this.columnIndex = columnIndex;
+    this.property = property;
+    this.propertyType = propertyType;
+    this.typeHandler = typeHandler;
+    this.primitive = propertyType != null && propertyType.isPrimitive();
+  }
+
+  boolean isUnknownColumn() {
+    return typeHandler == null;
+  }
+
+}
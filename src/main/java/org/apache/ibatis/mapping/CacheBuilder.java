@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -23,13 +23,19 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheSerializer;
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.ThreadSafeCache;
 import org.apache.ibatis.builder.InitializingObject;
-import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
 import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TableIndexCache;
+import org.apache.ibatis.cache.decorators.TableInvalidatingCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
@@ -43,9 +49,15 @@ public class CacheBuilder {
   private final List<Class<? extends Cache>> decorators;
   private Integer size;
   private Long clearInterval;
+  private Long expireAfterWrite;
+  private Long expireAfterAccess;
+  private Long expiryJitter;
   private boolean readWrite;
+  private Class<? extends CacheSerializer> serializer;
   private Properties properties;
+  private CacheStatistics statistics;
   private boolean blocking;
+  private boolean tableInvalidation;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -74,34 +86,97 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @since 3.4.6
+   */
+  public CacheBuilder expireAfterWrite(Long expireAfterWrite) {
+    this.expireAfterWrite = expireAfterWrite;
+    return this;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public CacheBuilder expireAfterAccess(Long expireAfterAccess) {
+    this.expireAfterAccess = expireAfterAccess;
+    return this;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public CacheBuilder expiryJitter(Long expiryJitter) {
+    this.expiryJitter = expiryJitter;
+    return this;
+  }
+
   public CacheBuilder readWrite(boolean readWrite) {
     this.readWrite = readWrite;
     return this;
   }
 
+  /**
+   * @since 3.4.6
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
   }
+
+  /**
+   * Indexes the entries by the tables they read, so that a write only removes the dependent entries.
+   * @since 3.4.6
+   */
+  public CacheBuilder tableInvalidation(boolean tableInvalidation) {
+    this.tableInvalidation = tableInvalidation;
+    return this;
+  }
   
   public CacheBuilder properties(Properties properties) {
     this.properties = properties;
     return this;
   }
 
+  /**
+   * Sets the statistics the built cache records into, new ones being used when not set.
+   * @since 3.4.6
+   */
+  public CacheBuilder statistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+    return this;
+  }
+
   public Cache build() {
     setDefaultImplementations();
+    if (statistics == null) {
+      statistics = new CacheStatistics(id);
+    }
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    registerStatistics(cache);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
+      TableIndexCache tableIndex = null;
+      if (tableInvalidation) {
+        tableIndex = new TableIndexCache(cache);
+        cache = tableIndex;
+      }
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        registerStatistics(cache);
       }
-      cache = setStandardDecorators(cache);
+      cache = setStandardDecorators(cache, tableIndex);
+    } else if (cache instanceof ThreadSafeCache) {
+      // thread safe caches bound their own size, so only the standard decorators apply
+      cache = setStandardDecorators(cache, null);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
-      cache = new LoggingCache(cache);
+      cache = new LoggingCache(cache, statistics);
     }
     return cache;
   }
@@ -115,23 +190,45 @@ public class CacheBuilder {
     }
   }
 
-  private Cache setStandardDecorators(Cache cache) {
+  private Cache setStandardDecorators(Cache cache, TableIndexCache tableIndex) {
     try {
+      boolean threadSafe = cache instanceof ThreadSafeCache;
       MetaObject metaCache = SystemMetaObject.forObject(cache);
       if (size != null && metaCache.hasSetter("size")) {
         metaCache.setValue("size", size);
       }
+      if (expireAfterWrite != null || expireAfterAccess != null) {
+        ExpiringCache expiringCache = new ExpiringCache(cache);
+        if (expiryJitter != null) {
+          expiringCache.setExpiryJitter(expiryJitter);
+        }
+        if (expireAfterWrite != null) {
+          expiringCache.setExpireAfterWrite(expireAfterWrite);
+        }
+        if (expireAfterAccess != null) {
+          expiringCache.setExpireAfterAccess(expireAfterAccess);
+        }
+        cache = expiringCache;
+        registerStatistics(cache);
+      }
       if (clearInterval != null) {
         cache = new ScheduledCache(cache);
         ((ScheduledCache) cache).setClearInterval(clearInterval);
       }
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = serializer == null ? new SerializedCache(cache) : new SerializedCache(cache, newSerializerInstance());
+      }
+      cache = new LoggingCache(cache, statistics);
+      if (!threadSafe) {
+        cache = new SynchronizedCache(cache);
       }
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      Cache unblockedCache = cache;
       if (blocking) {
-        cache = new BlockingCache(cache);
+        cache = new SingleFlightCache(cache);
+        setCacheProperties(cache);
+      }
+      if (tableIndex != null) {
+        cache = new TableInvalidatingCache(cache, unblockedCache, tableIndex);
       }
       return cache;
     } catch (Exception e) {
@@ -139,6 +236,16 @@ public class CacheBuilder {
     }
   }
 
+  private void registerStatistics(Cache cache) {
+    MetaObject metaCache = SystemMetaObject.forObject(cache);
+    if (metaCache.hasSetter("evictionListener")) {
+      metaCache.setValue("evictionListener", statistics);
+    }
+    if (metaCache.hasGetter("totalWeight")) {
+      statistics.setWeightedCache(cache);
+    }
+  }
+
   private void setCacheProperties(Cache cache) {
     if (properties != null) {
       MetaObject metaCache = SystemMetaObject.forObject(cache);
@@ -195,6 +302,14 @@ public class CacheBuilder {
     }
   }
 
+  private CacheSerializer newSerializerInstance() {
+    try {
+      return serializer.newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+    }
+  }
+
   private Constructor<? extends Cache> getBaseCacheConstructor(Class<? extends Cache> cacheClass) {
     try {
       return cacheClass.getConstructor(String.class);
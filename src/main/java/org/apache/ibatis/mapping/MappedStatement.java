@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@ package org.apache.ibatis.mapping;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
@@ -25,6 +27,7 @@ import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.parsing.SqlTableParser;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
 
@@ -56,6 +59,7 @@ public final class MappedStatement {
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  private Set<String> tables;
 
   MappedStatement() {
     // constructor disabled
@@ -173,6 +177,23 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.4.6
+     */
+    public Builder tables(String tables) {
+      String[] names = delimitedStringToArray(tables);
+      if (names == null) {
+        mappedStatement.tables = null;
+      } else {
+        Set<String> normalizedNames = new LinkedHashSet<String>();
+        for (String name : names) {
+          normalizedNames.add(SqlTableParser.normalizeTableName(name));
+        }
+        mappedStatement.tables = Collections.unmodifiableSet(normalizedNames);
+      }
+      return this;
+    }
+
     /** @deprecated Use {@link #resultSets} */
     @Deprecated
     public Builder resulSets(String resultSet) {
@@ -282,6 +303,17 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  /**
+   * Returns the tables declared as read (select) or written (insert, update and delete) by this statement,
+   * or derived from its sql when it is static and <code>deriveCacheTables</code> is enabled,
+   * <code>null</code> if they are unknown.
+   *
+   * @since 3.4.6
+   */
+  public Set<String> getTables() {
+    return tables;
+  }
+
   /** @deprecated Use {@link #getResultSets()} */
   @Deprecated
   public String[] getResulSets() {
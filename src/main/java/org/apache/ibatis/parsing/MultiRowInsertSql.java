@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+/**
+ * A single row <code>INSERT ... VALUES (...)</code> statement that can be repeated into a multi row
+ * <code>INSERT ... VALUES (...), (...)</code> statement.
+ * <p>
+ * Like {@link SqlTableParser} this is a lexical scan: statements with comments, with placeholders outside of
+ * the values, with several rows or with any clause after the values (<code>ON DUPLICATE KEY</code>,
+ * <code>RETURNING</code>...) are not recognized.
+ *
+ * @since 3.4.6
+ */
+public class MultiRowInsertSql {
+
+  private final String prefix;
+  private final String values;
+
+  private MultiRowInsertSql(String prefix, String values) {
+    this.prefix = prefix;
+    this.values = values;
+  }
+
+  /**
+   * Returns the parsed statement, or <code>null</code> if it is not a simple single row insert.
+   */
+  public static MultiRowInsertSql parse(String sql) {
+    String trimmed = sql.trim();
+    while (trimmed.endsWith(";")) {
+      trimmed = trimmed.substring(0, trimmed.length() - 1).trim();
+    }
+    int length = trimmed.length();
+    if (!"insert".equalsIgnoreCase(readWord(trimmed, 0))) {
+      return null;
+    }
+    int valuesStart = -1;
+    int depth = 0;
+    int i = 0;
+    while (i < length && valuesStart < 0) {
+      char c = trimmed.charAt(i);
+      if (c == '\'' || c == '"' || c == '`' || c == '[') {
+        i = skipQuoted(trimmed, i, c == '[' ? ']' : c);
+      } else if (c == '?' || isCommentStart(trimmed, i)) {
+        return null;
+      } else if (c == '(' || c == ')') {
+        depth += c == '(' ? 1 : -1;
+        i++;
+      } else if (isWordPart(c)) {
+        String word = readWord(trimmed, i);
+        i += word.length();
+        if (depth == 0 && "values".equalsIgnoreCase(word)) {
+          valuesStart = i;
+        }
+      } else {
+        i++;
+      }
+    }
+    if (valuesStart < 0) {
+      return null;
+    }
+    int tupleStart = valuesStart;
+    while (tupleStart < length && Character.isWhitespace(trimmed.charAt(tupleStart))) {
+      tupleStart++;
+    }
+    if (tupleStart >= length || trimmed.charAt(tupleStart) != '(') {
+      return null;
+    }
+    int tupleEnd = findClosingParenthesis(trimmed, tupleStart);
+    if (tupleEnd < 0 || tupleEnd + 1 != length) {
+      return null;
+    }
+    return new MultiRowInsertSql(trimmed.substring(0, tupleStart), trimmed.substring(tupleStart));
+  }
+
+  /**
+   * Returns the statement inserting the given number of rows.
+   */
+  public String getSql(int rows) {
+    StringBuilder sql = new StringBuilder(prefix.length() + rows * (values.length() + 2));
+    sql.append(prefix).append(values);
+    for (int i = 1; i < rows; i++) {
+      sql.append(", ").append(values);
+    }
+    return sql.toString();
+  }
+
+  private static int findClosingParenthesis(String sql, int start) {
+    int depth = 0;
+    int i = start;
+    while (i < sql.length()) {
+      char c = sql.charAt(i);
+      if (c == '\'' || c == '"' || c == '`') {
+        i = skipQuoted(sql, i, c);
+      } else if (isCommentStart(sql, i)) {
+        return -1;
+      } else {
+        if (c == '(') {
+          depth++;
+        } else if (c == ')' && --depth == 0) {
+          return i;
+        }
+        i++;
+      }
+    }
+    return -1;
+  }
+
+  private static String readWord(String sql, int start) {
+    int end = start;
+    while (end < sql.length() && isWordPart(sql.charAt(end))) {
+      end++;
+    }
+    return sql.substring(start, end);
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int end = sql.indexOf(close, start + 1);
+    return end < 0 ? sql.length() : end + 1;
+  }
+
+  private static boolean isCommentStart(String sql, int index) {
+    if (index + 1 >= sql.length()) {
+      return false;
+    }
+    char c = sql.charAt(index);
+    char next = sql.charAt(index + 1);
+    return (c == '-' && next == '-') || (c == '/' && next == '*');
+  }
+
+  private static boolean isWordPart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#' || c == '.' || c == '@';
+  }
+
+}
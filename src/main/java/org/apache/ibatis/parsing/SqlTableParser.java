@@ -0,0 +1,258 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Finds the tables a sql statement reads or writes.
+ * <p>
+ * This is a lexical scan, not a sql parser: read tables are the names listed after <code>FROM</code> and
+ * <code>JOIN</code> (sub queries included), written tables are the targets of <code>INSERT INTO</code>,
+ * <code>UPDATE</code> and <code>DELETE FROM</code>. Whenever a statement does not fit these shapes, <code>null</code>
+ * is returned so that callers can fall back to a conservative behavior.
+ * Table names are normalized by {@link #normalizeTableName(String)}.
+ *
+ * @since 3.4.6
+ */
+public class SqlTableParser {
+
+  private static final Set<String> KEYWORDS = new HashSet<String>(Arrays.asList(
+      "select", "from", "where", "join", "inner", "outer", "left", "right", "full", "cross", "natural", "straight_join",
+      "on", "using", "group", "order", "having", "limit", "offset", "fetch", "union", "except", "intersect", "minus",
+      "for", "with", "set", "values", "into", "as", "lateral", "window", "connect", "start", "returning", "partition"));
+
+  // the tokens that may follow a table list, anything else (e.g. a table hint) makes the read tables unknown
+  private static final Set<String> CLAUSE_KEYWORDS = new HashSet<String>(Arrays.asList(
+      "where", "join", "inner", "left", "right", "full", "cross", "natural", "straight_join", "on", "using",
+      "group", "order", "having", "limit", "offset", "fetch", "union", "except", "intersect", "minus", "for",
+      "set", "window", "connect", "start", "returning", ")", ";"));
+
+  // the commands whose read tables all follow FROM or JOIN, MERGE reads its USING source
+  private static final Set<String> WRITE_COMMANDS = new HashSet<String>(Arrays.asList(
+      "insert", "replace", "update", "delete"));
+
+  private SqlTableParser() {
+    // Prevent Instantiation
+  }
+
+  /**
+   * Returns the tables read by a statement, or <code>null</code> if none can be found or if a table list is
+   * followed by something else than a known clause (e.g. a table hint).
+   * An insert, update or delete statement that lists no table, like <code>INSERT ... VALUES</code>, reads none:
+   * an empty set is returned.
+   */
+  public static Set<String> findReadTables(String sql) {
+    List<String> tokens = tokenize(sql);
+    if (tokens.isEmpty()) {
+      return null;
+    }
+    Set<String> tables = new LinkedHashSet<String>();
+    for (int i = 0; i < tokens.size(); i++) {
+      if (isTableListStart(tokens, i)) {
+        int end = readTableList(tokens, i + 1, tables);
+        if (end < tokens.size() && !CLAUSE_KEYWORDS.contains(tokens.get(end).toLowerCase(Locale.ENGLISH))) {
+          return null;
+        }
+      }
+    }
+    if (tables.isEmpty()) {
+      return WRITE_COMMANDS.contains(tokens.get(0).toLowerCase(Locale.ENGLISH)) ? Collections.<String>emptySet() : null;
+    }
+    return Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * Returns the tables written by an insert, update or delete statement, or <code>null</code> if they cannot be told.
+   */
+  public static Set<String> findWrittenTables(String sql) {
+    List<String> tokens = tokenize(sql);
+    if (tokens.isEmpty()) {
+      return null;
+    }
+    String command = tokens.get(0).toLowerCase(Locale.ENGLISH);
+    Set<String> tables = new LinkedHashSet<String>();
+    if ("insert".equals(command) || "replace".equals(command) || "merge".equals(command)) {
+      for (int i = 1; i < tokens.size(); i++) {
+        if ("into".equalsIgnoreCase(tokens.get(i)) && i + 1 < tokens.size() && isTableName(tokens.get(i + 1))) {
+          tables.add(normalizeTableName(tokens.get(i + 1)));
+        }
+      }
+    } else if ("update".equals(command)) {
+      int end = readTableList(tokens, skipModifiers(tokens, 1), tables);
+      if (end >= tokens.size() || !"set".equalsIgnoreCase(tokens.get(end))) {
+        return null;
+      }
+    } else if ("delete".equals(command)) {
+      int start = skipModifiers(tokens, 1);
+      if (start >= tokens.size() || !"from".equalsIgnoreCase(tokens.get(start))) {
+        return null;
+      }
+      int end = readTableList(tokens, start + 1, tables);
+      if (end < tokens.size() && !"where".equalsIgnoreCase(tokens.get(end)) && !";".equals(tokens.get(end))) {
+        return null;
+      }
+    }
+    return tables.isEmpty() ? null : Collections.unmodifiableSet(tables);
+  }
+
+  /**
+   * Removes quotes and schema qualifiers, and lower cases the name.
+   */
+  public static String normalizeTableName(String name) {
+    String table = name.trim();
+    int dot = table.lastIndexOf('.');
+    if (dot >= 0) {
+      table = table.substring(dot + 1);
+    }
+    StringBuilder builder = new StringBuilder(table.length());
+    for (int i = 0; i < table.length(); i++) {
+      char c = table.charAt(i);
+      if (c != '"' && c != '`' && c != '[' && c != ']') {
+        builder.append(c);
+      }
+    }
+    return builder.toString().toLowerCase(Locale.ENGLISH);
+  }
+
+  private static boolean isTableListStart(List<String> tokens, int index) {
+    String token = tokens.get(index);
+    if ("from".equalsIgnoreCase(token) || "join".equalsIgnoreCase(token)) {
+      return true;
+    }
+    // MySQL's STRAIGHT_JOIN is a join, unless it is the select modifier
+    return "straight_join".equalsIgnoreCase(token) && index > 0 && !"select".equalsIgnoreCase(tokens.get(index - 1));
+  }
+
+  private static int skipModifiers(List<String> tokens, int index) {
+    while (index < tokens.size() && ("low_priority".equalsIgnoreCase(tokens.get(index))
+        || "ignore".equalsIgnoreCase(tokens.get(index)) || "only".equalsIgnoreCase(tokens.get(index)))) {
+      index++;
+    }
+    return index;
+  }
+
+  /*
+   * Reads "table [[as] alias] [, ...]" and returns the index of the first token after the list.
+   * Derived tables are skipped, their own FROM clauses are visited by the caller.
+   */
+  private static int readTableList(List<String> tokens, int index, Set<String> tables) {
+    while (index < tokens.size()) {
+      String token = tokens.get(index);
+      if ("(".equals(token)) {
+        index = skipParentheses(tokens, index);
+      } else if (isTableName(token)) {
+        tables.add(normalizeTableName(token));
+        index++;
+      } else {
+        return index;
+      }
+      if (index < tokens.size() && "as".equalsIgnoreCase(tokens.get(index))) {
+        index++;
+      }
+      if (index < tokens.size() && isTableName(tokens.get(index))) {
+        index++;
+      }
+      if (index < tokens.size() && ",".equals(tokens.get(index))) {
+        index++;
+      } else {
+        return index;
+      }
+    }
+    return index;
+  }
+
+  private static int skipParentheses(List<String> tokens, int index) {
+    int depth = 0;
+    do {
+      String token = tokens.get(index++);
+      if ("(".equals(token)) {
+        depth++;
+      } else if (")".equals(token)) {
+        depth--;
+      }
+    } while (depth > 0 && index < tokens.size());
+    return index;
+  }
+
+  private static boolean isTableName(String token) {
+    char c = token.charAt(0);
+    boolean word = Character.isLetter(c) || c == '_' || c == '"' || c == '`' || c == '[';
+    return word && !KEYWORDS.contains(token.toLowerCase(Locale.ENGLISH));
+  }
+
+  /*
+   * Splits the sql into words (identifiers, keywords and literals) and punctuation,
+   * dropping string literals and comments.
+   */
+  private static List<String> tokenize(String sql) {
+    List<String> tokens = new ArrayList<String>();
+    int length = sql.length();
+    int i = 0;
+    while (i < length) {
+      char c = sql.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        i = skipQuoted(sql, i, '\'');
+      } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+        int end = sql.indexOf('\n', i);
+        i = end < 0 ? length : end + 1;
+      } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+        int end = sql.indexOf("*/", i + 2);
+        i = end < 0 ? length : end + 2;
+      } else if (isWordStart(c)) {
+        int start = i;
+        while (i < length && isWordPart(sql.charAt(i))) {
+          char w = sql.charAt(i);
+          if (w == '"' || w == '`') {
+            i = skipQuoted(sql, i, w);
+          } else if (w == '[') {
+            i = skipQuoted(sql, i, ']');
+          } else {
+            i++;
+          }
+        }
+        tokens.add(sql.substring(start, i));
+      } else {
+        tokens.add(String.valueOf(c));
+        i++;
+      }
+    }
+    return tokens;
+  }
+
+  private static int skipQuoted(String sql, int start, char close) {
+    int end = sql.indexOf(close, start + 1);
+    return end < 0 ? sql.length() : end + 1;
+  }
+
+  private static boolean isWordStart(char c) {
+    return Character.isLetterOrDigit(c) || c == '_' || c == '"' || c == '`' || c == '[' || c == '$' || c == '#';
+  }
+
+  private static boolean isWordPart(char c) {
+    return isWordStart(c) || c == '.' || c == '@';
+  }
+
+}
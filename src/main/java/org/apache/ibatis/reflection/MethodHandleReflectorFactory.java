@@ -0,0 +1,39 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.invoker.InvokerFactory;
+import org.apache.ibatis.reflection.invoker.MethodHandleInvokerFactory;
+
+/**
+ * A {@link ReflectorFactory} whose reflectors read and write properties through <code>MethodHandle</code>s.
+ * <p>
+ * Enable it with <code>&lt;reflectorFactory type="org.apache.ibatis.reflection.MethodHandleReflectorFactory"/&gt;</code>.
+ *
+ * @since 3.4.6
+ */
+@UsesJava7
+public class MethodHandleReflectorFactory extends DefaultReflectorFactory {
+
+  private final InvokerFactory invokerFactory = new MethodHandleInvokerFactory();
+
+  @Override
+  protected Reflector newReflector(Class<?> type) {
+    return new Reflector(type, invokerFactory);
+  }
+
+}
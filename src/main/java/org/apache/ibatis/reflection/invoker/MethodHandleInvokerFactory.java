@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+import org.apache.ibatis.lang.UsesJava7;
+
+/**
+ * Creates invokers that call getters, setters and fields through <code>MethodHandle</code>s
+ * instead of <code>java.lang.reflect</code>.
+ * <p>
+ * Members a handle cannot be obtained for (static members, inaccessible members, final fields)
+ * keep the reflective invokers.
+ *
+ * @since 3.4.6
+ */
+@UsesJava7
+public class MethodHandleInvokerFactory extends DefaultInvokerFactory {
+
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(Object.class, Object.class, Object.class);
+  private static final MethodType FIELD_SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
+  private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+  @Override
+  public Invoker createMethodInvoker(Method method) {
+    int parameterCount = method.getParameterTypes().length;
+    if (!Modifier.isStatic(method.getModifiers()) && parameterCount < 2) {
+      try {
+        MethodHandle handle = lookup.unreflect(method);
+        if (parameterCount == 0) {
+          return new GetterMethodInvoker(method, handle.asType(GETTER_TYPE));
+        }
+        return new SetterMethodInvoker(method, handle.asType(SETTER_TYPE));
+      } catch (IllegalAccessException e) {
+        // Ignored. Falls back to reflection.
+      }
+    }
+    return super.createMethodInvoker(method);
+  }
+
+  @Override
+  public Invoker createGetFieldInvoker(Field field) {
+    if (!Modifier.isStatic(field.getModifiers())) {
+      try {
+        return new HandleGetFieldInvoker(field, lookup.unreflectGetter(field).asType(GETTER_TYPE));
+      } catch (IllegalAccessException e) {
+        // Ignored. Falls back to reflection.
+      }
+    }
+    return super.createGetFieldInvoker(field);
+  }
+
+  @Override
+  public Invoker createSetFieldInvoker(Field field) {
+    if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isFinal(field.getModifiers())) {
+      try {
+        return new HandleSetFieldInvoker(field, lookup.unreflectSetter(field).asType(FIELD_SETTER_TYPE));
+      } catch (IllegalAccessException e) {
+        // Ignored. Falls back to reflection.
+      }
+    }
+    return super.createSetFieldInvoker(field);
+  }
+
+  /*
+   * Unchecked exceptions are rethrown as they are; checked ones are wrapped the way Method.invoke() does.
+   */
+  private static InvocationTargetException wrap(Throwable t) {
+    return new InvocationTargetException(t);
+  }
+
+  @UsesJava7
+  private static class GetterMethodInvoker extends MethodInvoker {
+
+    private final MethodHandle handle;
+
+    GetterMethodInvoker(Method method, MethodHandle handle) {
+      super(method);
+      this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+      try {
+        return handle.invokeExact(target);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw wrap(t);
+      }
+    }
+  }
+
+  @UsesJava7
+  private static class SetterMethodInvoker extends MethodInvoker {
+
+    private final MethodHandle handle;
+
+    SetterMethodInvoker(Method method, MethodHandle handle) {
+      super(method);
+      this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+      try {
+        return handle.invokeExact(target, args[0]);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw wrap(t);
+      }
+    }
+  }
+
+  @UsesJava7
+  private static class HandleGetFieldInvoker extends GetFieldInvoker {
+
+    private final MethodHandle handle;
+
+    HandleGetFieldInvoker(Field field, MethodHandle handle) {
+      super(field);
+      this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+      try {
+        return handle.invokeExact(target);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw wrap(t);
+      }
+    }
+  }
+
+  @UsesJava7
+  private static class HandleSetFieldInvoker extends SetFieldInvoker {
+
+    private final MethodHandle handle;
+
+    HandleSetFieldInvoker(Field field, MethodHandle handle) {
+      super(field);
+      this.handle = handle;
+    }
+
+    @Override
+    public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+      try {
+        handle.invokeExact(target, args[0]);
+        return null;
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Error e) {
+        throw e;
+      } catch (Throwable t) {
+        throw wrap(t);
+      }
+    }
+  }
+
+}
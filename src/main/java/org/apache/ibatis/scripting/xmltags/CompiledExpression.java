@@ -0,0 +1,520 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapper;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * The tree of a test or collection expression that only uses the common OGNL constructs:
+ * property paths, <code>null</code>, <code>true</code>, <code>false</code>, integer and string literals,
+ * the comparison operators, <code>and</code>, <code>or</code>, <code>not</code> and the
+ * <code>size()</code> and <code>isEmpty()</code> methods.
+ * <p>
+ * Properties are read with the getters of the {@link Reflector}s. Whenever a value is met that the tree cannot
+ * handle exactly like OGNL would (a list property, a comparison between a string and a number, ...),
+ * {@link #getValue(Object)} returns {@link #UNRESOLVED} and the expression has to be evaluated with OGNL.
+ */
+abstract class CompiledExpression {
+
+  static final Object UNRESOLVED = new Object();
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+  private static final Set<String> RESERVED_WORDS = new HashSet<String>(Arrays.asList(
+      "in", "instanceof", "new", "shl", "shr", "ushr", "band", "bor", "xor", "bnot", "this"));
+  private static final Set<String> MAP_PSEUDO_PROPERTIES = new HashSet<String>(Arrays.asList(
+      "size", "isEmpty", "keys", "keySet", "values"));
+
+  /*
+   * Evaluates the expression.
+   *
+   * @param root the bindings of a dynamic context, or any object
+   * @return the value of the expression or {@link #UNRESOLVED}
+   */
+  abstract Object getValue(Object root);
+
+  /*
+   * Compiles an expression.
+   *
+   * @return the compiled expression or null if it uses a construct that is left to OGNL
+   */
+  static CompiledExpression compile(Configuration configuration, String expression) {
+    try {
+      return new Parser(configuration.getReflectorFactory(), configuration, expression).parse();
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  // same conversion as OgnlOps.booleanValue()
+  static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    }
+    if (value instanceof String) {
+      return Boolean.parseBoolean((String) value);
+    }
+    if (value instanceof Character) {
+      return (Character) value != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private static class Literal extends CompiledExpression {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object getValue(Object root) {
+      return value;
+    }
+  }
+
+  private static class Not extends CompiledExpression {
+    private final CompiledExpression operand;
+
+    Not(CompiledExpression operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object getValue(Object root) {
+      Object value = operand.getValue(root);
+      if (value == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      return !booleanValue(value);
+    }
+  }
+
+  /*
+   * and / or, which like in OGNL return one of their operands.
+   */
+  private static class Logical extends CompiledExpression {
+    private final boolean and;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Logical(boolean and, CompiledExpression left, CompiledExpression right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object getValue(Object root) {
+      Object value = left.getValue(root);
+      if (value == UNRESOLVED || booleanValue(value) != and) {
+        return value;
+      }
+      return right.getValue(root);
+    }
+  }
+
+  private static class Comparison extends CompiledExpression {
+    private final String operator;
+    private final CompiledExpression left;
+    private final CompiledExpression right;
+
+    Comparison(String operator, CompiledExpression left, CompiledExpression right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object getValue(Object root) {
+      Object leftValue = left.getValue(root);
+      if (leftValue == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      Object rightValue = right.getValue(root);
+      if (rightValue == UNRESOLVED) {
+        return UNRESOLVED;
+      }
+      if ("==".equals(operator) || "!=".equals(operator)) {
+        Boolean equal = equal(leftValue, rightValue);
+        if (equal == null) {
+          return UNRESOLVED;
+        }
+        return "==".equals(operator) ? equal : !equal;
+      }
+      if (!isIntegral(leftValue) || !isIntegral(rightValue)) {
+        return UNRESOLVED;
+      }
+      long l = ((Number) leftValue).longValue();
+      long r = ((Number) rightValue).longValue();
+      if (">".equals(operator)) {
+        return l > r;
+      } else if (">=".equals(operator)) {
+        return l >= r;
+      } else if ("<".equals(operator)) {
+        return l < r;
+      } else {
+        return l <= r;
+      }
+    }
+
+    private Boolean equal(Object leftValue, Object rightValue) {
+      if (leftValue == null || rightValue == null) {
+        return leftValue == rightValue;
+      }
+      if (isIntegral(leftValue) && isIntegral(rightValue)) {
+        return ((Number) leftValue).longValue() == ((Number) rightValue).longValue();
+      }
+      if ((leftValue instanceof String && rightValue instanceof String)
+          || (leftValue instanceof Boolean && rightValue instanceof Boolean)) {
+        return leftValue.equals(rightValue);
+      }
+      return null;
+    }
+  }
+
+  private static class MethodCall extends CompiledExpression {
+    private final CompiledExpression target;
+    private final String method;
+
+    MethodCall(CompiledExpression target, String method) {
+      this.target = target;
+      this.method = method;
+    }
+
+    @Override
+    Object getValue(Object root) {
+      Object value = target.getValue(root);
+      boolean size = "size".equals(method);
+      if (value instanceof Collection) {
+        return size ? (Object) ((Collection<?>) value).size() : (Object) ((Collection<?>) value).isEmpty();
+      }
+      if (value instanceof Map) {
+        return size ? (Object) ((Map<?, ?>) value).size() : (Object) ((Map<?, ?>) value).isEmpty();
+      }
+      if (value instanceof String && !size) {
+        return ((String) value).isEmpty();
+      }
+      return UNRESOLVED;
+    }
+  }
+
+  private static class PropertyPath extends CompiledExpression {
+    private final ReflectorFactory reflectorFactory;
+    private final Configuration configuration;
+    private final String[] names;
+
+    PropertyPath(ReflectorFactory reflectorFactory, Configuration configuration, List<String> names) {
+      this.reflectorFactory = reflectorFactory;
+      this.configuration = configuration;
+      this.names = names.toArray(new String[names.size()]);
+    }
+
+    @Override
+    Object getValue(Object root) {
+      Object value = root instanceof DynamicContext.ContextMap
+          ? getBinding((DynamicContext.ContextMap) root, names[0])
+          : getProperty(root, names[0]);
+      for (int i = 1; i < names.length && value != UNRESOLVED; i++) {
+        value = getProperty(value, names[i]);
+      }
+      return value;
+    }
+
+    /*
+     * Same lookup as DynamicContext.ContextAccessor, reading the properties of a bean parameter without
+     * building a MetaObject for it.
+     */
+    private Object getBinding(DynamicContext.ContextMap bindings, String name) {
+      if (bindings.containsKey(name)) {
+        return bindings.get(name);
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject == null) {
+        return null;
+      }
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      if (parameterObject instanceof Collection || parameterObject instanceof ObjectWrapper
+          || configuration.getObjectWrapperFactory().hasWrapperFor(parameterObject)) {
+        return UNRESOLVED;
+      }
+      Reflector reflector = reflectorFactory.findForClass(parameterObject.getClass());
+      if (!reflector.hasGetter(name)) {
+        // OGNL reports the missing property
+        return UNRESOLVED;
+      }
+      return invoke(reflector.getGetInvoker(name), parameterObject);
+    }
+
+    private Object getProperty(Object target, String name) {
+      if (target == null || target instanceof Collection || target instanceof Iterator
+          || target instanceof Class || target.getClass().isArray()) {
+        return UNRESOLVED;
+      }
+      if (target instanceof Map) {
+        return MAP_PSEUDO_PROPERTIES.contains(name) ? UNRESOLVED : ((Map<?, ?>) target).get(name);
+      }
+      Reflector reflector = reflectorFactory.findForClass(target.getClass());
+      if (!reflector.hasGetter(name)) {
+        return UNRESOLVED;
+      }
+      Invoker invoker = reflector.getGetInvoker(name);
+      // OGNL reads public fields only when there is no getter, private fields never
+      if (!(invoker instanceof MethodInvoker)) {
+        return UNRESOLVED;
+      }
+      return invoke(invoker, target);
+    }
+
+    private Object invoke(Invoker invoker, Object target) {
+      try {
+        return invoker.invoke(target, NO_ARGUMENTS);
+      } catch (Exception e) {
+        // OGNL reports the failure
+        return UNRESOLVED;
+      }
+    }
+  }
+
+  /*
+   * Recursive descent parser, throws IllegalArgumentException on anything it does not support.
+   */
+  private static class Parser {
+    private final ReflectorFactory reflectorFactory;
+    private final Configuration configuration;
+    private final List<String> tokens;
+    private int position;
+
+    Parser(ReflectorFactory reflectorFactory, Configuration configuration, String expression) {
+      this.reflectorFactory = reflectorFactory;
+      this.configuration = configuration;
+      this.tokens = tokenize(expression);
+    }
+
+    CompiledExpression parse() {
+      CompiledExpression expression = parseOr();
+      if (position != tokens.size()) {
+        throw new IllegalArgumentException();
+      }
+      return expression;
+    }
+
+    private CompiledExpression parseOr() {
+      CompiledExpression expression = parseAnd();
+      while (accept("or") || accept("||")) {
+        expression = new Logical(false, expression, parseAnd());
+      }
+      return expression;
+    }
+
+    private CompiledExpression parseAnd() {
+      CompiledExpression expression = parseComparison();
+      while (accept("and") || accept("&&")) {
+        expression = new Logical(true, expression, parseComparison());
+      }
+      return expression;
+    }
+
+    private CompiledExpression parseComparison() {
+      CompiledExpression left = parseUnary();
+      String operator = comparisonOperator(peek());
+      if (operator == null) {
+        return left;
+      }
+      position++;
+      return new Comparison(operator, left, parseUnary());
+    }
+
+    private CompiledExpression parseUnary() {
+      if (accept("!") || accept("not")) {
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private CompiledExpression parsePrimary() {
+      String token = next();
+      if ("(".equals(token)) {
+        CompiledExpression expression = parseOr();
+        expect(")");
+        return expression;
+      }
+      if ("null".equals(token)) {
+        return new Literal(null);
+      }
+      if ("true".equals(token) || "false".equals(token)) {
+        return new Literal(Boolean.valueOf(token));
+      }
+      char first = token.charAt(0);
+      if (first == '"' || first == '\'') {
+        return new Literal(token.substring(1, token.length() - 1));
+      }
+      if (Character.isDigit(first)) {
+        return new Literal(Integer.valueOf(token));
+      }
+      if (!isIdentifier(token)) {
+        throw new IllegalArgumentException();
+      }
+      List<String> names = new ArrayList<String>();
+      names.add(token);
+      while (accept(".")) {
+        String name = next();
+        if (!isIdentifier(name)) {
+          throw new IllegalArgumentException();
+        }
+        if (accept("(")) {
+          expect(")");
+          if (!"size".equals(name) && !"isEmpty".equals(name)) {
+            throw new IllegalArgumentException();
+          }
+          return new MethodCall(new PropertyPath(reflectorFactory, configuration, names), name);
+        }
+        names.add(name);
+      }
+      return new PropertyPath(reflectorFactory, configuration, names);
+    }
+
+    private String comparisonOperator(String token) {
+      if ("==".equals(token) || "eq".equals(token)) {
+        return "==";
+      } else if ("!=".equals(token) || "neq".equals(token)) {
+        return "!=";
+      } else if (">".equals(token) || "gt".equals(token)) {
+        return ">";
+      } else if (">=".equals(token) || "gte".equals(token)) {
+        return ">=";
+      } else if ("<".equals(token) || "lt".equals(token)) {
+        return "<";
+      } else if ("<=".equals(token) || "lte".equals(token)) {
+        return "<=";
+      }
+      return null;
+    }
+
+    private boolean isIdentifier(String token) {
+      if (!Character.isJavaIdentifierStart(token.charAt(0)) || RESERVED_WORDS.contains(token)
+          || comparisonOperator(token) != null) {
+        return false;
+      }
+      return !"and".equals(token) && !"or".equals(token) && !"not".equals(token)
+          && !"null".equals(token) && !"true".equals(token) && !"false".equals(token);
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+      if (position >= tokens.size()) {
+        throw new IllegalArgumentException();
+      }
+      return tokens.get(position++);
+    }
+
+    private boolean accept(String token) {
+      if (token.equals(peek())) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(String token) {
+      if (!accept(token)) {
+        throw new IllegalArgumentException();
+      }
+    }
+
+    private static List<String> tokenize(String expression) {
+      List<String> tokens = new ArrayList<String>();
+      int i = 0;
+      int length = expression.length();
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = i;
+          while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (Character.isDigit(c)) {
+          int start = i;
+          while (i < length && Character.isDigit(expression.charAt(i))) {
+            i++;
+          }
+          // no decimals, no type suffixes (1L, 1.5, 1B, ...) and no octal or hexadecimal literals
+          if ((i < length && (Character.isJavaIdentifierPart(expression.charAt(i)) || expression.charAt(i) == '.'))
+              || (c == '0' && i - start > 1) || i - start > 9) {
+            throw new IllegalArgumentException();
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (c == '"' || c == '\'') {
+          int end = expression.indexOf(c, i + 1);
+          // escapes are left to OGNL, and so are 'x' literals that OGNL reads as characters
+          if (end < 0 || expression.substring(i + 1, end).indexOf('\\') >= 0 || (c == '\'' && end - i == 2)) {
+            throw new IllegalArgumentException();
+          }
+          tokens.add(expression.substring(i, end + 1));
+          i = end + 1;
+        } else if (i + 1 < length && isTwoCharOperator(expression.substring(i, i + 2))) {
+          tokens.add(expression.substring(i, i + 2));
+          i += 2;
+        } else if ("().!<>".indexOf(c) >= 0) {
+          tokens.add(String.valueOf(c));
+          i++;
+        } else {
+          throw new IllegalArgumentException();
+        }
+      }
+      if (tokens.isEmpty()) {
+        throw new IllegalArgumentException();
+      }
+      return tokens;
+    }
+
+    private static boolean isTwoCharOperator(String s) {
+      return "==".equals(s) || "!=".equals(s) || ">=".equals(s) || "<=".equals(s) || "&&".equals(s) || "||".equals(s);
+    }
+  }
+
+}
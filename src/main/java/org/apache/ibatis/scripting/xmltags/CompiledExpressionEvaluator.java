@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import ognl.OgnlException;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * An {@link ExpressionEvaluator} that evaluates simple expressions such as <code>name != null</code> or
+ * <code>list != null and list.size() &gt; 0</code> by calling the getters directly instead of going through OGNL.
+ * <p>
+ * The test and collection expressions of the <code>&lt;if&gt;</code>, <code>&lt;when&gt;</code> and
+ * <code>&lt;foreach&gt;</code> nodes are compiled when the statement is built and kept by the nodes, so an invalid
+ * expression fails the build of the statement. Expressions using other constructs, and values the compiled form
+ * cannot handle exactly like OGNL, are evaluated with OGNL.
+ *
+ * @since 3.4.6
+ */
+public class CompiledExpressionEvaluator extends ExpressionEvaluator {
+
+  private static final CompiledExpression NOT_COMPILED = new CompiledExpression() {
+    @Override
+    Object getValue(Object root) {
+      return UNRESOLVED;
+    }
+  };
+
+  private final Configuration configuration;
+  private final ConcurrentMap<String, CompiledExpression> expressions = new ConcurrentHashMap<String, CompiledExpression>();
+
+  public CompiledExpressionEvaluator(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  CompiledExpression compile(String expression) {
+    if (expression == null) {
+      throw new BuilderException("A test or collection expression is required.");
+    }
+    CompiledExpression compiled = CompiledExpression.compile(configuration, expression);
+    if (compiled != null) {
+      return compiled;
+    }
+    try {
+      OgnlCache.parseExpression(expression);
+    } catch (OgnlException e) {
+      throw new BuilderException("Error compiling expression '" + expression + "'. Cause: " + e, e);
+    }
+    return NOT_COMPILED;
+  }
+
+  /*
+   * Evaluates an expression that was not compiled by a dynamic sql node.
+   */
+  @Override
+  protected Object getValue(String expression, Object parameterObject) {
+    Object value = getCompiledExpression(expression).getValue(parameterObject);
+    if (value == CompiledExpression.UNRESOLVED) {
+      return super.getValue(expression, parameterObject);
+    }
+    return value;
+  }
+
+  private CompiledExpression getCompiledExpression(String expression) {
+    CompiledExpression compiled = expressions.get(expression);
+    if (compiled == null) {
+      compiled = CompiledExpression.compile(configuration, expression);
+      if (compiled == null) {
+        compiled = NOT_COMPILED;
+      }
+      expressions.put(expression, compiled);
+    }
+    return compiled;
+  }
+
+}
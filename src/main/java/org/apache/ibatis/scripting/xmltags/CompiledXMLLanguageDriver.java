@@ -0,0 +1,40 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Same syntax as the {@link XMLLanguageDriver}, but the tests of the <code>&lt;if&gt;</code> and
+ * <code>&lt;when&gt;</code> elements and the collections of the <code>&lt;foreach&gt;</code> elements are compiled
+ * by a {@link CompiledExpressionEvaluator} when the statement is built, so an invalid expression is reported by the
+ * mapper builder instead of the first execution.
+ * <p>
+ * Select it with <code>lang="COMPILED"</code> or with the <code>defaultScriptingLanguage</code> setting.
+ *
+ * @since 3.4.6
+ */
+public class CompiledXMLLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    XMLScriptBuilder builder = new XMLScriptBuilder(configuration, script, parameterType, new CompiledExpressionEvaluator(configuration));
+    return builder.parseScriptNode();
+  }
+
+}
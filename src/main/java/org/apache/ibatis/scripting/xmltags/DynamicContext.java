@@ -39,18 +39,27 @@ public class DynamicContext {
   }
 
   private final ContextMap bindings;
-  private final StringBuilder sqlBuilder = new StringBuilder();
+  private final StringBuilder sqlBuilder;
   private int uniqueNumber = 0;
 
   public DynamicContext(Configuration configuration, Object parameterObject) {
     if (parameterObject != null && !(parameterObject instanceof Map)) {
-      MetaObject metaObject = configuration.newMetaObject(parameterObject);
-      bindings = new ContextMap(metaObject);
+      bindings = new ContextMap(configuration, parameterObject);
     } else {
-      bindings = new ContextMap(null);
+      bindings = new ContextMap(null, null);
     }
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
+    sqlBuilder = new StringBuilder();
+  }
+
+  /*
+   * For contexts that decorate another one and delegate all their methods to it,
+   * so that they do not allocate bindings and a buffer of their own.
+   */
+  DynamicContext() {
+    bindings = null;
+    sqlBuilder = null;
   }
 
   public Map<String, Object> getBindings() {
@@ -77,9 +86,14 @@ public class DynamicContext {
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
 
+    private final Configuration configuration;
+    private final Object parameterObject;
     private MetaObject parameterMetaObject;
-    public ContextMap(MetaObject parameterMetaObject) {
-      this.parameterMetaObject = parameterMetaObject;
+
+    // the meta object is only built when a key is missing, most lookups hit the bindings
+    public ContextMap(Configuration configuration, Object parameterObject) {
+      this.configuration = configuration;
+      this.parameterObject = parameterObject;
     }
 
     @Override
@@ -89,7 +103,10 @@ public class DynamicContext {
         return super.get(strKey);
       }
 
-      if (parameterMetaObject != null) {
+      if (parameterObject != null) {
+        if (parameterMetaObject == null) {
+          parameterMetaObject = configuration.newMetaObject(parameterObject);
+        }
         // issue #61 do not modify the context when reading
         return parameterMetaObject.getValue(strKey);
       }
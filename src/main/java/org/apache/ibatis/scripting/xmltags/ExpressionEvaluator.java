@@ -29,7 +29,37 @@ import org.apache.ibatis.builder.BuilderException;
 public class ExpressionEvaluator {
 
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    return booleanValue(getValue(expression, parameterObject));
+  }
+
+  public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
+    return iterableValue(expression, getValue(expression, parameterObject));
+  }
+
+  /*
+   * Same as evaluateBoolean(String, Object), with the expression compiled by compile(String).
+   */
+  boolean evaluateBoolean(CompiledExpression compiled, String expression, Object parameterObject) {
+    return booleanValue(getValue(compiled, expression, parameterObject));
+  }
+
+  /*
+   * Same as evaluateIterable(String, Object), with the expression compiled by compile(String).
+   */
+  Iterable<?> evaluateIterable(CompiledExpression compiled, String expression, Object parameterObject) {
+    return iterableValue(expression, getValue(compiled, expression, parameterObject));
+  }
+
+  /*
+   * Called by the dynamic sql nodes when the statement is built.
+   *
+   * @return the compiled expression to give back on each evaluation, or null to evaluate the expression text
+   */
+  CompiledExpression compile(String expression) {
+    return null;
+  }
+
+  private boolean booleanValue(Object value) {
     if (value instanceof Boolean) {
       return (Boolean) value;
     }
@@ -39,8 +69,7 @@ public class ExpressionEvaluator {
     return value != null;
   }
 
-  public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    Object value = OgnlCache.getValue(expression, parameterObject);
+  private Iterable<?> iterableValue(String expression, Object value) {
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
@@ -65,4 +94,21 @@ public class ExpressionEvaluator {
     throw new BuilderException("Error evaluating expression '" + expression + "'.  Return value (" + value + ") was not iterable.");
   }
 
+  /**
+   * Evaluates the expression with OGNL.
+   *
+   * @since 3.4.6
+   */
+  protected Object getValue(String expression, Object parameterObject) {
+    return OgnlCache.getValue(expression, parameterObject);
+  }
+
+  private Object getValue(CompiledExpression compiled, String expression, Object parameterObject) {
+    Object value = compiled.getValue(parameterObject);
+    if (value == CompiledExpression.UNRESOLVED) {
+      return OgnlCache.getValue(expression, parameterObject);
+    }
+    return value;
+  }
+
 }
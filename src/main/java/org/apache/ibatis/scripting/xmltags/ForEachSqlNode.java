@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -29,17 +29,30 @@ public class ForEachSqlNode implements SqlNode {
 
   private final ExpressionEvaluator evaluator;
   private final String collectionExpression;
+  private final CompiledExpression compiledCollection;
   private final SqlNode contents;
   private final String open;
   private final String close;
   private final String separator;
   private final String item;
   private final String index;
+  private final boolean padding;
   private final Configuration configuration;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
-    this.evaluator = new ExpressionEvaluator();
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false, new ExpressionEvaluator());
+  }
+
+  /**
+   * @param padding when true, the last item is repeated until the number of items reaches the next power of two
+   *     (at most {@link Configuration#getForeachPaddingMaxSize()}), so that a few sql texts serve all collection sizes
+   * @since 3.4.6
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator, boolean padding, ExpressionEvaluator evaluator) {
+    this.evaluator = evaluator;
+    this.padding = padding;
     this.collectionExpression = collectionExpression;
+    this.compiledCollection = evaluator.compile(collectionExpression);
     this.contents = contents;
     this.open = open;
     this.close = close;
@@ -52,44 +65,67 @@ public class ForEachSqlNode implements SqlNode {
   @Override
   public boolean apply(DynamicContext context) {
     Map<String, Object> bindings = context.getBindings();
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    final Iterable<?> iterable = compiledCollection != null
+        ? evaluator.evaluateIterable(compiledCollection, collectionExpression, bindings)
+        : evaluator.evaluateIterable(collectionExpression, bindings);
     if (!iterable.iterator().hasNext()) {
       return true;
     }
     boolean first = true;
     applyOpen(context);
     int i = 0;
+    Object last = null;
     for (Object o : iterable) {
-      DynamicContext oldContext = context;
-      if (first || separator == null) {
-        context = new PrefixedContext(context, "");
-      } else {
-        context = new PrefixedContext(context, separator);
-      }
-      int uniqueNumber = context.getUniqueNumber();
-      // Issue #709 
-      if (o instanceof Map.Entry) {
-        @SuppressWarnings("unchecked") 
-        Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
-        applyIndex(context, mapEntry.getKey(), uniqueNumber);
-        applyItem(context, mapEntry.getValue(), uniqueNumber);
-      } else {
-        applyIndex(context, i, uniqueNumber);
-        applyItem(context, o, uniqueNumber);
-      }
-      contents.apply(new FilteredDynamicContext(configuration, context, index, item, uniqueNumber));
-      if (first) {
-        first = !((PrefixedContext) context).isPrefixApplied();
-      }
-      context = oldContext;
+      first = applyIteration(context, o, i, first);
+      last = o;
       i++;
     }
+    if (padding) {
+      // repeats the last item with its own index
+      for (int size = paddedSize(i), lastIndex = i - 1; i < size; i++) {
+        first = applyIteration(context, last, lastIndex, first);
+      }
+    }
     applyClose(context);
     context.getBindings().remove(item);
     context.getBindings().remove(index);
     return true;
   }
 
+  private boolean applyIteration(DynamicContext context, Object o, int i, boolean first) {
+    PrefixedContext prefixedContext;
+    if (first || separator == null) {
+      prefixedContext = new PrefixedContext(context, "");
+    } else {
+      prefixedContext = new PrefixedContext(context, separator);
+    }
+    int uniqueNumber = prefixedContext.getUniqueNumber();
+    // Issue #709 
+    if (o instanceof Map.Entry) {
+      @SuppressWarnings("unchecked") 
+      Map.Entry<Object, Object> mapEntry = (Map.Entry<Object, Object>) o;
+      applyIndex(prefixedContext, mapEntry.getKey(), uniqueNumber);
+      applyItem(prefixedContext, mapEntry.getValue(), uniqueNumber);
+    } else {
+      applyIndex(prefixedContext, i, uniqueNumber);
+      applyItem(prefixedContext, o, uniqueNumber);
+    }
+    contents.apply(new FilteredDynamicContext(configuration, prefixedContext, index, item, uniqueNumber));
+    return first && !prefixedContext.isPrefixApplied();
+  }
+
+  private int paddedSize(int size) {
+    int maxSize = configuration.getForeachPaddingMaxSize();
+    if (size >= maxSize) {
+      return size;
+    }
+    int paddedSize = Integer.highestOneBit(size);
+    if (paddedSize < size) {
+      paddedSize <<= 1;
+    }
+    return Math.min(paddedSize, maxSize);
+  }
+
   private void applyIndex(DynamicContext context, Object o, int i) {
     if (index != null) {
       context.bind(index, o);
@@ -127,7 +163,7 @@ public class ForEachSqlNode implements SqlNode {
     private final String item;
 
     public FilteredDynamicContext(Configuration configuration,DynamicContext delegate, String itemIndex, String item, int i) {
-      super(configuration, null);
+      super();
       this.delegate = delegate;
       this.index = i;
       this.itemIndex = itemIndex;
@@ -179,7 +215,7 @@ public class ForEachSqlNode implements SqlNode {
     private boolean prefixApplied;
 
     public PrefixedContext(DynamicContext delegate, String prefix) {
-      super(configuration, null);
+      super();
       this.delegate = delegate;
       this.prefix = prefix;
       this.prefixApplied = false;
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,23 +15,38 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.Map;
+
 /**
  * @author Clinton Begin
  */
 public class IfSqlNode implements SqlNode {
   private final ExpressionEvaluator evaluator;
   private final String test;
+  private final CompiledExpression compiledTest;
   private final SqlNode contents;
 
   public IfSqlNode(SqlNode contents, String test) {
+    this(contents, test, new ExpressionEvaluator());
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public IfSqlNode(SqlNode contents, String test, ExpressionEvaluator evaluator) {
     this.test = test;
     this.contents = contents;
-    this.evaluator = new ExpressionEvaluator();
+    this.evaluator = evaluator;
+    this.compiledTest = evaluator.compile(test);
   }
 
   @Override
   public boolean apply(DynamicContext context) {
-    if (evaluator.evaluateBoolean(test, context.getBindings())) {
+    Map<String, Object> bindings = context.getBindings();
+    boolean matches = compiledTest != null
+        ? evaluator.evaluateBoolean(compiledTest, test, bindings)
+        : evaluator.evaluateBoolean(test, bindings);
+    if (matches) {
       contents.apply(context);
       return true;
     }
@@ -0,0 +1,171 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Keeps the result of parsing the <code>#{}</code> placeholders of the sql generated by a {@link DynamicSqlSource},
+ * so that statements rendering the same sql text for the same parameter type are parsed only once.
+ * <p>
+ * The cache holds at most <code>maxSize</code> distinct sql texts, the least recently used one is dropped to make
+ * room for a new one.
+ *
+ * @since 3.4.6
+ */
+public class ParsedSqlCache {
+
+  private final Configuration configuration;
+  private final int maxSize;
+  private final Map<Key, Entry> entries;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  public ParsedSqlCache(Configuration configuration, int maxSize) {
+    this.configuration = configuration;
+    this.maxSize = maxSize;
+    this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+        return size() > ParsedSqlCache.this.maxSize;
+      }
+    };
+  }
+
+  public SqlSource getSqlSource(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+    Key key = new Key(sql, parameterType);
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+    }
+    if (entry != null && entry.matches(configuration, bindings)) {
+      hits.incrementAndGet();
+      return entry.sqlSource;
+    }
+    misses.incrementAndGet();
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    Map<String, Class<?>> additionalParameterTypes = new HashMap<String, Class<?>>();
+    SqlSource sqlSource = sqlSourceParser.parse(sql, parameterType, bindings, additionalParameterTypes);
+    if (maxSize > 0) {
+      synchronized (entries) {
+        entries.put(key, new Entry(sqlSource, additionalParameterTypes));
+      }
+    }
+    return sqlSource;
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public int getSize() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void clear() {
+    synchronized (entries) {
+      entries.clear();
+    }
+  }
+
+  private static class Key {
+
+    private final String sql;
+    private final Class<?> parameterType;
+    private final int hashCode;
+
+    Key(String sql, Class<?> parameterType) {
+      this.sql = sql;
+      this.parameterType = parameterType;
+      this.hashCode = 31 * sql.hashCode() + parameterType.hashCode();
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return parameterType == other.parameterType && sql.equals(other.sql);
+    }
+  }
+
+  private static class Entry {
+
+    private final SqlSource sqlSource;
+    private final String[] properties;
+    private final Class<?>[] additionalParameterTypes;
+
+    Entry(SqlSource sqlSource, Map<String, Class<?>> additionalParameterTypes) {
+      this.sqlSource = sqlSource;
+      this.properties = new String[additionalParameterTypes.size()];
+      this.additionalParameterTypes = new Class<?>[additionalParameterTypes.size()];
+      int i = 0;
+      for (Map.Entry<String, Class<?>> entry : additionalParameterTypes.entrySet()) {
+        this.properties[i] = entry.getKey();
+        this.additionalParameterTypes[i] = entry.getValue();
+        i++;
+      }
+    }
+
+    /*
+     * Parameter mappings may take their java type from the bindings (foreach items, bind variables),
+     * so the cached result is only reused when the bindings resolve to the same types.
+     */
+    boolean matches(Configuration configuration, Map<String, Object> bindings) {
+      if (properties.length == 0) {
+        return true;
+      }
+      MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (int i = 0; i < properties.length; i++) {
+        Class<?> type = metaBindings.hasGetter(properties[i]) ? metaBindings.getGetterType(properties[i]) : null;
+        if (type != additionalParameterTypes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+}
@@ -76,7 +76,7 @@ public class TrimSqlNode implements SqlNode {
     private StringBuilder sqlBuffer;
 
     public FilteredDynamicContext(DynamicContext delegate) {
-      super(configuration, null);
+      super();
       this.delegate = delegate;
       this.prefixApplied = false;
       this.suffixApplied = false;
@@ -0,0 +1,164 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Options of the {@link ExecutorType#BATCH} executor of a session.
+ * <p>
+ * {@link Configuration#newBatchOptions()} returns options initialized from the global settings, which can be
+ * changed before opening a session with {@link org.apache.ibatis.session.defaults.DefaultSqlSessionFactory#openSession(BatchOptions)}.
+ *
+ * @since 3.4.6
+ */
+public class BatchOptions {
+
+  private boolean reordering;
+  private List<String> insertOrder = Collections.emptyList();
+  private int maxBatchRows;
+  private int maxBatchedStatements;
+  private long maxBatchBytes;
+  private BatchResultHandler resultHandler;
+  private boolean multiRowInsert;
+  private int maxRowsPerInsert = 1000;
+  private int maxBindParameters = 2000;
+
+  public boolean isReordering() {
+    return reordering;
+  }
+
+  /**
+   * Keeps one open statement per distinct mapped statement and sql, instead of only the last one, so that
+   * interleaved statements keep being batched.
+   * <p>
+   * Batches are executed in the order of their first statement. A statement is only added to a batch opened
+   * earlier when no batch opened in between reads or writes a table it writes, or writes a table it reads. The
+   * tables are declared with the <code>tables</code> attribute or found in the sql, unknown tables prevent any
+   * move. Since a row may reference the rows of other tables written before it, the batches opened in between
+   * must also write no other table, unless both statements are inserts following the {@link #setInsertOrder
+   * insert order}.
+   */
+  public void setReordering(boolean reordering) {
+    this.reordering = reordering;
+  }
+
+  public List<String> getInsertOrder() {
+    return insertOrder;
+  }
+
+  /**
+   * Sets the tables in the order their rows can be inserted, parents before children, empty by default.
+   * <p>
+   * With reordering, an insert is moved ahead of inserts into other tables only when its table comes first in
+   * this order, so that batches of children never run before the batches of their parents.
+   */
+  public void setInsertOrder(List<String> insertOrder) {
+    this.insertOrder = insertOrder;
+  }
+
+  public int getMaxBatchRows() {
+    return maxBatchRows;
+  }
+
+  /**
+   * Flushes the statements once one batch holds this number of rows, 0 (the default) for no limit.
+   */
+  public void setMaxBatchRows(int maxBatchRows) {
+    this.maxBatchRows = maxBatchRows;
+  }
+
+  public int getMaxBatchedStatements() {
+    return maxBatchedStatements;
+  }
+
+  /**
+   * Flushes the statements once this number of rows is batched over all the batches, 0 (the default) for no limit.
+   */
+  public void setMaxBatchedStatements(int maxBatchedStatements) {
+    this.maxBatchedStatements = maxBatchedStatements;
+  }
+
+  public long getMaxBatchBytes() {
+    return maxBatchBytes;
+  }
+
+  /**
+   * Flushes the statements once the parameter objects of all the batches are estimated to hold this number of
+   * bytes, 0 (the default) for no limit.
+   * @see org.apache.ibatis.cache.weigher.ObjectSizeWeigher
+   */
+  public void setMaxBatchBytes(long maxBatchBytes) {
+    this.maxBatchBytes = maxBatchBytes;
+  }
+
+  public BatchResultHandler getResultHandler() {
+    return resultHandler;
+  }
+
+  /**
+   * Sets the handler receiving the results of every flush as it happens.
+   * <p>
+   * Without a handler, the results of the automatic flushes are kept until the next call to
+   * {@link SqlSession#flushStatements()}, which returns them along with its own, so the parameter objects stay
+   * referenced. With a handler, they are only delivered to it and memory stays bounded by the limits.
+   */
+  public void setResultHandler(BatchResultHandler resultHandler) {
+    this.resultHandler = resultHandler;
+  }
+
+  public boolean isMultiRowInsert() {
+    return multiRowInsert;
+  }
+
+  /**
+   * Sends the rows of a batched <code>INSERT ... VALUES (...)</code> as multi row
+   * <code>INSERT ... VALUES (...), (...)</code> statements instead of a jdbc batch, for drivers sending each
+   * batched row separately.
+   * <p>
+   * Only prepared inserts of a single row without a clause after the values are rewritten, and only when their
+   * keys are not generated or generated by the driver. The update count of each row is 1 when a statement
+   * inserted all its rows, {@link java.sql.Statement#SUCCESS_NO_INFO} otherwise.
+   * @see org.apache.ibatis.parsing.MultiRowInsertSql
+   */
+  public void setMultiRowInsert(boolean multiRowInsert) {
+    this.multiRowInsert = multiRowInsert;
+  }
+
+  public int getMaxRowsPerInsert() {
+    return maxRowsPerInsert;
+  }
+
+  /**
+   * Sets the maximum number of rows of a multi row insert, 1000 by default, 0 for no limit.
+   */
+  public void setMaxRowsPerInsert(int maxRowsPerInsert) {
+    this.maxRowsPerInsert = maxRowsPerInsert;
+  }
+
+  public int getMaxBindParameters() {
+    return maxBindParameters;
+  }
+
+  /**
+   * Sets the maximum number of parameters of a multi row insert, 2000 by default, 0 for no limit.
+   */
+  public void setMaxBindParameters(int maxBindParameters) {
+    this.maxBindParameters = maxBindParameters;
+  }
+
+}
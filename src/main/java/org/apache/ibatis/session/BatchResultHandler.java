@@ -0,0 +1,32 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.List;
+
+import org.apache.ibatis.executor.BatchResult;
+
+/**
+ * Receives the results of each flush of a {@link ExecutorType#BATCH} executor, including the flushes triggered
+ * by the limits of its {@link BatchOptions}.
+ *
+ * @since 3.4.6
+ */
+public interface BatchResultHandler {
+
+  void handleBatchResults(List<BatchResult> batchResults);
+
+}
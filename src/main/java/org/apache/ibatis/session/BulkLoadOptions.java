@@ -0,0 +1,95 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+/**
+ * Options of a {@link BulkLoader}.
+ *
+ * @since 3.4.6
+ */
+public class BulkLoadOptions {
+
+  private int chunkSize = 1000;
+  private int threads = 2;
+  private int maxInFlightChunks = 4;
+  private BatchOptions batchOptions;
+  private BulkLoadListener listener;
+
+  public int getChunkSize() {
+    return chunkSize;
+  }
+
+  /**
+   * Sets the number of parameter objects run as one batch and committed together, 1000 by default.
+   */
+  public void setChunkSize(int chunkSize) {
+    checkPositive("chunkSize", chunkSize);
+    this.chunkSize = chunkSize;
+  }
+
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Sets the number of threads running the chunks, each with its own session and connection, 2 by default.
+   * Chunks run by different threads may be committed in any order, so a load depending on the order of its rows
+   * must use a single thread.
+   */
+  public void setThreads(int threads) {
+    checkPositive("threads", threads);
+    this.threads = threads;
+  }
+
+  public int getMaxInFlightChunks() {
+    return maxInFlightChunks;
+  }
+
+  /**
+   * Sets the number of chunks read ahead of their commit, 4 by default. Reading the parameter objects blocks
+   * while this number of chunks is running or waiting for a thread, which bounds the memory used by the load.
+   */
+  public void setMaxInFlightChunks(int maxInFlightChunks) {
+    checkPositive("maxInFlightChunks", maxInFlightChunks);
+    this.maxInFlightChunks = maxInFlightChunks;
+  }
+
+  public BatchOptions getBatchOptions() {
+    return batchOptions;
+  }
+
+  /**
+   * Sets the options of the batch sessions running the chunks, {@link Configuration#newBatchOptions()} by default.
+   */
+  public void setBatchOptions(BatchOptions batchOptions) {
+    this.batchOptions = batchOptions;
+  }
+
+  public BulkLoadListener getListener() {
+    return listener;
+  }
+
+  public void setListener(BulkLoadListener listener) {
+    this.listener = listener;
+  }
+
+  private static void checkPositive(String option, int value) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(option + " must be positive but was " + value);
+    }
+  }
+
+}
@@ -0,0 +1,103 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of a bulk load, updated while it runs.
+ * <p>
+ * A reader often waiting for a free chunk is faster than the database, more threads or larger chunks may help.
+ * A reader never waiting is the bottleneck.
+ *
+ * @since 3.4.6
+ */
+public class BulkLoadProgress {
+
+  private final long startTime = System.nanoTime();
+  private final AtomicLong rowsRead = new AtomicLong();
+  private final AtomicLong rowsCommitted = new AtomicLong();
+  private final AtomicLong chunksCommitted = new AtomicLong();
+  private final AtomicLong readerWaitTime = new AtomicLong();
+  private volatile long endTime;
+
+  void rowsRead(int rows) {
+    rowsRead.addAndGet(rows);
+  }
+
+  void chunkCommitted(int rows) {
+    rowsCommitted.addAndGet(rows);
+    chunksCommitted.incrementAndGet();
+  }
+
+  void readerWaited(long nanos) {
+    readerWaitTime.addAndGet(nanos);
+  }
+
+  void finish() {
+    endTime = System.nanoTime();
+  }
+
+  /**
+   * Returns the number of parameter objects read from the source.
+   */
+  public long getRowsRead() {
+    return rowsRead.get();
+  }
+
+  /**
+   * Returns the number of parameter objects run and committed.
+   */
+  public long getRowsCommitted() {
+    return rowsCommitted.get();
+  }
+
+  public long getChunksCommitted() {
+    return chunksCommitted.get();
+  }
+
+  /**
+   * Returns the milliseconds the reader waited for a chunk to be committed.
+   */
+  public long getReaderWaitTime() {
+    return TimeUnit.NANOSECONDS.toMillis(readerWaitTime.get());
+  }
+
+  /**
+   * Returns the milliseconds elapsed since the start of the load, until its end once finished.
+   */
+  public long getElapsedTime() {
+    long end = endTime;
+    return TimeUnit.NANOSECONDS.toMillis((end == 0 ? System.nanoTime() : end) - startTime);
+  }
+
+  /**
+   * Returns the number of rows committed per second since the start of the load.
+   */
+  public double getRowsPerSecond() {
+    long elapsed = getElapsedTime();
+    return elapsed == 0 ? 0 : getRowsCommitted() * 1000d / elapsed;
+  }
+
+  @Override
+  public String toString() {
+    return "BulkLoadProgress [rowsRead=" + getRowsRead() + ", rowsCommitted=" + getRowsCommitted()
+        + ", chunksCommitted=" + getChunksCommitted() + ", readerWaitTime=" + getReaderWaitTime()
+        + ", elapsedTime=" + getElapsedTime() + "]";
+  }
+
+}
@@ -0,0 +1,179 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.session;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+
+/**
+ * Runs an insert, update or delete statement for each parameter object of a source.
+ * <p>
+ * The calling thread reads the parameter objects, for example from a {@link org.apache.ibatis.cursor.Cursor} of
+ * another session, and groups them in chunks. Meanwhile the previous chunks are run by a pool of threads, each
+ * with its own {@link ExecutorType#BATCH} session and connection, and committed one by one. Once a chunk failed
+ * no other chunk is started, and the load throws after the running chunks are done: the chunks committed so
+ * far, counted by the {@link BulkLoadProgress} passed to the listener, are not rolled back.
+ *
+ * @since 3.4.6
+ */
+public class BulkLoader {
+
+  private static final AtomicInteger loaderCount = new AtomicInteger();
+
+  private final DefaultSqlSessionFactory sqlSessionFactory;
+  private final BulkLoadOptions options;
+
+  public BulkLoader(DefaultSqlSessionFactory sqlSessionFactory, BulkLoadOptions options) {
+    this.sqlSessionFactory = sqlSessionFactory;
+    this.options = options;
+  }
+
+  public BulkLoadProgress load(final String statement, Iterator<?> parameters) {
+    final BulkLoadProgress progress = new BulkLoadProgress();
+    final Semaphore inFlightChunks = new Semaphore(options.getMaxInFlightChunks());
+    final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+    final List<SqlSession> sessions = new ArrayList<SqlSession>();
+    final ThreadLocal<SqlSession> workerSession = new ThreadLocal<SqlSession>() {
+      @Override
+      protected SqlSession initialValue() {
+        SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions());
+        synchronized (sessions) {
+          sessions.add(sqlSession);
+        }
+        return sqlSession;
+      }
+    };
+    ExecutorService workers = Executors.newFixedThreadPool(options.getThreads(), threadFactory());
+    try {
+      while (failure.get() == null && parameters.hasNext()) {
+        final List<Object> chunk = new ArrayList<Object>(options.getChunkSize());
+        while (chunk.size() < options.getChunkSize() && parameters.hasNext()) {
+          chunk.add(parameters.next());
+        }
+        progress.rowsRead(chunk.size());
+        long start = System.nanoTime();
+        inFlightChunks.acquire();
+        progress.readerWaited(System.nanoTime() - start);
+        workers.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              if (failure.get() == null) {
+                loadChunk(workerSession.get(), statement, chunk, progress);
+              }
+            } catch (Throwable t) {
+              // errors too, the pool thread would otherwise drop them
+              failure.compareAndSet(null, t);
+            } finally {
+              inFlightChunks.release();
+            }
+          }
+        });
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, e);
+    } catch (RuntimeException e) {
+      // thrown by the source
+      failure.compareAndSet(null, e);
+    } finally {
+      awaitTermination(workers);
+      synchronized (sessions) {
+        for (SqlSession sqlSession : sessions) {
+          sqlSession.close();
+        }
+      }
+      progress.finish();
+    }
+    Throwable cause = failure.get();
+    if (cause != null) {
+      try {
+        String message = "Error bulk loading with " + statement + ". " + progress.getRowsCommitted()
+            + " rows were committed. Cause: " + cause;
+        throw new PersistenceException(ErrorContext.instance().message(message).cause(cause).toString(), cause);
+      } finally {
+        ErrorContext.instance().reset();
+      }
+    }
+    return progress;
+  }
+
+  private void loadChunk(SqlSession sqlSession, String statement, List<Object> chunk, BulkLoadProgress progress) {
+    try {
+      for (Object parameter : chunk) {
+        sqlSession.update(statement, parameter);
+      }
+      sqlSession.commit();
+    } catch (RuntimeException e) {
+      sqlSession.rollback(true);
+      throw e;
+    }
+    progress.chunkCommitted(chunk.size());
+    if (options.getListener() != null) {
+      options.getListener().chunkCommitted(progress, chunk.size());
+    }
+  }
+
+  private BatchOptions batchOptions() {
+    BatchOptions batchOptions = options.getBatchOptions();
+    return batchOptions != null ? batchOptions : sqlSessionFactory.getConfiguration().newBatchOptions();
+  }
+
+  private static ThreadFactory threadFactory() {
+    final int loader = loaderCount.incrementAndGet();
+    return new ThreadFactory() {
+      private final AtomicInteger threadCount = new AtomicInteger();
+
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "mybatis-bulk-load-" + loader + "-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    };
+  }
+
+  private static void awaitTermination(ExecutorService workers) {
+    workers.shutdown();
+    // the sessions can only be closed once no chunk uses them
+    boolean interrupted = false;
+    while (true) {
+      try {
+        if (workers.awaitTermination(1, TimeUnit.SECONDS)) {
+          break;
+        }
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+}
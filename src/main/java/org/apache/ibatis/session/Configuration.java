@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.apache.ibatis.session;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -24,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,11 +33,19 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.CacheStatsListener;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.decorators.WeightedLruCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -49,6 +59,8 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.resultset.AutoMappingCache;
+import org.apache.ibatis.executor.resultset.RowMapperGenerator;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
@@ -82,6 +94,7 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledXMLLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -130,6 +143,25 @@ public class Configuration {
 
   protected boolean returnInstanceForEmptyRow;
 
+  //每个动态SQL语句缓存的已解析SQL（#{}占位符解析结果）的最大数量，0 表示不缓存
+  protected int dynamicSqlCacheSize = 64;
+
+  //设置了padding的foreach补齐参数个数时的上限，超过该数量的集合不补齐
+  protected int foreachPaddingMaxSize = 1000;
+
+  //跨查询共享的自动映射缓存（按ResultMap、列前缀和结果集列的形态缓存），0 表示不缓存
+  protected AutoMappingCache autoMappingCache = new AutoMappingCache(256);
+
+  //映射属性、自动映射和行键时是否按列索引而不是列名读取结果集
+  protected boolean columnIndexMappingEnabled;
+
+  //是否为简单（非嵌套）ResultMap生成按列索引直接调用setter的字节码映射类
+  protected boolean rowMapperGenerationEnabled;
+  protected final RowMapperGenerator rowMapperGenerator = new RowMapperGenerator(256);
+
+  //未声明tables的语句是否从SQL中推导读写的表, 用于二级缓存按表失效(动态SQL的写语句无法推导, 会清空整个缓存)
+  protected boolean deriveCacheTables;
+
   //指定Mybaties增加到日志名称的前缀
   protected String logPrefix;
   //指定Mybaties所用日志的具体实现,未指定时将自动查找
@@ -142,6 +174,10 @@ public class Configuration {
      若设置值为 STATEMENT，本地会话仅用在语句执行上，对相同 SqlSession 的不同调用将不会共享数据。
    */
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  //SESSION范围的本地缓存最多保存的查询结果数量，超过时按LRU淘汰，0 表示不限制
+  protected int localCacheSize;
+  //SESSION范围的本地缓存中查询结果的最大估算字节数，超过时按LRU淘汰，0 表示不限制
+  protected long localCacheMaxWeight;
   /*
     当没有为参数提供特定的JDBC类型时，为空值指定JDBC类型。
     某些驱动需要指定列的JDBC类型，多数情况直接用一般类型即可，比如 NULL、VARCHAR 或 OTHER。
@@ -159,6 +195,18 @@ public class Configuration {
       BATCH 执行器将重用语句并执行批量更新。
    */
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
+  //BATCH执行器是否为每个不同的语句保持一个打开的批次, 使交替执行的语句也能继续批量执行
+  protected boolean batchReordering;
+  //重排序时按此顺序(父表在前)插入各表, 插入其他表的批次之间的语句只在此声明的顺序下重排序
+  protected List<String> batchInsertOrder = Collections.emptyList();
+  //BATCH执行器自动flush的阈值: 单个批次的行数, 所有批次的总行数, 参数对象的估算字节数, 0表示不限制
+  protected int batchMaxRows;
+  protected int batchMaxStatements;
+  protected long batchMaxBytes;
+  //BATCH执行器是否将单行的INSERT ... VALUES改写为多行VALUES语句, 以及每条语句的最大行数和参数个数
+  protected boolean batchMultiRowInsert;
+  protected int batchMaxRowsPerInsert = 1000;
+  protected int batchMaxBindParameters = 2000;
   /**
    * 指定 MyBatis 应如何自动映射列到字段或属性。
    * NONE 表示取消自动映射；
@@ -230,6 +278,11 @@ public class Configuration {
    * namespace which the actual cache is bound to.
    */
   protected final Map<String, String> cacheRefMap = new HashMap<String, String>();
+  // 各命名空间二级缓存的统计信息
+  protected final Map<String, CacheStatistics> cacheStatistics = new HashMap<String, CacheStatistics>();
+  protected final List<CacheStatsListener> cacheStatsListeners = new CopyOnWriteArrayList<CacheStatsListener>();
+  //将提交时二级缓存的失效传播到其他节点, null 表示不传播
+  protected CacheInvalidationBus cacheInvalidationBus;
 
   //--------------------------------------------------- 变量Variables End----------------------------------------------------------------
 
@@ -254,10 +307,15 @@ public class Configuration {
 
     //Cache缓存的eviction(驱逐,赶出,回收): 回收策略:
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("CONCURRENT", ConcurrentLruCache.class);
+    typeAliasRegistry.registerAlias("OFF_HEAP", OffHeapCache.class);
+    typeAliasRegistry.registerAlias("JDK_SERIALIZATION", JdkCacheSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT_SERIALIZATION", CompactCacheSerializer.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("WEIGHTED", WeightedLruCache.class);
 
     //多数据源厂商Type<databaseIdProvider type="DB_VENDOR">类型
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
@@ -265,6 +323,7 @@ public class Configuration {
     //语言驱动别名类型
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
+    typeAliasRegistry.registerAlias("COMPILED", CompiledXMLLanguageDriver.class);
 
     //日志别名类型
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
@@ -353,6 +412,116 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getForeachPaddingMaxSize() {
+    return foreachPaddingMaxSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setForeachPaddingMaxSize(int foreachPaddingMaxSize) {
+    this.foreachPaddingMaxSize = foreachPaddingMaxSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getAutoMappingCacheSize() {
+    return autoMappingCache.getMaxSize();
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setAutoMappingCacheSize(int autoMappingCacheSize) {
+    this.autoMappingCache = new AutoMappingCache(autoMappingCacheSize);
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public AutoMappingCache getAutoMappingCache() {
+    return autoMappingCache;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public boolean isColumnIndexMappingEnabled() {
+    return columnIndexMappingEnabled;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setColumnIndexMappingEnabled(boolean columnIndexMappingEnabled) {
+    this.columnIndexMappingEnabled = columnIndexMappingEnabled;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public boolean isRowMapperGenerationEnabled() {
+    return rowMapperGenerationEnabled;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setRowMapperGenerationEnabled(boolean rowMapperGenerationEnabled) {
+    this.rowMapperGenerationEnabled = rowMapperGenerationEnabled;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public boolean isDeriveCacheTables() {
+    return deriveCacheTables;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setDeriveCacheTables(boolean deriveCacheTables) {
+    this.deriveCacheTables = deriveCacheTables;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public RowMapperGenerator getRowMapperGenerator() {
+    return rowMapperGenerator;
+  }
+
   //getter
   public String getDatabaseId() {
     return databaseId;
@@ -577,6 +746,183 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public boolean isBatchReordering() {
+    return batchReordering;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchReordering(boolean batchReordering) {
+    this.batchReordering = batchReordering;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public List<String> getBatchInsertOrder() {
+    return batchInsertOrder;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchInsertOrder(List<String> batchInsertOrder) {
+    this.batchInsertOrder = batchInsertOrder;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getBatchMaxRows() {
+    return batchMaxRows;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMaxRows(int batchMaxRows) {
+    this.batchMaxRows = batchMaxRows;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getBatchMaxStatements() {
+    return batchMaxStatements;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMaxStatements(int batchMaxStatements) {
+    this.batchMaxStatements = batchMaxStatements;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public long getBatchMaxBytes() {
+    return batchMaxBytes;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMaxBytes(long batchMaxBytes) {
+    this.batchMaxBytes = batchMaxBytes;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public boolean isBatchMultiRowInsert() {
+    return batchMultiRowInsert;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMultiRowInsert(boolean batchMultiRowInsert) {
+    this.batchMultiRowInsert = batchMultiRowInsert;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getBatchMaxRowsPerInsert() {
+    return batchMaxRowsPerInsert;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMaxRowsPerInsert(int batchMaxRowsPerInsert) {
+    this.batchMaxRowsPerInsert = batchMaxRowsPerInsert;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getBatchMaxBindParameters() {
+    return batchMaxBindParameters;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setBatchMaxBindParameters(int batchMaxBindParameters) {
+    this.batchMaxBindParameters = batchMaxBindParameters;
+  }
+
+  /**
+   * Returns new batch options initialized from the global settings.
+   * @since 3.4.6
+   */
+  public BatchOptions newBatchOptions() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(batchReordering);
+    batchOptions.setInsertOrder(batchInsertOrder);
+    batchOptions.setMaxBatchRows(batchMaxRows);
+    batchOptions.setMaxBatchedStatements(batchMaxStatements);
+    batchOptions.setMaxBatchBytes(batchMaxBytes);
+    batchOptions.setMultiRowInsert(batchMultiRowInsert);
+    batchOptions.setMaxRowsPerInsert(batchMaxRowsPerInsert);
+    batchOptions.setMaxBindParameters(batchMaxBindParameters);
+    return batchOptions;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public int getLocalCacheSize() {
+    return localCacheSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setLocalCacheSize(int localCacheSize) {
+    this.localCacheSize = localCacheSize;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //getter
+  public long getLocalCacheMaxWeight() {
+    return localCacheMaxWeight;
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  //setter
+  public void setLocalCacheMaxWeight(long localCacheMaxWeight) {
+    this.localCacheMaxWeight = localCacheMaxWeight;
+  }
+
   //getter
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
@@ -730,12 +1076,20 @@ public class Configuration {
    * 创建Executor执行器
    */
   public Executor newExecutor(Transaction transaction, ExecutorType executorType) {
+    return newExecutor(transaction, executorType, null);
+  }
+
+  /**
+   * 创建Executor执行器, BATCH执行器使用给定的批处理选项, null 表示使用全局设置
+   * @since 3.4.6
+   */
+  public Executor newExecutor(Transaction transaction, ExecutorType executorType, BatchOptions batchOptions) {
     executorType = executorType == null ? defaultExecutorType : executorType;
     executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
     Executor executor;
     if (ExecutorType.BATCH == executorType) {
       //创建Batch批处理Executor执行器
-      executor = new BatchExecutor(this, transaction);
+      executor = new BatchExecutor(this, transaction, batchOptions == null ? newBatchOptions() : batchOptions);
     } else if (ExecutorType.REUSE == executorType) {
       //创建Reuse复用Executor执行器
       executor = new ReuseExecutor(this, transaction);
@@ -746,7 +1100,7 @@ public class Configuration {
     //是否开启了全局性的缓存cache
     if (cacheEnabled) {
       //创建Caching缓存Executor执行器
-      executor = new CachingExecutor(executor);
+      executor = new CachingExecutor(executor, cacheInvalidationBus);
     }
     //加载所有的Plugins插件
     executor = (Executor) interceptorChain.pluginAll(executor);
@@ -793,6 +1147,58 @@ public class Configuration {
     return caches.containsKey(id);
   }
 
+  /**
+   * @since 3.4.6
+   */
+  public void addCacheStatistics(CacheStatistics statistics) {
+    cacheStatistics.put(statistics.getId(), statistics);
+  }
+
+  /**
+   * Returns the statistics of the cache of a namespace, or <code>null</code> when the cache is not known.
+   * @since 3.4.6
+   */
+  public CacheStatistics getCacheStatistics(String id) {
+    return cacheStatistics.get(id);
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public Collection<CacheStatistics> getCacheStatistics() {
+    return cacheStatistics.values();
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public CacheInvalidationBus getCacheInvalidationBus() {
+    return cacheInvalidationBus;
+  }
+
+  /**
+   * Sets the bus propagating the second level cache invalidations committed by the sessions opened afterwards.
+   * @since 3.4.6
+   */
+  public void setCacheInvalidationBus(CacheInvalidationBus cacheInvalidationBus) {
+    this.cacheInvalidationBus = cacheInvalidationBus;
+  }
+
+  /**
+   * Adds a listener notified of the events of all the namespace caches, including those already built.
+   * @since 3.4.6
+   */
+  public void addCacheStatsListener(CacheStatsListener listener) {
+    cacheStatsListeners.add(listener);
+  }
+
+  /**
+   * @since 3.4.6
+   */
+  public List<CacheStatsListener> getCacheStatsListeners() {
+    return cacheStatsListeners;
+  }
+
   public void addResultMap(ResultMap rm) {
     resultMaps.put(rm.getId(), rm);
     checkLocallyForDiscriminatedNestedResultMaps(rm);
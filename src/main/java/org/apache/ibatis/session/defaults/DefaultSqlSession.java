@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -25,10 +25,13 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cache.impl.LocalCache;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
+import org.apache.ibatis.executor.BaseExecutor;
 import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
@@ -334,6 +337,21 @@ public class DefaultSqlSession implements SqlSession {
     executor.clearLocalCache();
   }
 
+  /**
+   * Retrieves the local session cache, to bound it or read its hit and miss counts.
+   * Returns <code>null</code> when the executor is wrapped by a plugin or is not a built-in one.
+   * @return LocalCache
+   * @since 3.4.6
+   */
+  public LocalCache getLocalCache() {
+    if (executor instanceof BaseExecutor) {
+      return ((BaseExecutor) executor).getLocalCache();
+    } else if (executor instanceof CachingExecutor) {
+      return ((CachingExecutor) executor).getLocalCache();
+    }
+    return null;
+  }
+
   //注册游标(将Cursor加入到List集合)
   private <T> void registerCursor(Cursor<T> cursor) {
     if (cursorList == null) {
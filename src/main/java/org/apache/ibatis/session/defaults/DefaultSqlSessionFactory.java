@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,11 +17,16 @@ package org.apache.ibatis.session.defaults;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.Iterator;
 
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.BatchOptions;
+import org.apache.ibatis.session.BulkLoadOptions;
+import org.apache.ibatis.session.BulkLoadProgress;
+import org.apache.ibatis.session.BulkLoader;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ExecutorType;
 import org.apache.ibatis.session.SqlSession;
@@ -76,6 +81,32 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
     return openSessionFromDataSource(execType, null, autoCommit);
   }
 
+  /**
+   * Opens a session with a {@link ExecutorType#BATCH} executor using the given options.
+   * @since 3.4.6
+   */
+  public SqlSession openSession(BatchOptions batchOptions) {
+    return openSessionFromDataSource(ExecutorType.BATCH, null, false, batchOptions);
+  }
+
+  /**
+   * Runs a statement for each parameter object with the default {@link BulkLoadOptions}.
+   * @see BulkLoader
+   * @since 3.4.6
+   */
+  public BulkLoadProgress bulkLoad(String statement, Iterator<?> parameters) {
+    return bulkLoad(statement, parameters, new BulkLoadOptions());
+  }
+
+  /**
+   * Runs a statement for each parameter object, in chunks committed by several sessions.
+   * @see BulkLoader
+   * @since 3.4.6
+   */
+  public BulkLoadProgress bulkLoad(String statement, Iterator<?> parameters, BulkLoadOptions options) {
+    return new BulkLoader(this, options).load(statement, parameters);
+  }
+
   //---------------------------------------------------------------
   //    End   openSessionFromDataSource
   //---------------------------------------------------------------
@@ -108,6 +139,10 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
    * 从数据源中打开会话(Session)
    */
   private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
+    return openSessionFromDataSource(execType, level, autoCommit, null);
+  }
+
+  private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit, BatchOptions batchOptions) {
     Transaction tx = null;
     try {
       //获取Environment对象
@@ -117,7 +152,7 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
       //从事务工厂中创建一个新事务newTransaction--通过数据源DataSource
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
       //从Configuration配置中创建一个Executor[执行器]
-      final Executor executor = configuration.newExecutor(tx, execType);
+      final Executor executor = configuration.newExecutor(tx, execType, batchOptions);
       //创建一个默认的DefaultSqlSession--Sql会话
       return new DefaultSqlSession(configuration, executor, autoCommit);
     } catch (Exception e) {
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -99,6 +99,22 @@ public class XmlConfigBuilderTest {
     assertNull(config.getLogPrefix());
     assertNull(config.getLogImpl());
     assertNull(config.getConfigurationFactory());
+    assertThat(config.getDynamicSqlCacheSize()).isEqualTo(64);
+    assertThat(config.getForeachPaddingMaxSize()).isEqualTo(1000);
+    assertThat(config.getAutoMappingCacheSize()).isEqualTo(256);
+    assertThat(config.isColumnIndexMappingEnabled()).isFalse();
+    assertThat(config.isRowMapperGenerationEnabled()).isFalse();
+    assertThat(config.isDeriveCacheTables()).isFalse();
+    assertThat(config.getLocalCacheSize()).isEqualTo(0);
+    assertThat(config.getLocalCacheMaxWeight()).isEqualTo(0L);
+    assertThat(config.isBatchReordering()).isFalse();
+    assertThat(config.getBatchInsertOrder()).isEmpty();
+    assertThat(config.getBatchMaxRows()).isEqualTo(0);
+    assertThat(config.getBatchMaxStatements()).isEqualTo(0);
+    assertThat(config.getBatchMaxBytes()).isEqualTo(0L);
+    assertThat(config.isBatchMultiRowInsert()).isFalse();
+    assertThat(config.getBatchMaxRowsPerInsert()).isEqualTo(1000);
+    assertThat(config.getBatchMaxBindParameters()).isEqualTo(2000);
     assertThat(config.getTypeHandlerRegistry().getTypeHandler(RoundingMode.class)).isInstanceOf(EnumTypeHandler.class);
     inputStream.close();
   }
@@ -193,6 +209,22 @@ public class XmlConfigBuilderTest {
       assertThat(config.getLogImpl().getName()).isEqualTo(Slf4jImpl.class.getName());
       assertThat(config.getVfsImpl().getName()).isEqualTo(JBoss6VFS.class.getName());
       assertThat(config.getConfigurationFactory().getName()).isEqualTo(String.class.getName());
+      assertThat(config.getDynamicSqlCacheSize()).isEqualTo(16);
+      assertThat(config.getForeachPaddingMaxSize()).isEqualTo(100);
+      assertThat(config.getAutoMappingCacheSize()).isEqualTo(32);
+      assertThat(config.isColumnIndexMappingEnabled()).isTrue();
+      assertThat(config.isRowMapperGenerationEnabled()).isTrue();
+      assertThat(config.isDeriveCacheTables()).isTrue();
+      assertThat(config.getLocalCacheSize()).isEqualTo(500);
+      assertThat(config.getLocalCacheMaxWeight()).isEqualTo(1048576L);
+      assertThat(config.isBatchReordering()).isTrue();
+      assertThat(config.getBatchInsertOrder()).isEqualTo(Arrays.asList("orders", "order_lines"));
+      assertThat(config.getBatchMaxRows()).isEqualTo(1000);
+      assertThat(config.getBatchMaxStatements()).isEqualTo(5000);
+      assertThat(config.getBatchMaxBytes()).isEqualTo(67108864L);
+      assertThat(config.isBatchMultiRowInsert()).isTrue();
+      assertThat(config.getBatchMaxRowsPerInsert()).isEqualTo(500);
+      assertThat(config.getBatchMaxBindParameters()).isEqualTo(2100);
 
       assertTrue(config.getTypeAliasRegistry().getTypeAliases().get("blogauthor").equals(Author.class));
       assertTrue(config.getTypeAliasRegistry().getTypeAliases().get("blog").equals(Blog.class));
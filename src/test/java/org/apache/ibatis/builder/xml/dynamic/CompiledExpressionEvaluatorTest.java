@@ -0,0 +1,172 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder.xml.dynamic;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.CompiledXMLLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.DynamicContext;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
+import org.apache.ibatis.scripting.xmltags.IfSqlNode;
+import org.apache.ibatis.scripting.xmltags.StaticTextSqlNode;
+import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CompiledExpressionEvaluatorTest {
+
+  private final Configuration configuration = new Configuration();
+  private final CompiledExpressionEvaluator evaluator = new CompiledExpressionEvaluator(configuration);
+  private final ExpressionEvaluator ognlEvaluator = new ExpressionEvaluator();
+
+  @Test
+  public void shouldEvaluateNodesLikeOgnl() {
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("username", "cbegin");
+    parameter.put("list", Arrays.asList(1, 2));
+    parameter.put("id", 3);
+    parameter.put("favouriteSection", null);
+    parameter.put("author", new Author(1, "cbegin", null, "cbegin@apache.org", "", Section.NEWS));
+    String[] expressions = { "username != null", "username != null and username != ''",
+        "list != null && list.size() > 0", "!(id gte 10) or favouriteSection == null", "author.username == \"cbegin\"",
+        "username == 'c'", "username.length() > 3", "id + 1 > 3", "@java.lang.Math@max(id, 1) > 3", "list[0] != null" };
+    for (String expression : expressions) {
+      DynamicContext compiledContext = new DynamicContext(configuration, parameter);
+      DynamicContext ognlContext = new DynamicContext(configuration, parameter);
+      new IfSqlNode(new StaticTextSqlNode("matched"), expression, evaluator).apply(compiledContext);
+      new IfSqlNode(new StaticTextSqlNode("matched"), expression, ognlEvaluator).apply(ognlContext);
+      assertEquals(expression, ognlContext.getSql(), compiledContext.getSql());
+    }
+  }
+
+  @Test
+  public void shouldReportInvalidExpressionsWhenTheStatementIsBuilt() {
+    configuration.setDefaultScriptingLanguage(CompiledXMLLanguageDriver.class);
+    LanguageDriver driver = configuration.getDefaultScriptingLanguageInstance();
+    String invalidTest = "<script>select * from author <if test='username != null and'>where username = #{username}</if></script>";
+    String invalidCollection = "<script>select * from author where id in "
+        + "<foreach collection='ids[' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>";
+    for (String script : new String[] { invalidTest, invalidCollection }) {
+      // OGNL only reports these when the statement is executed
+      new XMLLanguageDriver().createSqlSource(configuration, script, Map.class);
+      try {
+        driver.createSqlSource(configuration, script, Map.class);
+        fail("Should have thrown a BuilderException");
+      } catch (BuilderException e) {
+        assertTrue(e.getMessage().startsWith("Error compiling expression"));
+      }
+    }
+  }
+
+  @Test
+  public void shouldEvaluateLikeOgnlOnBeanParameter() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "", Section.NEWS);
+    assertSameAsOgnl(author,
+        "username != null", "username == null", "password != null", "password == null",
+        "username == 'cbegin'", "username != 'norm'", "bio != null and bio != ''", "bio == '' or id == 0",
+        "id > 0", "id >= 1", "id lt 1", "id lte 0", "id == 1 and !(id != 1)", "not username", "not bio",
+        "favouriteSection != null", "username.isEmpty()", "_parameter.username == \"cbegin\"",
+        "_databaseId == null", "id", "password");
+  }
+
+  @Test
+  public void shouldEvaluateLikeOgnlOnMapParameter() {
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("ids", Arrays.asList(1, 2, 3));
+    parameter.put("empty", Collections.emptyList());
+    parameter.put("nested", Collections.singletonMap("name", "value"));
+    parameter.put("author", new Author(2, "jim", "******", "jim@ibatis.apache.org", "", Section.VIDEOS));
+    parameter.put("flag", Boolean.TRUE);
+    parameter.put("count", 0L);
+    assertSameAsOgnl(parameter,
+        "ids != null and ids.size() > 0", "empty.size() > 0", "empty.isEmpty()", "missing == null",
+        "missing != null and missing.size() > 0", "nested.name == 'value'", "nested.size() == 1",
+        "author.username == 'jim'", "author.id > 1 || flag", "flag == true", "!flag", "count == 0", "count",
+        "author.favouriteSection");
+  }
+
+  @Test
+  public void shouldIterateOverCompiledCollection() {
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("author", new Author(1));
+    Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+    bindings.put("array", new int[] { 1, 2, 3 });
+    bindings.put("ids", Arrays.asList(1, 2, 3));
+    List<Object> values = new ArrayList<Object>();
+    for (Object value : evaluator.evaluateIterable("ids", bindings)) {
+      values.add(value);
+    }
+    for (Object value : evaluator.evaluateIterable("array", bindings)) {
+      values.add(value);
+    }
+    assertEquals(Arrays.<Object>asList(1, 2, 3, 1, 2, 3), values);
+  }
+
+  @Test
+  public void shouldReportMissingPropertyLikeOgnl() {
+    Map<String, Object> bindings = new DynamicContext(configuration, new Author(1)).getBindings();
+    try {
+      evaluator.evaluateBoolean("unknown != null", bindings);
+      fail("Should have thrown a ReflectionException");
+    } catch (ReflectionException e) {
+      assertTrue(e.getMessage().contains("'unknown'"));
+    }
+  }
+
+  @Test
+  public void shouldBuildDynamicSqlWithCompiledDriver() {
+    String script = "<script>select * from author <where>"
+        + "<if test='username != null'>and username = #{username} </if>"
+        + "<if test='password != null'>and password = #{password} </if>"
+        + "<if test=\"ids != null and ids.size() > 0\">and id in "
+        + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></if>"
+        + "</where></script>";
+    configuration.setDefaultScriptingLanguage(CompiledXMLLanguageDriver.class);
+    LanguageDriver driver = configuration.getDefaultScriptingLanguageInstance();
+    SqlSource sqlSource = driver.createSqlSource(configuration, script, Map.class);
+    SqlSource ognlSqlSource = new XMLLanguageDriver().createSqlSource(configuration, script, Map.class);
+    Map<String, Object> parameter = new HashMap<String, Object>();
+    parameter.put("username", "cbegin");
+    parameter.put("ids", Arrays.asList(1, 2));
+    BoundSql boundSql = sqlSource.getBoundSql(parameter);
+    assertEquals(ognlSqlSource.getBoundSql(parameter).getSql(), boundSql.getSql());
+    assertEquals("select * from author  WHERE  username = ? and id in (?,?)", boundSql.getSql());
+    assertEquals(3, boundSql.getParameterMappings().size());
+  }
+
+  private void assertSameAsOgnl(Object parameter, String... expressions) {
+    for (String expression : expressions) {
+      Map<String, Object> bindings = new DynamicContext(configuration, parameter).getBindings();
+      assertEquals(expression, ognlEvaluator.evaluateBoolean(expression, bindings), evaluator.evaluateBoolean(expression, bindings));
+    }
+  }
+
+}
@@ -16,12 +16,14 @@
 package org.apache.ibatis.builder.xml.dynamic;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -31,6 +33,7 @@ import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.scripting.xmltags.ChooseSqlNode;
 import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.scripting.xmltags.ExpressionEvaluator;
 import org.apache.ibatis.scripting.xmltags.ForEachSqlNode;
 import org.apache.ibatis.scripting.xmltags.IfSqlNode;
 import org.apache.ibatis.scripting.xmltags.MixedSqlNode;
@@ -364,6 +367,90 @@ public class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  public void shouldReuseParsedSqlForSameSqlText() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ","));
+    BoundSql first = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2 }));
+    BoundSql second = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 3, 4 }));
+    BoundSql third = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 5, 6, 7 }));
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? )", second.getSql());
+    assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(3, second.getAdditionalParameter("__frch_item_0"));
+    assertEquals(3, third.getParameterMappings().size());
+    assertEquals(1, source.getParsedSqlCache().getHitCount());
+    assertEquals(2, source.getParsedSqlCache().getMissCount());
+    assertEquals(2, source.getParsedSqlCache().getSize());
+  }
+
+  @Test
+  public void shouldParseAgainWhenBindingTypesChange() throws Exception {
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ","));
+    BoundSql integers = source.getBoundSql(Collections.singletonMap("array", new Object[] { 1 }));
+    BoundSql strings = source.getBoundSql(Collections.singletonMap("array", new Object[] { "1" }));
+    assertEquals(Integer.class, integers.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, strings.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, source.getParsedSqlCache().getHitCount());
+    assertEquals(2, source.getParsedSqlCache().getMissCount());
+  }
+
+  @Test
+  public void shouldNotCacheParsedSqlWhenDisabled() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(0);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(new TextSqlNode("SELECT * FROM BLOG WHERE ID = #{id}")));
+    source.getBoundSql(new Bean("1"));
+    source.getBoundSql(new Bean("2"));
+    assertEquals(0, source.getParsedSqlCache().getHitCount());
+    assertEquals(2, source.getParsedSqlCache().getMissCount());
+    assertEquals(0, source.getParsedSqlCache().getSize());
+  }
+
+  @Test
+  public void shouldDropLeastRecentlyUsedParsedSql() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(2);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(new TextSqlNode("SELECT * FROM BLOG WHERE ID in"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ",")));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1 }));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2 }));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1 }));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3 }));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1 }));
+    source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3 }));
+    assertEquals(3, source.getParsedSqlCache().getHitCount());
+    assertEquals(3, source.getParsedSqlCache().getMissCount());
+    assertEquals(2, source.getParsedSqlCache().getSize());
+  }
+
+  @Test
+  public void shouldPadForEachItemsToPowerOfTwo() throws Exception {
+    ForEachSqlNode forEach = new ForEachSqlNode(new Configuration(), mixedContents(new TextSqlNode("#{item}")), "array", "index", "item", "(", ")", ",",
+        true, new ExpressionEvaluator());
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE ID in"), forEach);
+    BoundSql three = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3 }));
+    BoundSql four = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3, 4 }));
+    BoundSql one = source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1 }));
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? , ? , ? , ? )", three.getSql());
+    assertEquals(three.getSql(), four.getSql());
+    assertEquals(3, three.getAdditionalParameter("__frch_item_2"));
+    assertEquals(3, three.getAdditionalParameter("__frch_item_3"));
+    assertEquals(2, three.getAdditionalParameter("__frch_index_3"));
+    assertEquals("SELECT * FROM BLOG WHERE ID in (  ? )", one.getSql());
+  }
+
+  @Test
+  public void shouldNotPadForEachItemsBeyondMaxSize() throws Exception {
+    Configuration configuration = new Configuration();
+    configuration.setForeachPaddingMaxSize(6);
+    ForEachSqlNode forEach = new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "array", null, "item", "(", ")", ",",
+        true, new ExpressionEvaluator());
+    DynamicSqlSource source = createDynamicSqlSource(new TextSqlNode("SELECT * FROM BLOG WHERE ID in"), forEach);
+    assertEquals(6, source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3, 4, 5 })).getParameterMappings().size());
+    assertEquals(7, source.getBoundSql(Collections.singletonMap("array", new Integer[] { 1, 2, 3, 4, 5, 6, 7 })).getParameterMappings().size());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
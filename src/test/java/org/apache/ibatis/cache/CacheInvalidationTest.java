@@ -0,0 +1,215 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.TableInvalidatingCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.invalidation.BatchingInvalidationBus;
+import org.apache.ibatis.cache.invalidation.CacheInvalidation;
+import org.apache.ibatis.cache.invalidation.CacheInvalidationBus;
+import org.apache.ibatis.cache.invalidation.InvalidationTransport;
+import org.apache.ibatis.cache.invalidation.JournalInvalidationTransport;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class CacheInvalidationTest {
+
+  @Test
+  public void shouldMergeInvalidationsOfTheSameCache() {
+    CacheInvalidation merged = CacheInvalidation.tables("ns", Arrays.asList("a"))
+        .merge(CacheInvalidation.tables("ns", Arrays.asList("b")), 10)
+        .merge(CacheInvalidation.keys("ns", Arrays.asList("k")), 10);
+    assertFalse(merged.isClear());
+    assertEquals(new HashSet<String>(Arrays.asList("a", "b")), merged.getTables());
+    assertEquals(Collections.<Object>singleton("k"), merged.getKeys());
+    assertTrue(merged.merge(CacheInvalidation.clear("ns"), 10).isClear());
+    assertTrue(merged.merge(CacheInvalidation.keys("ns", Arrays.asList("k1", "k2")), 2).isClear());
+  }
+
+  @Test
+  public void shouldPublishInvalidationsOnCommitOnly() {
+    RecordingBus bus = new RecordingBus();
+    Cache cache = new CacheBuilder("ns").tableInvalidation(true).build();
+    TransactionalCache txCache = new TransactionalCache(cache, bus);
+    txCache.clear(new HashSet<String>(Arrays.asList("author")));
+    txCache.rollback();
+    assertTrue(bus.published.isEmpty());
+    txCache.clear(new HashSet<String>(Arrays.asList("author")));
+    txCache.commit();
+    txCache.clear();
+    txCache.commit();
+    txCache.commit();
+    assertEquals(2, bus.published.size());
+    assertEquals(Collections.singleton("author"), bus.published.get(0).getTables());
+    assertTrue(bus.published.get(1).isClear());
+  }
+
+  @Test
+  public void shouldCoalescePublishedInvalidations() {
+    RecordingTransport transport = new RecordingTransport();
+    BatchingInvalidationBus bus = new BatchingInvalidationBus(new Configuration(), transport);
+    bus.setBatchDelay(60000);
+    bus.publish(CacheInvalidation.tables("ns", Arrays.asList("a")));
+    bus.publish(CacheInvalidation.tables("ns", Arrays.asList("b")));
+    bus.publish(CacheInvalidation.clear("other"));
+    bus.close();
+    assertEquals(1, transport.sent.size());
+    assertEquals(2, transport.sent.get(0).size());
+    assertEquals(new HashSet<String>(Arrays.asList("a", "b")), transport.sent.get(0).get(0).getTables());
+  }
+
+  @Test
+  public void shouldInvalidateCachesOfOtherNodesThroughJournal() throws Exception {
+    File journal = File.createTempFile("mybatis-invalidation", ".journal");
+    journal.deleteOnExit();
+    TableInvalidatingCache cache1 = newCache();
+    TableInvalidatingCache cache2 = newCache();
+    BatchingInvalidationBus bus1 = newBus(journal, cache1);
+    BatchingInvalidationBus bus2 = newBus(journal, cache2);
+    try {
+      cache2.putObject("authors", "1", new HashSet<String>(Arrays.asList("author")));
+      cache2.putObject("blogs", "2", new HashSet<String>(Arrays.asList("blog")));
+      bus1.publish(CacheInvalidation.tables("ns", Arrays.asList("author")));
+      waitUntilRemoved(cache2, "authors");
+      assertEquals("2", cache2.getObject("blogs"));
+
+      cache1.putObject("blogs", "2");
+      bus2.publish(CacheInvalidation.clear("ns"));
+      waitUntilRemoved(cache1, "blogs");
+    } finally {
+      bus1.close();
+      bus2.close();
+    }
+  }
+
+  @Test
+  public void shouldResetOnlyNodesThatMissedTruncatedBatches() throws Exception {
+    File journal = File.createTempFile("mybatis-invalidation", ".journal");
+    journal.deleteOnExit();
+    RecordingReceiver receiver1 = new RecordingReceiver();
+    RecordingReceiver receiver2 = new RecordingReceiver();
+    RecordingReceiver receiver3 = new RecordingReceiver();
+    JournalInvalidationTransport transport1 = newTransport(journal, receiver1);
+    JournalInvalidationTransport transport2 = newTransport(journal, receiver2);
+    JournalInvalidationTransport transport3 = newTransport(journal, receiver3);
+    try {
+      List<CacheInvalidation> batch = Collections.singletonList(CacheInvalidation.clear("ns"));
+      transport1.send(batch);
+      transport2.poll();
+      // the journal is truncated on every send
+      transport1.setMaxJournalSize(1);
+      transport1.send(batch);
+      transport2.poll();
+      transport3.poll();
+      assertEquals(0, receiver2.resets);
+      assertEquals(2, receiver2.received);
+      assertEquals(1, receiver3.resets);
+      assertEquals(1, receiver3.received);
+      transport1.poll();
+      assertEquals(0, receiver1.resets);
+      assertEquals(0, receiver1.received);
+    } finally {
+      transport1.close();
+      transport2.close();
+      transport3.close();
+    }
+  }
+
+  private static JournalInvalidationTransport newTransport(File journal, RecordingReceiver receiver) throws Exception {
+    JournalInvalidationTransport transport = new JournalInvalidationTransport(journal);
+    transport.setPollInterval(60000);
+    transport.open(receiver);
+    return transport;
+  }
+
+  private static TableInvalidatingCache newCache() {
+    return (TableInvalidatingCache) new CacheBuilder("ns").tableInvalidation(true).build();
+  }
+
+  private static BatchingInvalidationBus newBus(File journal, Cache cache) {
+    Configuration configuration = new Configuration();
+    configuration.addCache(cache);
+    JournalInvalidationTransport transport = new JournalInvalidationTransport(journal);
+    transport.setPollInterval(10);
+    BatchingInvalidationBus bus = new BatchingInvalidationBus(configuration, transport);
+    bus.setBatchDelay(10);
+    return bus;
+  }
+
+  private static void waitUntilRemoved(Cache cache, Object key) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cache.getObject(key) != null) {
+      assertTrue("Invalidation not received", System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+
+  private static class RecordingBus implements CacheInvalidationBus {
+    private final List<CacheInvalidation> published = new ArrayList<CacheInvalidation>();
+
+    @Override
+    public void publish(CacheInvalidation invalidation) {
+      published.add(invalidation);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+  private static class RecordingReceiver implements InvalidationTransport.Receiver {
+    int received;
+    int resets;
+
+    @Override
+    public void receive(List<CacheInvalidation> invalidations) {
+      received++;
+    }
+
+    @Override
+    public void reset() {
+      resets++;
+    }
+  }
+
+  private static class RecordingTransport implements InvalidationTransport {
+    private final List<List<CacheInvalidation>> sent = new ArrayList<List<CacheInvalidation>>();
+
+    @Override
+    public void open(Receiver receiver) {
+    }
+
+    @Override
+    public void send(List<CacheInvalidation> invalidations) {
+      sent.add(invalidations);
+    }
+
+    @Override
+    public void close() {
+    }
+  }
+
+}
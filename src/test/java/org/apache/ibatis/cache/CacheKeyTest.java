@@ -104,6 +104,51 @@ public class CacheKeyTest {
     Assert.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  public void shouldTreatPrimitiveUpdatesLikeBoxedOnes() throws Exception {
+    CacheKey key1 = new CacheKey(2);
+    key1.update("statement");
+    key1.update(10);
+    key1.update(Long.MAX_VALUE);
+    key1.update(null);
+    CacheKey key2 = new CacheKey(new Object[] { "statement", 10, Long.MAX_VALUE, null });
+    assertEquals(key1, key2);
+    assertEquals(key2, key1);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertEquals(key1.toString(), key2.toString());
+    assertEquals(4, key1.getUpdateCount());
+    assertEquals(key1, serialize(key1));
+
+    CacheKey key3 = new CacheKey(new Object[] { "statement", 10L, Long.MAX_VALUE, null });
+    assertFalse(key1.equals(key3));
+  }
+
+  @Test
+  public void shouldTreatNarrowPrimitiveUpdatesLikeBoxedOnes() throws Exception {
+    CacheKey key1 = new CacheKey();
+    key1.update((byte) 1);
+    key1.update((short) 2);
+    key1.update('c');
+    CacheKey key2 = new CacheKey(new Object[] { Byte.valueOf((byte) 1), Short.valueOf((short) 2), Character.valueOf('c') });
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+    assertFalse(key1.equals(new CacheKey(new Object[] { 1, 2, (int) 'c' })));
+  }
+
+  @Test
+  public void shouldNotShareStateWithClone() throws Exception {
+    CacheKey key = new CacheKey();
+    key.update(1);
+    key.update("value");
+    CacheKey clone = key.clone();
+    clone.update(2);
+    assertEquals(2, key.getUpdateCount());
+    assertEquals(3, clone.getUpdateCount());
+    assertFalse(key.equals(clone));
+    key.update(2);
+    assertEquals(key, clone);
+  }
+
   private static <T> T serialize(T object) throws Exception {
       ByteArrayOutputStream baos = new ByteArrayOutputStream();
       new ObjectOutputStream(baos).writeObject(object);
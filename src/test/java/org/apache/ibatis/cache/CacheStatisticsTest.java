@@ -0,0 +1,141 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.WeightedLruCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class CacheStatisticsTest {
+
+  @Test
+  public void shouldCountHitsMissesPutsAndEvictions() {
+    CacheStatistics statistics = new CacheStatistics("test");
+    Cache cache = new CacheBuilder("test").addDecorator(LruCache.class).size(2).statistics(statistics).build();
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.putObject("c", "c");
+    assertNull(cache.getObject("a"));
+    assertEquals("c", cache.getObject("c"));
+    assertEquals(1, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(3, statistics.getPutCount());
+    assertEquals(1, statistics.getEvictionCount());
+    assertEquals(2, statistics.getSize());
+    assertEquals(-1, statistics.getEstimatedBytes());
+    statistics.reset();
+    assertEquals(0, statistics.getPutCount());
+    assertEquals(0, statistics.getHitRatio(), 0);
+  }
+
+  @Test
+  public void shouldCountEvictionsOfThreadSafeAndExpiringCaches() throws Exception {
+    CacheStatistics statistics = new CacheStatistics("test");
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLruCache.class).size(1)
+        .statistics(statistics).build();
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    assertEquals(1, statistics.getEvictionCount());
+
+    statistics = new CacheStatistics("test");
+    ExpiringCache expiringCache = new ExpiringCache(new PerpetualCache("test"));
+    expiringCache.setExpireAfterWrite(10);
+    expiringCache.setEvictionListener(statistics);
+    expiringCache.putObject("a", "a");
+    Thread.sleep(30);
+    assertNull(expiringCache.getObject("a"));
+    assertEquals(1, statistics.getEvictionCount());
+  }
+
+  @Test
+  public void shouldKeepDeprecatedCountersOfUnsynchronizedChains() throws Exception {
+    final CountingCache cache = new CountingCache(new ConcurrentLruCache("test"));
+    cache.putObject("a", "a");
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            cache.getObject(j % 2 == 0 ? "a" : "b");
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(40000, cache.getRequests());
+    assertEquals(20000, cache.getHits());
+  }
+
+  @SuppressWarnings("deprecation")
+  private static class CountingCache extends LoggingCache {
+
+    CountingCache(Cache delegate) {
+      super(delegate);
+    }
+
+    int getRequests() {
+      return requests;
+    }
+
+    int getHits() {
+      return hits;
+    }
+  }
+
+  @Test
+  public void shouldReportTheWeightAsEstimatedBytes() {
+    CacheStatistics statistics = new CacheStatistics("test");
+    Properties props = new Properties();
+    props.setProperty("weigherType", WeightedLruCacheTest.LengthWeigher.class.getName());
+    Cache cache = new CacheBuilder("test").addDecorator(WeightedLruCache.class).properties(props)
+        .statistics(statistics).build();
+    cache.putObject("a", "1234");
+    cache.putObject("b", "12");
+    assertEquals(6, statistics.getEstimatedBytes());
+  }
+
+  @Test
+  public void shouldExposeStatisticsAsMBean() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    CacheStatistics statistics = new CacheStatistics("org.apache.ibatis.Mapper");
+    Cache cache = new CacheBuilder("org.apache.ibatis.Mapper").statistics(statistics).build();
+    ObjectName name = statistics.registerMBean(server);
+    cache.getObject("a");
+    assertEquals(1L, server.getAttribute(name, "MissCount"));
+    assertEquals(0, server.getAttribute(name, "Size"));
+    server.invoke(name, "reset", null, null);
+    assertEquals(0L, server.getAttribute(name, "MissCount"));
+    assertEquals(name, statistics.registerMBean(server));
+  }
+
+}
@@ -0,0 +1,267 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JdkCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class CompactCacheSerializerTest {
+
+  private final CompactCacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  public void shouldRoundTripSimpleValues() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.<Object>asList(null, true, false, 0, -1, Integer.MIN_VALUE, Long.MAX_VALUE,
+        (short) -7, (byte) 3, 'x', '€', 1.5f, -2.25d, Double.NaN, "", "plain", "café 中文",
+        new BigDecimal("-12345.6789"), new BigInteger("123456789012345678901234567890"), new Date(42L),
+        new java.sql.Date(86400000L), new java.sql.Time(3600000L), timestamp, Section.NEWS);
+    for (Object value : values) {
+      assertEquals(value, roundTrip(value));
+    }
+    assertArrayEquals(new byte[] { 1, -2, 3 }, (byte[]) roundTrip(new byte[] { 1, -2, 3 }));
+    assertArrayEquals(new String[] { "a", null }, (String[]) roundTrip(new String[] { "a", null }));
+  }
+
+  @Test
+  public void shouldRoundTripDateAndTimeValues() {
+    List<Object> values = Arrays.<Object>asList(LocalDate.of(1969, 7, 20), LocalTime.of(23, 59, 59, 999999999),
+        LocalDateTime.of(2018, 2, 3, 4, 5, 6, 7), Instant.ofEpochSecond(-1L, 500));
+    assertEquals(values, roundTrip(new ArrayList<Object>(values)));
+  }
+
+  @Test
+  public void shouldRoundTripCollections() {
+    Map<String, Object> map = new LinkedHashMap<String, Object>();
+    map.put("b", Arrays.asList(1, 2));
+    TreeMap<String, Integer> sorted = new TreeMap<String, Integer>();
+    sorted.put("two", 2);
+    sorted.put("one", 1);
+    map.put("a", sorted);
+    map.put("c", new LinkedHashSet<String>(Arrays.asList("z", "y")));
+    List<Object> list = new ArrayList<Object>();
+    list.add(map);
+    list.add(new HashMap<Integer, String>());
+    Object copy = roundTrip(list);
+    assertEquals(list, copy);
+    assertEquals(ArrayList.class, copy.getClass());
+    Map<?, ?> mapCopy = (Map<?, ?>) ((List<?>) copy).get(0);
+    assertEquals(LinkedHashMap.class, mapCopy.getClass());
+    assertEquals(Arrays.asList("b", "a", "c"), new ArrayList<Object>(mapCopy.keySet()));
+    assertEquals(Arrays.asList("z", "y"), new ArrayList<Object>((LinkedHashSet<?>) mapCopy.get("c")));
+  }
+
+  @Test
+  public void shouldRoundTripBeansAsCopies() {
+    Author author = new Author(101, "jim", "********", "jim@ibatis.apache.org", "Something...", Section.VIDEOS);
+    Author copy = (Author) roundTrip(author);
+    assertNotSame(author, copy);
+    assertEquals(author, copy);
+    assertEquals(Section.VIDEOS, copy.getFavouriteSection());
+  }
+
+  @Test
+  public void shouldRoundTripBeanArraysAlongWithBeans() {
+    Author first = new Author(1, "jim", "********", "jim@ibatis.apache.org", null, Section.NEWS);
+    Author second = new Author(2, "sally", "********", "sally@ibatis.apache.org", null, Section.VIDEOS);
+    List<Object> list = new ArrayList<Object>();
+    list.add(new Author[] { first });
+    list.add(second);
+    list.add(Section.NEWS);
+    list.add(new Author[] { second });
+    List<?> copy = (List<?>) roundTrip(list);
+    assertArrayEquals(new Author[] { first }, (Author[]) copy.get(0));
+    assertEquals(second, copy.get(1));
+    assertEquals(Section.NEWS, copy.get(2));
+    assertArrayEquals(new Author[] { second }, (Author[]) copy.get(3));
+
+    list = new ArrayList<Object>();
+    list.add(first);
+    list.add(new Author[] { second });
+    copy = (List<?>) roundTrip(list);
+    assertEquals(first, copy.get(0));
+    assertArrayEquals(new Author[] { second }, (Author[]) copy.get(1));
+  }
+
+  @Test
+  public void shouldKeepSharedAndCyclicReferences() {
+    Node parent = new Node();
+    parent.setName("parent");
+    Node child = new Node();
+    child.setName("child");
+    child.setParent(parent);
+    parent.getChildren().add(child);
+    parent.getChildren().add(child);
+    parent.setParent(parent);
+    Node copy = (Node) roundTrip(parent);
+    assertEquals("parent", copy.getName());
+    assertSame(copy, copy.getParent());
+    assertEquals(2, copy.getChildren().size());
+    assertSame(copy.getChildren().get(0), copy.getChildren().get(1));
+    assertEquals("child", copy.getChildren().get(0).getName());
+    assertSame(copy, copy.getChildren().get(0).getParent());
+  }
+
+  @Test
+  public void shouldFallBackToJavaSerialization() {
+    ImmutableValue value = new ImmutableValue("fixed");
+    List<Object> list = new ArrayList<Object>();
+    list.add(value);
+    list.add(value);
+    List<?> copy = (List<?>) roundTrip(list);
+    assertEquals("fixed", ((ImmutableValue) copy.get(0)).getValue());
+    assertSame(copy.get(0), copy.get(1));
+  }
+
+  @Test
+  public void shouldBeSmallerThanJavaSerialization() {
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "********", "user" + i + "@apache.org", null, Section.NEWS));
+    }
+    byte[] compact = serializer.serialize(authors);
+    byte[] jdk = new JdkCacheSerializer().serialize(authors);
+    assertTrue(compact.length < jdk.length);
+    assertEquals(authors, serializer.deserialize(compact));
+  }
+
+  @Test
+  public void shouldBeFasterThanJavaSerialization() {
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "********", "user" + i + "@apache.org", null, Section.NEWS));
+    }
+    // the default serializer of SerializedCache
+    CacheSerializer jdkSerializer = new JdkCacheSerializer();
+    long compactTime = Long.MAX_VALUE;
+    long jdkTime = Long.MAX_VALUE;
+    // best of several rounds, the first ones warm up both serializers
+    for (int round = 0; round < 10; round++) {
+      jdkTime = Math.min(jdkTime, time(jdkSerializer, authors, 200));
+      compactTime = Math.min(compactTime, time(serializer, authors, 200));
+    }
+    assertTrue("compact serializer took " + compactTime + "ns, java serialization " + jdkTime + "ns",
+        compactTime < jdkTime);
+  }
+
+  @Test
+  public void shouldUseConfiguredSerializer() {
+    Cache cache = new CacheBuilder("test").implementation(PerpetualCache.class)
+        .readWrite(true).serializer(CompactCacheSerializer.class).build();
+    Author author = new Author(1);
+    cache.putObject("author", author);
+    Object copy = cache.getObject("author");
+    assertEquals(author, copy);
+    assertNotSame(author, copy);
+
+    Cache serializedCache = new SerializedCache(new PerpetualCache("test"), serializer);
+    serializedCache.putObject("author", author);
+    assertEquals(author, serializedCache.getObject("author"));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectUnknownData() {
+    serializer.deserialize(new byte[] { 127 });
+  }
+
+  private Object roundTrip(Object value) {
+    return serializer.deserialize(serializer.serialize(value));
+  }
+
+  private static long time(CacheSerializer serializer, Object value, int iterations) {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      assertEquals(value, serializer.deserialize(serializer.serialize(value)));
+    }
+    return System.nanoTime() - start;
+  }
+
+  public static class Node implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private String name;
+    private Node parent;
+    private List<Node> children = new ArrayList<Node>();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Node getParent() {
+      return parent;
+    }
+
+    public void setParent(Node parent) {
+      this.parent = parent;
+    }
+
+    public List<Node> getChildren() {
+      return children;
+    }
+
+    public void setChildren(List<Node> children) {
+      this.children = children;
+    }
+  }
+
+  public static class ImmutableValue implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String value;
+
+    public ImmutableValue(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+}
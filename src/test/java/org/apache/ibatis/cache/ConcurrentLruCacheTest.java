@@ -0,0 +1,134 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
+import org.junit.Test;
+
+public class ConcurrentLruCacheTest {
+
+  @Test
+  public void shouldRemoveLeastRecentlyUsedItemInBeyondFiveEntries() {
+    ConcurrentLruCache cache = new ConcurrentLruCache("default");
+    cache.setSize(5);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(0, cache.getObject(0));
+    cache.putObject(5, 5);
+    assertNull(cache.getObject(1));
+    assertEquals(5, cache.getSize());
+  }
+
+  @Test
+  public void shouldKeepRecentlyUsedItemsWhenSampling() {
+    ConcurrentLruCache cache = new ConcurrentLruCache("default");
+    cache.setSize(100);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    for (int i = 100; i < 1000; i++) {
+      assertEquals(0, cache.getObject(0));
+      cache.putObject(i, i);
+    }
+    assertEquals(100, cache.getSize());
+    assertEquals(0, cache.getObject(0));
+  }
+
+  @Test
+  public void shouldShrinkToNewSize() {
+    ConcurrentLruCache cache = new ConcurrentLruCache("default");
+    for (int i = 0; i < 50; i++) {
+      cache.putObject(i, i);
+    }
+    cache.setSize(10);
+    assertEquals(10, cache.getSize());
+    assertEquals(49, cache.getObject(49));
+  }
+
+  @Test
+  public void shouldReplaceAndRemoveItems() {
+    Cache cache = new ConcurrentLruCache("default");
+    cache.putObject(0, 0);
+    cache.putObject(0, 1);
+    cache.putObject(1, null);
+    assertEquals(2, cache.getSize());
+    assertEquals(1, cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(1, cache.removeObject(0));
+    assertNull(cache.removeObject(0));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldFlushAllItemsOnDemand() {
+    Cache cache = new ConcurrentLruCache("default");
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertNotNull(cache.getObject(0));
+    assertNotNull(cache.getObject(4));
+    cache.clear();
+    assertNull(cache.getObject(0));
+    assertNull(cache.getObject(4));
+    cache.putObject(0, 0);
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldStayBoundedUnderConcurrentAccess() throws Exception {
+    final ConcurrentLruCache cache = new ConcurrentLruCache("default");
+    cache.setSize(64);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < 8; t++) {
+        final int offset = t * 1000;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < 1000; i++) {
+              Integer key = offset + i;
+              cache.putObject(key, key);
+              Object value = cache.getObject(key);
+              assertTrue(value == null || key.equals(value));
+              if (i % 10 == 0) {
+                cache.removeObject(key);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      assertTrue(cache.getSize() <= 64);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  @Test
+  public void shouldExpireAfterWrite() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(30);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+    Thread.sleep(60);
+    assertNull(cache.getObject("key"));
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldExpireIdleEntries() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterAccess(50);
+    cache.putObject("read", "value");
+    cache.putObject("idle", "value");
+    for (int i = 0; i < 10; i++) {
+      Thread.sleep(10);
+      assertEquals("value", cache.getObject("read"));
+    }
+    assertNull(cache.getObject("idle"));
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldExpireAfterWriteEvenWhenRead() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterAccess(16);
+    cache.setExpireAfterWrite(150);
+    cache.putObject("key", "value");
+    long start = System.currentTimeMillis();
+    while (cache.getObject("key") != null) {
+      Thread.sleep(2);
+    }
+    assertTrue(System.currentTimeMillis() - start >= 150);
+  }
+
+  @Test
+  public void shouldReclaimExpiredEntriesIncrementally() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(300);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, i);
+    }
+    Thread.sleep(400);
+    int size = cache.getSize();
+    assertTrue(size > 0 && size < 1000);
+    int calls = 1;
+    while (cache.getSize() > 0) {
+      calls++;
+    }
+    assertTrue(calls > 2);
+    assertNull(cache.getObject(999));
+  }
+
+  @Test
+  public void shouldSpreadExpirationsWithJitter() throws Exception {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(20);
+    cache.setExpiryJitter(400);
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    Thread.sleep(100);
+    int alive = 0;
+    for (int i = 0; i < 100; i++) {
+      if (cache.getObject(i) != null) {
+        alive++;
+      }
+    }
+    assertTrue(alive > 0 && alive < 100);
+    Thread.sleep(400);
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getObject(i));
+    }
+  }
+
+  @Test
+  public void shouldForgetRemovedEntries() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("default"));
+    cache.setExpireAfterWrite(60000);
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.removeObject("a");
+    assertNull(cache.getObject("a"));
+    assertEquals("b", cache.getObject("b"));
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    cache.putObject("a", "a");
+    assertEquals("a", cache.getObject("a"));
+  }
+
+}
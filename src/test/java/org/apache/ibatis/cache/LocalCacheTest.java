@@ -0,0 +1,104 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.impl.LocalCache;
+import org.junit.Test;
+
+public class LocalCacheTest {
+
+  @Test
+  public void shouldNotEvictWhenUnbounded() {
+    LocalCache cache = new LocalCache("LocalCache");
+    for (int i = 0; i < 100; i++) {
+      cache.putObject(i, i);
+    }
+    cache.evict();
+    assertFalse(cache.isBounded());
+    assertEquals(100, cache.getSize());
+    assertEquals(0, cache.getEvictionCount());
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntriesOnlyWhenAsked() {
+    LocalCache cache = new LocalCache("LocalCache");
+    cache.setMaxEntries(2);
+    cache.putObject("a", "a");
+    cache.putObject("b", "b");
+    cache.putObject("c", "c");
+    assertEquals(3, cache.getSize());
+    cache.getObject("a");
+    cache.evict();
+    assertEquals(2, cache.getSize());
+    assertNull(cache.getObject("b"));
+    assertEquals("a", cache.getObject("a"));
+    assertEquals(1, cache.getEvictionCount());
+  }
+
+  @Test
+  public void shouldEvictByWeightAndNotifyListener() {
+    final List<Object> evicted = new ArrayList<Object>();
+    LocalCache cache = new LocalCache("LocalCache");
+    cache.setWeigher(new WeightedLruCacheTest.LengthWeigher());
+    cache.setMaxWeight(10);
+    cache.setEvictionListener(new EvictionListener() {
+      @Override
+      public void onEviction(Object key) {
+        evicted.add(key);
+      }
+    });
+    cache.putObject("a", "1234");
+    cache.putObject("b", "1234");
+    cache.putObject("c", "1234");
+    assertEquals(12, cache.getTotalWeight());
+    cache.evict();
+    assertEquals(8, cache.getTotalWeight());
+    assertEquals(1, evicted.size());
+    assertEquals("a", evicted.get(0));
+  }
+
+  @Test
+  public void shouldClearWhenBecomingBoundedAndReweighWhenBoundedByWeight() {
+    LocalCache cache = new LocalCache("LocalCache");
+    cache.putObject("a", "1234");
+    cache.setMaxEntries(10);
+    assertEquals(0, cache.getSize());
+    cache.setWeigher(new WeightedLruCacheTest.LengthWeigher());
+    cache.putObject("a", "1234");
+    cache.putObject("b", "12");
+    assertEquals(0, cache.getTotalWeight());
+    cache.setMaxWeight(5);
+    assertEquals(2, cache.getTotalWeight());
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldComputeHitRatio() {
+    LocalCache cache = new LocalCache("LocalCache");
+    assertEquals(0, cache.getHitRatio(), 0);
+    cache.recordHit();
+    cache.recordMiss();
+    cache.recordMiss();
+    cache.recordHit();
+    assertEquals(0.5, cache.getHitRatio(), 0);
+  }
+
+}
@@ -0,0 +1,140 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class OffHeapCacheTest {
+
+  @Test
+  public void shouldStoreAndCopyValues() throws Exception {
+    OffHeapCache cache = newCache(1024, null);
+    List<String> value = new ArrayList<String>(Arrays.asList("a", "b"));
+    cache.putObject(1, value);
+    cache.putObject(2, null);
+    cache.putObject(3, new byte[] { 1, 2, 3 });
+    assertEquals(3, cache.getSize());
+    assertEquals(value, cache.getObject(1));
+    assertNotSame(value, cache.getObject(1));
+    assertNull(cache.getObject(2));
+    assertArrayEquals(new byte[] { 1, 2, 3 }, (byte[]) cache.getObject(3));
+    assertNull(cache.getObject(4));
+  }
+
+  @Test
+  public void shouldReplaceAndRemoveItems() throws Exception {
+    OffHeapCache cache = newCache(1024, null);
+    cache.putObject(0, "first");
+    cache.putObject(0, "second");
+    assertEquals(1, cache.getSize());
+    assertEquals("second", cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    cache.putObject(1, "one");
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    assertNull(cache.getObject(1));
+  }
+
+  @Test
+  public void shouldEvictOldestEntriesWhenFull() throws Exception {
+    OffHeapCache cache = newCache(1000, null);
+    for (int i = 0; i < 30; i++) {
+      cache.putObject(i, new byte[100]);
+      assertNotNull(cache.getObject(i));
+    }
+    assertEquals(9, cache.getSize());
+    assertNull(cache.getObject(20));
+    for (int i = 21; i < 30; i++) {
+      assertNotNull(cache.getObject(i));
+    }
+    cache.putObject("too big", new byte[1000]);
+    assertNull(cache.getObject("too big"));
+  }
+
+  @Test
+  public void shouldKeepEntriesIntactAcrossWraps() throws Exception {
+    OffHeapCache cache = newCache(5000, null);
+    Random random = new Random(42);
+    for (int i = 0; i < 2000; i++) {
+      byte[] value = new byte[random.nextInt(700)];
+      Arrays.fill(value, (byte) (i % 50));
+      cache.putObject(i % 50, value);
+      assertArrayEquals(value, (byte[]) cache.getObject(i % 50));
+    }
+    for (int key = 0; key < 50; key++) {
+      byte[] value = (byte[]) cache.getObject(key);
+      for (int i = 0; value != null && i < value.length; i++) {
+        assertEquals(key, value[i]);
+      }
+    }
+  }
+
+  @Test
+  public void shouldReloadEntriesFromFile() throws Exception {
+    File file = File.createTempFile("offheap", ".cache");
+    try {
+      OffHeapCache cache = newCache(2048, file);
+      for (int i = 0; i < 100; i++) {
+        cache.putObject("key" + i, "value" + i);
+      }
+      cache.removeObject("key99");
+      int size = cache.getSize();
+
+      OffHeapCache reloaded = newCache(2048, file);
+      assertEquals(size, reloaded.getSize());
+      assertEquals("value98", reloaded.getObject("key98"));
+      assertNull(reloaded.getObject("key99"));
+      assertNull(reloaded.getObject("key0"));
+
+      OffHeapCache resized = newCache(4096, file);
+      assertEquals(0, resized.getSize());
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldNotBeSynchronizedWhenBuilt() throws Exception {
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).readWrite(true).build();
+    assertTrue(cache instanceof LoggingCache);
+    List<String> value = new ArrayList<String>(Arrays.asList("a", "b"));
+    cache.putObject(1, value);
+    assertEquals(value, cache.getObject(1));
+  }
+
+  private OffHeapCache newCache(int capacity, File file) throws Exception {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(capacity);
+    if (file != null) {
+      cache.setFile(file.getAbsolutePath());
+    }
+    cache.initialize();
+    return cache;
+  }
+
+}
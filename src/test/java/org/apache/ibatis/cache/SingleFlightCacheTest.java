@@ -0,0 +1,128 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.After;
+import org.junit.Test;
+
+public class SingleFlightCacheTest {
+
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+  @After
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void shouldMakeOtherReadersWaitForTheLoader() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    assertEquals(1, cache.getPendingCount());
+    Future<Object> reader = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() {
+        return cache.getObject("key");
+      }
+    });
+    Thread.sleep(50);
+    assertFalse(reader.isDone());
+    cache.putObject("key", "value");
+    assertEquals("value", reader.get(1, TimeUnit.SECONDS));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  public void shouldForgetReleasedFlights() {
+    SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    for (int i = 0; i < 100; i++) {
+      assertNull(cache.getObject(i));
+      cache.removeObject(i);
+    }
+    assertEquals(0, cache.getPendingCount());
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldLoadByItselfAfterTimeout() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    cache.setBlockingTimeout(20);
+    assertNull(cache.getObject("key"));
+    Future<Object> reader = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() {
+        Object value = cache.getObject("key");
+        cache.putObject("key", "loaded by reader");
+        return value;
+      }
+    });
+    assertNull(reader.get(1, TimeUnit.SECONDS));
+    assertEquals(1, cache.getPendingCount());
+    assertEquals("loaded by reader", cache.getObject("key"));
+    cache.putObject("key", "loaded by owner");
+    assertEquals(0, cache.getPendingCount());
+  }
+
+  @Test
+  public void shouldTakeOverFlightsOfDeadThreads() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    Thread owner = new Thread() {
+      @Override
+      public void run() {
+        cache.getObject("key");
+      }
+    };
+    owner.start();
+    owner.join();
+    assertEquals(1, cache.getPendingCount());
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "value");
+    assertEquals(0, cache.getPendingCount());
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  public void shouldServeStaleValuesWhileRefreshing() throws Exception {
+    final SingleFlightCache cache = new SingleFlightCache(new PerpetualCache("default"));
+    cache.setRefreshAhead(20);
+    assertNull(cache.getObject("key"));
+    cache.putObject("key", "old");
+    assertEquals("old", cache.getObject("key"));
+    Thread.sleep(40);
+    assertNull(cache.getObject("key"));
+    Future<Object> reader = executor.submit(new Callable<Object>() {
+      @Override
+      public Object call() {
+        return cache.getObject("key");
+      }
+    });
+    assertEquals("old", reader.get(1, TimeUnit.SECONDS));
+    cache.putObject("key", "new");
+    assertEquals("new", cache.getObject("key"));
+    assertEquals(0, cache.getPendingCount());
+  }
+
+}
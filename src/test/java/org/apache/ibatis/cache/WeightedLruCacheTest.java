@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.cache.decorators.WeightedLruCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.weigher.ObjectSizeWeigher;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class WeightedLruCacheTest {
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntriesByWeight() {
+    WeightedLruCache cache = new WeightedLruCache(new PerpetualCache("default"));
+    cache.setWeigher(new LengthWeigher());
+    cache.setMaxWeight(10);
+    cache.putObject("a", "1234");
+    cache.putObject("b", "1234");
+    assertEquals("1234", cache.getObject("a"));
+    cache.putObject("c", "1234");
+    assertNull(cache.getObject("b"));
+    assertEquals("1234", cache.getObject("a"));
+    assertEquals("1234", cache.getObject("c"));
+    assertEquals(8, cache.getTotalWeight());
+    assertEquals(1, cache.getEvictionCount());
+
+    cache.putObject("a", "12345678");
+    assertNull(cache.getObject("c"));
+    assertEquals(8, cache.getTotalWeight());
+    assertEquals(1, cache.getSize());
+  }
+
+  @Test
+  public void shouldNotCacheEntriesHeavierThanTheMaximum() {
+    WeightedLruCache cache = new WeightedLruCache(new PerpetualCache("default"));
+    cache.setWeigher(new LengthWeigher());
+    cache.setMaxWeight(10);
+    cache.putObject("a", "1234");
+    cache.putObject("b", "12345678901");
+    assertNull(cache.getObject("b"));
+    assertEquals("1234", cache.getObject("a"));
+    assertEquals(0, cache.getEvictionCount());
+    cache.removeObject("a");
+    assertEquals(0, cache.getTotalWeight());
+  }
+
+  @Test
+  public void shouldReportLargestEntries() {
+    WeightedLruCache cache = new WeightedLruCache(new PerpetualCache("default"));
+    cache.setWeigher(new LengthWeigher());
+    cache.putObject("small", "1");
+    cache.putObject("large", "123");
+    cache.putObject("medium", "12");
+    Map<Object, Long> largest = cache.getLargestEntries(2);
+    assertEquals(Arrays.<Object>asList("large", "medium"), new ArrayList<Object>(largest.keySet()));
+    assertEquals(Long.valueOf(3), largest.get("large"));
+  }
+
+  @Test
+  public void shouldWeighListsByTheirSize() {
+    ObjectSizeWeigher weigher = new ObjectSizeWeigher();
+    Author author = new Author(1, "cbegin", "******", "cbegin@apache.org", "N/A", Section.NEWS);
+    List<Author> authors = new ArrayList<Author>();
+    for (int i = 0; i < 50000; i++) {
+      authors.add(author);
+    }
+    long single = weigher.weigh("single", author);
+    long list = weigher.weigh("list", authors);
+    assertTrue(single > 0);
+    assertTrue(list > 50000 * single);
+    assertTrue(weigher.weigh("s", "0123456789") > weigher.weigh("s", "0"));
+    assertEquals(116, weigher.weigh("bytes", new byte[100]));
+    assertEquals(0, weigher.weigh("null", null));
+  }
+
+  @Test
+  public void shouldBeConfiguredWithProperties() {
+    Properties props = new Properties();
+    props.setProperty("maxWeight", "10");
+    props.setProperty("weigherType", LengthWeigher.class.getName());
+    Cache cache = new CacheBuilder("default").addDecorator(WeightedLruCache.class).properties(props).build();
+    cache.putObject("a", "12345");
+    cache.putObject("b", "12345");
+    cache.putObject("c", "12345");
+    assertNull(cache.getObject("a"));
+    assertEquals(2, cache.getSize());
+  }
+
+  public static class LengthWeigher implements Weigher {
+    @Override
+    public long weigh(Object key, Object value) {
+      return ((String) value).length();
+    }
+  }
+
+}
@@ -0,0 +1,210 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.io.Resources;
+import org.junit.Test;
+
+public class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(3, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldHandBackTheConnectionLastUsedByTheThread() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection first = ds.getConnection();
+      Connection second = ds.getConnection();
+      Connection realSecond = PooledDataSource.unwrapConnection(second);
+      second.close();
+      first.close();
+      Connection c = ds.getConnection();
+      assertSame(PooledDataSource.unwrapConnection(first), PooledDataSource.unwrapConnection(c));
+      Connection d = ds.getConnection();
+      assertSame(realSecond, PooledDataSource.unwrapConnection(d));
+      c.close();
+      d.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldInvalidateReturnedConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      Connection c = ds.getConnection();
+      c.close();
+      try {
+        c.createStatement();
+        fail("Should have thrown an SQLException");
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("Connection is invalid"));
+      }
+      c.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(10);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(50);
+      Connection c = ds.getConnection();
+      assertSame(PooledDataSource.unwrapConnection(leaked), PooledDataSource.unwrapConnection(c));
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldShareLimitedConnectionsAmongManyThreads() throws Exception {
+    final ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    ExecutorService executor = Executors.newFixedThreadPool(16);
+    try {
+      ds.setPoolMaximumActiveConnections(4);
+      ds.setPoolMaximumIdleConnections(4);
+      ds.setPoolTimeToWait(100);
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < 16; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int j = 0; j < 200; j++) {
+              Connection c = ds.getConnection();
+              try {
+                assertTrue(ds.getPoolState().getActiveConnectionCount() <= 4);
+              } finally {
+                c.close();
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      assertEquals(3200, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 4);
+      assertEquals(0, ds.getPoolState().getWaitingThreadCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseAllConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createConcurrentPooledDataSource();
+    Connection active = ds.getConnection();
+    ds.getConnection().close();
+    ds.forceCloseAll();
+    assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+    assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    active.close();
+    assertEquals(1, ds.getPoolState().getBadConnectionCount());
+  }
+
+  @Test
+  public void shouldSelectPoolEngineFromFactoryProperties() throws Exception {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    props.setProperty("poolEngine", "concurrent");
+    props.setProperty("poolMaximumActiveConnections", "20");
+    factory.setProperties(props);
+    ConcurrentPooledDataSource ds = (ConcurrentPooledDataSource) factory.getDataSource();
+    assertEquals(20, ds.getPoolMaximumActiveConnections());
+    assertEquals(props.getProperty("url"), ds.getUrl());
+
+    factory = new PooledDataSourceFactory();
+    props.setProperty("poolEngine", "synchronized");
+    factory.setProperties(props);
+    assertEquals(PooledDataSource.class, factory.getDataSource().getClass());
+  }
+
+  @Test(expected = DataSourceException.class)
+  public void shouldRejectUnknownPoolEngine() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("poolEngine", "unknown");
+    new PooledDataSourceFactory().setProperties(props);
+  }
+
+  private ConcurrentPooledDataSource createConcurrentPooledDataSource() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+
+}
@@ -0,0 +1,152 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.junit.Test;
+
+public class PooledStatementCacheTest extends BaseDataTest {
+
+  private static final String SQL = "SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+  private static final String OTHER_SQL = "SELECT 2 FROM INFORMATION_SCHEMA.SYSTEM_USERS";
+
+  @Test
+  public void shouldReuseStatementsAcrossCheckouts() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolStatementCacheSize(10);
+    try {
+      Connection conn = ds.getConnection();
+      PreparedStatement ps = conn.prepareStatement(SQL);
+      ps.setMaxRows(1);
+      assertEquals(1, execute(ps));
+      ps.close();
+      assertTrue(ps.isClosed());
+      conn.close();
+
+      conn = ds.getConnection();
+      PooledStatementCache cache = PooledDataSource.getStatementCache(conn);
+      ps = conn.prepareStatement(SQL);
+      assertEquals(0, ps.getMaxRows());
+      assertSame(conn, ps.getConnection());
+      assertTrue(execute(ps) >= 1);
+      ps.close();
+      conn.prepareStatement(SQL, Statement.RETURN_GENERATED_KEYS).close();
+      conn.close();
+
+      assertEquals(1, cache.getHitCount());
+      assertEquals(2, cache.getMissCount());
+      assertEquals(2, cache.getIdleStatementCount());
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+      assertEquals(2, ds.getPoolState().getStatementCacheMissCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseLeastRecentlyUsedStatements() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolStatementCacheSize(1);
+    try {
+      Connection conn = ds.getConnection();
+      PooledStatementCache cache = PooledDataSource.getStatementCache(conn);
+      PreparedStatement first = conn.prepareStatement(SQL);
+      PreparedStatement second = conn.prepareStatement(SQL);
+      first.close();
+      second.close();
+      conn.prepareStatement(OTHER_SQL).close();
+      assertEquals(1, cache.getIdleStatementCount());
+      conn.prepareStatement(SQL).close();
+      assertEquals(0, cache.getHitCount());
+      assertEquals(4, cache.getMissCount());
+      conn.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepStatementsOfConcurrentPoolConnections() throws Exception {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    ds.setPoolStatementCacheSize(10);
+    try {
+      Connection conn = ds.getConnection();
+      conn.prepareStatement(SQL).close();
+      conn.close();
+      conn = ds.getConnection();
+      conn.prepareStatement(SQL).close();
+      conn.close();
+      assertEquals(1, ds.getPoolState().getStatementCacheHitCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseResultSetsLeftOpenBeforeCaching() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    ds.setPoolStatementCacheSize(10);
+    try {
+      Connection conn = ds.getConnection();
+      PooledStatementCache cache = PooledDataSource.getStatementCache(conn);
+      PreparedStatement ps = conn.prepareStatement(SQL);
+      ResultSet rs = ps.executeQuery();
+      ps.close();
+      assertTrue(rs.isClosed());
+      assertEquals(1, cache.getIdleStatementCount());
+      conn.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotCacheStatementsByDefault() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      Connection conn = ds.getConnection();
+      assertNull(PooledDataSource.getStatementCache(conn));
+      conn.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private static int execute(PreparedStatement ps) throws Exception {
+    ResultSet rs = ps.executeQuery();
+    int rows = 0;
+    while (rs.next()) {
+      rows++;
+    }
+    rs.close();
+    return rows;
+  }
+
+}
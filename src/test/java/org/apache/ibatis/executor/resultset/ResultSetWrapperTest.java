@@ -0,0 +1,91 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.JdbcType;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class ResultSetWrapperTest extends BaseDataTest {
+
+  private static DataSource dataSource;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    dataSource = createBlogDataSource();
+  }
+
+  @Test
+  public void shouldFindColumnIndexIgnoringCase() throws Exception {
+    Connection conn = dataSource.getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      ResultSet rs = stmt.executeQuery("select id, username, password, id as a_id, username as id from author");
+      ResultSetWrapper rsw = new ResultSetWrapper(rs, new Configuration());
+      assertEquals(1, rsw.getColumnIndex("ID"));
+      assertEquals(2, rsw.getColumnIndex("username"));
+      assertEquals(4, rsw.getColumnIndex("A_Id"));
+      assertEquals(0, rsw.getColumnIndex("email"));
+      assertEquals(JdbcType.VARCHAR, rsw.getJdbcType("Password"));
+      assertNull(rsw.getJdbcType("email"));
+      rs.close();
+      stmt.close();
+    } finally {
+      conn.close();
+    }
+  }
+
+  @Test
+  public void shouldPlanPropertyMappingColumnIndexes() throws Exception {
+    Configuration configuration = new Configuration();
+    List<ResultMapping> mappings = new ArrayList<ResultMapping>();
+    mappings.add(new ResultMapping.Builder(configuration, "id", "id", int.class).build());
+    mappings.add(new ResultMapping.Builder(configuration, "username", "username", String.class).build());
+    mappings.add(new ResultMapping.Builder(configuration, "email", "email", String.class).build());
+    mappings.add(new ResultMapping.Builder(configuration, "bio", "id", String.class).nestedResultMapId("nested").build());
+    ResultMap resultMap = new ResultMap.Builder(configuration, "author", Author.class, mappings).build();
+
+    Connection conn = dataSource.getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      ResultSet rs = stmt.executeQuery("select id, username, id as a_id, username as a_username from author");
+      ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      assertArrayEquals(new int[] { 1, 2, 0, 0 }, rsw.getPropertyMappingColumnIndexes(resultMap, null));
+      assertArrayEquals(new int[] { 3, 4, 0, 0 }, rsw.getPropertyMappingColumnIndexes(resultMap, "A_"));
+      assertSame(rsw.getPropertyMappingColumnIndexes(resultMap, null), rsw.getPropertyMappingColumnIndexes(resultMap, null));
+      rs.close();
+      stmt.close();
+    } finally {
+      conn.close();
+    }
+  }
+
+}
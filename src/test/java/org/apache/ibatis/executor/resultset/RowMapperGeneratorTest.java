@@ -0,0 +1,193 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Result;
+import org.apache.ibatis.annotations.Results;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class RowMapperGeneratorTest extends BaseDataTest {
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    createBlogDataSource();
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/builder/MapperConfig.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    sqlSessionFactory.getConfiguration().addMapper(AuthorListMapper.class);
+  }
+
+  @After
+  public void resetSettings() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setRowMapperGenerationEnabled(false);
+    configuration.setCallSettersOnNulls(false);
+    configuration.getRowMapperGenerator().clear();
+  }
+
+  @Test
+  public void shouldMapAutomaticallyMappedRowsWithGeneratedClass() {
+    List<Author> expected = selectList("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors");
+    sqlSessionFactory.getConfiguration().setRowMapperGenerationEnabled(true);
+    List<Author> authors = selectList("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAllAuthors");
+    assertEquals(2, authors.size());
+    assertEquals(expected, authors);
+    assertEquals(1, sqlSessionFactory.getConfiguration().getRowMapperGenerator().getSize());
+  }
+
+  @Test
+  public void shouldMapResultMapRowsWithGeneratedClass() {
+    sqlSessionFactory.getConfiguration().setRowMapperGenerationEnabled(true);
+    List<Author> authors = selectList(AuthorListMapper.class.getName() + ".selectAuthors");
+    assertEquals(2, authors.size());
+    assertEquals(101, authors.get(0).getId());
+    assertEquals("jim", authors.get(0).getUsername());
+    assertEquals(Section.NEWS, authors.get(0).getFavouriteSection());
+    assertEquals(102, authors.get(1).getId());
+    assertEquals("sally", authors.get(1).getUsername());
+    assertNull(authors.get(1).getBio());
+    assertEquals(Section.VIDEOS, authors.get(1).getFavouriteSection());
+    assertEquals(1, sqlSessionFactory.getConfiguration().getRowMapperGenerator().getSize());
+  }
+
+  @Test
+  public void shouldCallSettersOnNullsWithGeneratedClass() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.setRowMapperGenerationEnabled(true);
+    configuration.setCallSettersOnNulls(true);
+    List<NullTrackingAuthor> authors = selectList(AuthorListMapper.class.getName() + ".selectNullTrackingAuthors");
+    assertEquals(2, authors.size());
+    assertFalse(authors.get(0).bioSetToNull);
+    assertTrue(authors.get(1).bioSetToNull);
+  }
+
+  @Test
+  public void shouldFallBackForNonPublicResultType() {
+    sqlSessionFactory.getConfiguration().setRowMapperGenerationEnabled(true);
+    List<HiddenAuthor> authors = selectList(AuthorListMapper.class.getName() + ".selectHiddenAuthors");
+    assertEquals(2, authors.size());
+    assertEquals("jim", authors.get(0).username);
+    assertEquals("sally", authors.get(1).username);
+  }
+
+  @Test
+  public void shouldGenerateOneClassPerResultTypeAndProperties() throws Exception {
+    Configuration configuration = new Configuration();
+    RowMapperGenerator generator = new RowMapperGenerator(2);
+    List<ResultMapping> mappings = new ArrayList<ResultMapping>();
+    mappings.add(new ResultMapping.Builder(configuration, "id", "id", int.class).build());
+    mappings.add(new ResultMapping.Builder(configuration, "username", "username", String.class).build());
+    ResultMap resultMap = new ResultMap.Builder(configuration, "author", Author.class, mappings).build();
+    ResultMap hiddenResultMap = new ResultMap.Builder(configuration, "hidden", HiddenAuthor.class, mappings).build();
+    List<UnMappedColumnAutoMapping> noAutoMappings = Collections.emptyList();
+
+    Connection conn = createBlogDataSource().getConnection();
+    try {
+      Statement stmt = conn.createStatement();
+      ResultSet rs = stmt.executeQuery("select id, username from author order by id");
+      ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      RowMapper rowMapper = generator.newRowMapper(configuration, rsw, resultMap, noAutoMappings);
+      assertNotNull(rowMapper);
+      assertSame(rowMapper.getClass(), generator.newRowMapper(configuration, rsw, resultMap, noAutoMappings).getClass());
+      assertNull(generator.newRowMapper(configuration, rsw, hiddenResultMap, noAutoMappings));
+      assertEquals(2, generator.getSize());
+      assertTrue(rs.next());
+      assertEquals(new Author(101, "jim", null, null, null, null), rowMapper.map(rs));
+      rs.close();
+      stmt.close();
+    } finally {
+      conn.close();
+    }
+  }
+
+  private <E> List<E> selectList(String statement) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.selectList(statement);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  public interface AuthorListMapper {
+
+    @Select("select id, username, bio, favourite_section from author order by id")
+    @Results({
+        @Result(property = "id", column = "id", id = true),
+        @Result(property = "username", column = "username"),
+        @Result(property = "bio", column = "bio"),
+        @Result(property = "favouriteSection", column = "favourite_section")
+    })
+    List<Author> selectAuthors();
+
+    @Select("select id, bio from author order by id")
+    List<NullTrackingAuthor> selectNullTrackingAuthors();
+
+    @Select("select id, username from author order by id")
+    List<HiddenAuthor> selectHiddenAuthors();
+  }
+
+  public static class NullTrackingAuthor {
+    private int id;
+    private boolean bioSetToNull;
+
+    public void setId(int id) {
+      this.id = id;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public void setBio(String bio) {
+      bioSetToNull = bio == null;
+    }
+  }
+
+  static class HiddenAuthor {
+    private String username;
+
+    public void setUsername(String username) {
+      this.username = username;
+    }
+  }
+
+}
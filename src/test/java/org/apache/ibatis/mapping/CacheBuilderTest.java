@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,11 +18,23 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SingleFlightCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TableInvalidatingCache;
+import org.apache.ibatis.cache.impl.ConcurrentLruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.assertj.core.api.Assertions;
 import org.junit.Test;
 
 import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
 
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
 import static org.assertj.core.api.BDDAssertions.then;
@@ -43,6 +55,73 @@ public class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  public void testThreadSafeCacheIsNotSynchronized() throws Exception {
+    Cache cache = new CacheBuilder("test").implementation(ConcurrentLruCache.class).addDecorator(LruCache.class)
+        .size(10).readWrite(true).build();
+    Assertions.assertThat(cache).isInstanceOf(LoggingCache.class);
+    Cache serialized = unwrap(cache);
+    Assertions.assertThat(serialized).isInstanceOf(SerializedCache.class);
+    ConcurrentLruCache base = unwrap(serialized);
+    for (int i = 0; i < 20; i++) {
+      base.putObject(i, i);
+    }
+    Assertions.assertThat(base.getSize()).isEqualTo(10);
+
+    cache = new CacheBuilder("test").implementation(PerpetualCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  public void testTableInvalidation() throws Exception {
+    TableInvalidatingCache cache = (TableInvalidatingCache) new CacheBuilder("test").size(3).tableInvalidation(true).build();
+    cache.putObject("author", "a", Collections.singleton("author"));
+    cache.putObject("blog", "b", new HashSet<String>(Arrays.asList("blog", "author")));
+    cache.putObject("unknown", "u");
+    Assertions.assertThat(cache.dependsOn("author", Collections.singleton("blog"))).isFalse();
+    Assertions.assertThat(cache.dependsOn("blog", Collections.singleton("blog"))).isTrue();
+    Assertions.assertThat(cache.dependsOn("unknown", Collections.singleton("blog"))).isTrue();
+
+    cache.clear(Collections.singleton("blog"));
+    Assertions.assertThat(cache.getObject("author")).isEqualTo("a");
+    Assertions.assertThat(cache.getObject("blog")).isNull();
+    Assertions.assertThat(cache.getObject("unknown")).isNull();
+    Assertions.assertThat(cache.getSize()).isEqualTo(1);
+
+    // evicted entries leave the index
+    cache.putObject("post", "p", Collections.singleton("post"));
+    cache.putObject("comment", "c", Collections.singleton("comment"));
+    cache.putObject("tag", "t", Collections.singleton("tag"));
+    Assertions.assertThat(cache.getSize()).isEqualTo(3);
+    Assertions.assertThat(cache.dependsOn("author", Collections.singleton("author"))).isFalse();
+  }
+
+  @Test
+  public void testBlockingCacheProperties() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("blockingTimeout", "100");
+    props.setProperty("refreshAhead", "60000");
+    Cache cache = new CacheBuilder("test").blocking(true).properties(props).build();
+    SingleFlightCache singleFlight = (SingleFlightCache) cache;
+    Assertions.assertThat(singleFlight.getBlockingTimeout()).isEqualTo(100);
+    Assertions.assertThat(singleFlight.getRefreshAhead()).isEqualTo(60000);
+    Assertions.assertThat(cache.getObject("key")).isNull();
+    cache.putObject("key", "value");
+    Assertions.assertThat(cache.getObject("key")).isEqualTo("value");
+    Assertions.assertThat(singleFlight.getPendingCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void testExpiration() throws Exception {
+    Cache cache = new CacheBuilder("test").expireAfterWrite(60000L).expiryJitter(1000L).build();
+    Cache expiring = unwrap(unwrap(cache));
+    Assertions.assertThat(expiring).isInstanceOf(ExpiringCache.class);
+    Assertions.assertThat(((ExpiringCache) expiring).getExpireAfterWrite()).isEqualTo(60000);
+    Assertions.assertThat(((ExpiringCache) expiring).getExpiryJitter()).isEqualTo(1000);
+    cache.putObject("key", "value");
+    Assertions.assertThat(cache.getObject("key")).isEqualTo("value");
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache){
     Field field;
@@ -0,0 +1,45 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class MultiRowInsertSqlTest {
+
+  @Test
+  public void shouldRepeatValues() {
+    MultiRowInsertSql sql = MultiRowInsertSql.parse("insert into author (id, bio) values (?, concat(?, ')'));\n");
+    assertNotNull(sql);
+    assertEquals("insert into author (id, bio) values (?, concat(?, ')'))", sql.getSql(1));
+    assertEquals("insert into author (id, bio) values (?, concat(?, ')')), (?, concat(?, ')')), (?, concat(?, ')'))",
+        sql.getSql(3));
+    assertEquals("INSERT INTO \"values\" VALUES(?), (?)", MultiRowInsertSql.parse("INSERT INTO \"values\" VALUES(?)").getSql(2));
+  }
+
+  @Test
+  public void shouldNotParseOtherStatements() {
+    assertNull(MultiRowInsertSql.parse("update author set bio = ? where id = ?"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id) select id from person where name = ?"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id) values (?), (?)"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id, bio) values (?, ?) on duplicate key update bio = ?"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id) values (?) returning id"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id) values (?) -- comment"));
+    assertNull(MultiRowInsertSql.parse("insert into author (id) values ('unterminated)"));
+  }
+
+}
@@ -0,0 +1,89 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.parsing;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SqlTableParserTest {
+
+  @Test
+  public void shouldFindReadTables() {
+    assertEquals(tables("author"), SqlTableParser.findReadTables("select * from author where id = ?"));
+    assertEquals(tables("blog", "author", "post"), SqlTableParser.findReadTables(
+        "select * from Blog b, \"AUTHOR\" as a left outer join blog_db.post p on p.blog_id = b.id where b.author_id = a.id"));
+    assertEquals(tables("post", "comment", "tag"), SqlTableParser.findReadTables(
+        "select * from (select * from post) p, comment c join [tag] t on t.id = c.tag_id "
+            + "where p.id in (select post_id from comment) and c.text <> 'from nowhere' -- from comment\n"));
+    assertNull(SqlTableParser.findReadTables("select 1"));
+    assertNull(SqlTableParser.findReadTables("{call next_id()}"));
+  }
+
+  @Test
+  public void shouldNotFindReadTablesFollowedByHints() {
+    assertNull(SqlTableParser.findReadTables("select * from author with (nolock) join blog on blog.author_id = author.id"));
+    assertNull(SqlTableParser.findReadTables("select * from author a use index (author_name) join blog b on b.author_id = a.id"));
+    assertNull(SqlTableParser.findReadTables("select * from author force index (author_name)"));
+    assertEquals(tables("author"), SqlTableParser.findReadTables("select * from author;"));
+  }
+
+  @Test
+  public void shouldFindTablesReadByWrites() {
+    assertEquals(tables("orders"), SqlTableParser.findReadTables("insert into summary (total) select count(*) from orders"));
+    assertEquals(Collections.<String>emptySet(), SqlTableParser.findReadTables("insert into orders (id) values (?)"));
+    assertEquals(Collections.<String>emptySet(), SqlTableParser.findReadTables("update orders set customer = ? where id = ?"));
+    assertNull(SqlTableParser.findReadTables("merge into orders using new_orders on orders.id = new_orders.id"));
+  }
+
+  @Test
+  public void shouldFindTablesOfStraightJoin() {
+    assertEquals(tables("author", "blog"), SqlTableParser.findReadTables(
+        "select * from author a straight_join blog b on b.author_id = a.id"));
+    assertEquals(tables("author", "blog"), SqlTableParser.findReadTables(
+        "select straight_join * from author a join blog b on b.author_id = a.id"));
+  }
+
+  @Test
+  public void shouldFindWrittenTables() {
+    assertEquals(tables("author"), SqlTableParser.findWrittenTables("insert into author (id, username) values (?, ?)"));
+    assertEquals(tables("author"), SqlTableParser.findWrittenTables("INSERT IGNORE INTO `author` select * from new_author"));
+    assertEquals(tables("author"), SqlTableParser.findWrittenTables("update author set username = ? where id = ?"));
+    assertEquals(tables("author", "blog"), SqlTableParser.findWrittenTables("update author a, blog b set a.id = b.id"));
+    assertEquals(tables("author"), SqlTableParser.findWrittenTables("delete from public.author where id = ?"));
+    assertEquals(tables("author"), SqlTableParser.findWrittenTables("delete from author"));
+    assertNull(SqlTableParser.findWrittenTables("update author a join blog b on a.id = b.author_id set a.bio = b.title"));
+    assertNull(SqlTableParser.findWrittenTables("delete a from author a join blog b on a.id = b.author_id"));
+    assertNull(SqlTableParser.findWrittenTables("{call delete_author(?)}"));
+    assertNull(SqlTableParser.findWrittenTables(""));
+  }
+
+  @Test
+  public void shouldNormalizeTableNames() {
+    assertEquals("author", SqlTableParser.normalizeTableName(" \"Blog_DB\".\"AUTHOR\" "));
+    assertEquals("author", SqlTableParser.normalizeTableName("[dbo].[Author]"));
+  }
+
+  private Set<String> tables(String... names) {
+    return Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(names)));
+  }
+
+}
@@ -0,0 +1,148 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.*;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.junit.Test;
+
+public class MethodHandleReflectorFactoryTest {
+
+  private final ReflectorFactory reflectorFactory = new MethodHandleReflectorFactory();
+
+  @Test
+  public void shouldReadAndWriteBeanProperties() {
+    Author author = new Author(1, "cbegin", "******", "cbegin@apache.org", "N/A", Section.NEWS);
+    MetaObject metaObject = forObject(author);
+    assertEquals(1, metaObject.getValue("id"));
+    assertEquals("cbegin", metaObject.getValue("username"));
+    assertEquals(Section.NEWS, metaObject.getValue("favouriteSection"));
+    metaObject.setValue("id", 2);
+    metaObject.setValue("username", "jim");
+    metaObject.setValue("favouriteSection", Section.VIDEOS);
+    assertEquals(2, author.getId());
+    assertEquals("jim", author.getUsername());
+    assertEquals(Section.VIDEOS, author.getFavouriteSection());
+  }
+
+  @Test
+  public void shouldReadAndWriteFieldsWithoutAccessors() {
+    Bean bean = new Bean();
+    MetaObject metaObject = forObject(bean);
+    metaObject.setValue("count", 3);
+    metaObject.setValue("name", "value");
+    metaObject.setValue("constant", "changed");
+    assertEquals(3, metaObject.getValue("count"));
+    assertEquals("value", metaObject.getValue("name"));
+    assertEquals(3, bean.count);
+    assertEquals("value", bean.name);
+    assertEquals("changed", metaObject.getValue("constant"));
+  }
+
+  @Test
+  public void shouldKeepInvokerKinds() throws Exception {
+    Reflector reflector = reflectorFactory.findForClass(Bean.class);
+    assertTrue(reflector.getGetInvoker("flag") instanceof MethodInvoker);
+    assertTrue(reflector.getSetInvoker("flag") instanceof MethodInvoker);
+    assertTrue(reflector.getGetInvoker("count") instanceof GetFieldInvoker);
+    assertTrue(reflector.getSetInvoker("count") instanceof SetFieldInvoker);
+    assertEquals(boolean.class, reflector.getGetInvoker("flag").getType());
+    assertEquals(int.class, reflector.getSetInvoker("count").getType());
+  }
+
+  @Test
+  public void shouldUnwrapExceptionThrownByGetter() {
+    MetaObject metaObject = forObject(new Bean());
+    try {
+      metaObject.getValue("failing");
+      fail("Should have thrown an IllegalStateException");
+    } catch (IllegalStateException e) {
+      assertEquals("failing", e.getMessage());
+    }
+  }
+
+  @Test
+  public void shouldRejectNullForPrimitiveSetter() {
+    MetaObject metaObject = forObject(new Bean());
+    try {
+      metaObject.setValue("flag", null);
+      fail("Should have thrown a ReflectionException");
+    } catch (ReflectionException e) {
+      assertTrue(e.getMessage().contains("flag"));
+    }
+  }
+
+  @Test
+  public void shouldBeAsFastAsReflection() {
+    ReflectorFactory reflectionFactory = new DefaultReflectorFactory();
+    long reflectionTime = Long.MAX_VALUE;
+    long handleTime = Long.MAX_VALUE;
+    // best of several rounds, the first ones warm up both paths
+    for (int round = 0; round < 10; round++) {
+      reflectionTime = Math.min(reflectionTime, time(reflectionFactory, 200000));
+      handleTime = Math.min(handleTime, time(reflectorFactory, 200000));
+    }
+    // a loose bound, timings of a shared build machine are noisy
+    assertTrue("method handles took " + handleTime + "ns, reflection " + reflectionTime + "ns",
+        handleTime < 2 * reflectionTime);
+  }
+
+  private static long time(ReflectorFactory factory, int iterations) {
+    Bean bean = new Bean();
+    MetaObject metaObject = MetaObject.forObject(bean, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), factory);
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      metaObject.setValue("count", i);
+      metaObject.setValue("flag", i % 2 == 0);
+      metaObject.getValue("name");
+      metaObject.getValue("flag");
+    }
+    long time = System.nanoTime() - start;
+    assertEquals(iterations - 1, bean.count);
+    return time;
+  }
+
+  private MetaObject forObject(Object object) {
+    return MetaObject.forObject(object, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+  }
+
+  static class Bean {
+    private int count;
+    private String name;
+    private final String constant = new String("constant");
+    private boolean flag;
+
+    private boolean isFlag() {
+      return flag;
+    }
+
+    private void setFlag(boolean flag) {
+      this.flag = flag;
+    }
+
+    public String getFailing() {
+      throw new IllegalStateException("failing");
+    }
+  }
+
+}
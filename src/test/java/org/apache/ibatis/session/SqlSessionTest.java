@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@ package org.apache.ibatis.session;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -33,6 +35,7 @@ import javassist.util.proxy.Proxy;
 
 import org.apache.ibatis.BaseDataTest;
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cache.impl.LocalCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.domain.blog.Blog;
@@ -49,6 +52,7 @@ import org.apache.ibatis.domain.blog.mappers.BlogMapper;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
 import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 import org.junit.Assert;
 import org.junit.BeforeClass;
@@ -275,6 +279,26 @@ public class SqlSessionTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldEvictLeastRecentlyUsedResultsFromBoundedLocalCache() throws Exception {
+    SqlSession session = sqlMapper.openSession();
+    try {
+      LocalCache localCache = ((DefaultSqlSession) session).getLocalCache();
+      localCache.setMaxEntries(1);
+      Author first = session.selectOne("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor", 101);
+      assertSame(first, session.selectOne("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor", 101));
+      session.selectOne("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor", 102);
+      Author reloaded = session.selectOne("org.apache.ibatis.domain.blog.mappers.AuthorMapper.selectAuthor", 101);
+      assertNotSame(first, reloaded);
+      assertEquals(1, localCache.getSize());
+      assertEquals(1, localCache.getHitCount());
+      assertEquals(3, localCache.getMissCount());
+      assertEquals(2, localCache.getEvictionCount());
+    } finally {
+      session.close();
+    }
+  }
+
   @Test
   public void shouldUpdateAuthorImplicitRollback() throws Exception {
     SqlSession session = sqlMapper.openSession();
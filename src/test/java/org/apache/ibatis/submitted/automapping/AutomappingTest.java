@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.util.List;
 
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.executor.resultset.AutoMappingCache;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.session.AutoMappingBehavior;
 import org.apache.ibatis.session.SqlSession;
@@ -208,4 +209,24 @@ public class AutomappingTest {
       sqlSession.close();
     }
   }
+
+  @Test
+  public void shouldShareAutomaticMappingsAmongSessions() {
+    sqlSessionFactory.getConfiguration().setAutoMappingBehavior(AutoMappingBehavior.PARTIAL);
+    AutoMappingCache autoMappingCache = sqlSessionFactory.getConfiguration().getAutoMappingCache();
+    autoMappingCache.clear();
+    long hits = autoMappingCache.getHitCount();
+    for (int i = 0; i < 2; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        Mapper mapper = sqlSession.getMapper(Mapper.class);
+        User user = mapper.getUser(1);
+        Assert.assertEquals("User1", user.getName());
+      } finally {
+        sqlSession.close();
+      }
+    }
+    Assert.assertEquals(1, autoMappingCache.getSize());
+    Assert.assertEquals(hits + 1, autoMappingCache.getHitCount());
+  }
 }
@@ -0,0 +1,377 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_options;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.BatchOptions;
+import org.apache.ibatis.session.BatchResultHandler;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchOptionsTest {
+
+  private DefaultSqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_options/Config.xml");
+    sqlSessionFactory = (DefaultSqlSessionFactory) new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_options/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldOpenOneBatchPerStatementWithoutReordering() {
+    SqlSession sqlSession = sqlSessionFactory.openSession(ExecutorType.BATCH);
+    try {
+      insertOrders(sqlSession, 3);
+      assertEquals(6, sqlSession.flushStatements().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldKeepBatchingInterleavedStatements() {
+    BatchOptions batchOptions = sqlSessionFactory.getConfiguration().newBatchOptions();
+    batchOptions.setReordering(true);
+    batchOptions.setInsertOrder(Arrays.asList("orders", "order_lines"));
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      List<Map<String, Object>> lines = insertOrders(sqlSession, 3);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals("org.apache.ibatis.submitted.batch_options.Mapper.insertOrder", results.get(0).getMappedStatement().getId());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(3, results.get(1).getParameterObjects().size());
+      assertEquals(lines, results.get(1).getParameterObjects());
+      for (Map<String, Object> line : lines) {
+        assertNotNull(line.get("id"));
+      }
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(3), sqlSession.<Integer>selectOne("countOrderLines"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReorderStatementsWritingTheSameTable() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      Map<String, Object> order = new HashMap<String, Object>();
+      order.put("id", 1);
+      order.put("customer", "jim");
+      sqlSession.insert("insertOrder", order);
+      sqlSession.delete("deleteOrder", order);
+      sqlSession.insert("insertOrder", order);
+      assertEquals(3, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReorderChildrenAheadOfTheirParents() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    batchOptions.setInsertOrder(Arrays.asList("orders", "order_lines"));
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      Map<String, Object> order = new HashMap<String, Object>();
+      order.put("id", 1);
+      order.put("customer", "jim");
+      sqlSession.insert("insertOrder", order);
+      sqlSession.flushStatements();
+      Map<String, Object> line = new HashMap<String, Object>();
+      line.put("orderId", 1);
+      line.put("product", "existing");
+      sqlSession.insert("insertOrderLine", line);
+      order = new HashMap<String, Object>();
+      order.put("id", 2);
+      order.put("customer", "bob");
+      sqlSession.insert("insertOrder", order);
+      line = new HashMap<String, Object>();
+      line.put("orderId", 2);
+      line.put("product", "new");
+      sqlSession.insert("insertOrderLine", line);
+      // the second line is not added to the batch of the first one, which runs before its order
+      assertEquals(3, sqlSession.flushStatements().size());
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(2), sqlSession.<Integer>selectOne("countOrderLines"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReorderInsertsIntoOtherTablesWithoutInsertOrder() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      insertOrders(sqlSession, 2);
+      assertEquals(4, sqlSession.flushStatements().size());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldNotReorderStatementsAroundOneReadingTheirTable() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      Map<String, Object> order = new HashMap<String, Object>();
+      order.put("id", 1);
+      order.put("customer", "jim");
+      sqlSession.insert("insertOrder", order);
+      sqlSession.insert("insertOrderSummary");
+      order = new HashMap<String, Object>();
+      order.put("id", 2);
+      order.put("customer", "bob");
+      sqlSession.insert("insertOrder", order);
+      assertEquals(3, sqlSession.flushStatements().size());
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(1), sqlSession.<Integer>selectOne("selectOrderCounts"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenBatchHoldsMaxRows() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    batchOptions.setInsertOrder(Arrays.asList("orders", "order_lines"));
+    batchOptions.setMaxBatchRows(2);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      insertOrders(sqlSession, 3);
+      // all the open batches were flushed once the orders batch reached 2 rows, then the second line
+      // opened a batch ahead of the third order, so the third line cannot join it
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(5, results.size());
+      assertEquals(2, results.get(0).getParameterObjects().size());
+      assertEquals(1, results.get(1).getParameterObjects().size());
+      assertEquals("org.apache.ibatis.submitted.batch_options.Mapper.insertOrderLine", results.get(2).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.batch_options.Mapper.insertOrder", results.get(3).getMappedStatement().getId());
+      assertEquals("org.apache.ibatis.submitted.batch_options.Mapper.insertOrderLine", results.get(4).getMappedStatement().getId());
+      assertTrue(sqlSession.flushStatements().isEmpty());
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(3), sqlSession.<Integer>selectOne("countOrderLines"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldDeliverResultsOfEachFlushToHandler() {
+    final List<Integer> flushedRows = new ArrayList<Integer>();
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setMaxBatchedStatements(4);
+    batchOptions.setResultHandler(new BatchResultHandler() {
+      @Override
+      public void handleBatchResults(List<BatchResult> batchResults) {
+        int rows = 0;
+        for (BatchResult batchResult : batchResults) {
+          rows += batchResult.getUpdateCounts().length;
+        }
+        flushedRows.add(rows);
+      }
+    });
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      insertOrders(sqlSession, 5);
+      assertEquals(2, flushedRows.size());
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertEquals(3, flushedRows.size());
+      assertEquals(Integer.valueOf(2), flushedRows.get(2));
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(5), sqlSession.<Integer>selectOne("countOrderLines"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFlushWhenParametersExceedMaxBytes() {
+    final List<Integer> flushedRows = new ArrayList<Integer>();
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setMaxBatchBytes(1);
+    batchOptions.setResultHandler(new BatchResultHandler() {
+      @Override
+      public void handleBatchResults(List<BatchResult> batchResults) {
+        flushedRows.add(batchResults.get(0).getUpdateCounts().length);
+      }
+    });
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      insertOrders(sqlSession, 2);
+      assertEquals(4, flushedRows.size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRewriteBatchedInsertsAsMultiRowInserts() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setReordering(true);
+    batchOptions.setInsertOrder(Arrays.asList("orders", "order_lines"));
+    batchOptions.setMultiRowInsert(true);
+    batchOptions.setMaxRowsPerInsert(2);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      List<Map<String, Object>> lines = insertOrders(sqlSession, 5);
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(2, results.size());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(0).getUpdateCounts());
+      assertArrayEquals(new int[] { 1, 1, 1, 1, 1 }, results.get(1).getUpdateCounts());
+      for (Map<String, Object> line : lines) {
+        assertNotNull(line.get("id"));
+      }
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(5), sqlSession.<Integer>selectOne("countOrderLines"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldLimitBindParametersOfMultiRowInserts() {
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setMultiRowInsert(true);
+    batchOptions.setMaxBindParameters(5);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      for (int i = 1; i <= 5; i++) {
+        Map<String, Object> order = new HashMap<String, Object>();
+        order.put("id", i);
+        order.put("customer", "customer" + i);
+        sqlSession.insert("insertOrder", order);
+      }
+      // 2 parameters per row, so 2 rows per insert
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(5, results.get(0).getUpdateCounts().length);
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBindEachRowThroughPlugins() {
+    CountingParameterPlugin plugin = new CountingParameterPlugin();
+    sqlSessionFactory.getConfiguration().addInterceptor(plugin);
+    BatchOptions batchOptions = new BatchOptions();
+    batchOptions.setMultiRowInsert(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession(batchOptions);
+    try {
+      for (int i = 1; i <= 3; i++) {
+        Map<String, Object> order = new HashMap<String, Object>();
+        order.put("id", i);
+        order.put("customer", "customer" + i);
+        sqlSession.insert("insertOrder", order);
+      }
+      List<BatchResult> results = sqlSession.flushStatements();
+      assertEquals(1, results.size());
+      assertEquals(3, results.get(0).getUpdateCounts().length);
+      assertEquals(3, plugin.count);
+      sqlSession.commit();
+      assertEquals(Integer.valueOf(3), sqlSession.<Integer>selectOne("countOrders"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Intercepts(@Signature(type = ParameterHandler.class, method = "setParameters", args = PreparedStatement.class))
+  public static class CountingParameterPlugin implements Interceptor {
+
+    private int count;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      count++;
+      return invocation.proceed();
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  private List<Map<String, Object>> insertOrders(SqlSession sqlSession, int count) {
+    List<Map<String, Object>> lines = new ArrayList<Map<String, Object>>();
+    for (int i = 1; i <= count; i++) {
+      Map<String, Object> order = new HashMap<String, Object>();
+      order.put("id", i);
+      order.put("customer", "customer" + i);
+      sqlSession.insert("insertOrder", order);
+      Map<String, Object> line = new HashMap<String, Object>();
+      line.put("orderId", i);
+      line.put("product", "product" + i);
+      sqlSession.insert("insertOrderLine", line);
+      lines.add(line);
+    }
+    return lines;
+  }
+
+}
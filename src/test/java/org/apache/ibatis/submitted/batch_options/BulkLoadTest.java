@@ -0,0 +1,161 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.batch_options;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.BulkLoadListener;
+import org.apache.ibatis.session.BulkLoadOptions;
+import org.apache.ibatis.session.BulkLoadProgress;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BulkLoadTest {
+
+  private DefaultSqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_options/Config.xml");
+    sqlSessionFactory = (DefaultSqlSessionFactory) new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/batch_options/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldLoadAllParametersInChunks() {
+    final AtomicInteger notifiedRows = new AtomicInteger();
+    BulkLoadOptions options = new BulkLoadOptions();
+    options.setChunkSize(100);
+    options.setThreads(3);
+    options.setMaxInFlightChunks(2);
+    options.setListener(new BulkLoadListener() {
+      @Override
+      public void chunkCommitted(BulkLoadProgress progress, int rows) {
+        notifiedRows.addAndGet(rows);
+      }
+    });
+    BulkLoadProgress progress = sqlSessionFactory.bulkLoad("insertOrder", orders(1, 2550), options);
+    assertEquals(2550, progress.getRowsRead());
+    assertEquals(2550, progress.getRowsCommitted());
+    assertEquals(26, progress.getChunksCommitted());
+    assertEquals(2550, notifiedRows.get());
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      assertEquals(Integer.valueOf(2550), sqlSession.<Integer>selectOne("countOrders"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldStopLoadingOnFailure() {
+    BulkLoadOptions options = new BulkLoadOptions();
+    options.setChunkSize(10);
+    options.setThreads(1);
+    sqlSessionFactory.bulkLoad("insertOrder", orders(11, 20), options);
+    try {
+      sqlSessionFactory.bulkLoad("insertOrder", orders(1, 100), options);
+      fail("Expected a duplicate key failure");
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("10 rows were committed"));
+    }
+  }
+
+  @Test
+  public void shouldReportErrorsOfWorkers() {
+    final Error error = new Error("listener failed");
+    BulkLoadOptions options = new BulkLoadOptions();
+    options.setChunkSize(10);
+    options.setThreads(1);
+    options.setListener(new BulkLoadListener() {
+      @Override
+      public void chunkCommitted(BulkLoadProgress progress, int rows) {
+        throw error;
+      }
+    });
+    try {
+      sqlSessionFactory.bulkLoad("insertOrder", orders(1, 100), options);
+      fail("Expected the listener error");
+    } catch (PersistenceException e) {
+      assertSame(error, e.getCause());
+      assertTrue(e.getMessage().contains("10 rows were committed"));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNonPositiveChunkSize() {
+    new BulkLoadOptions().setChunkSize(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNonPositiveThreads() {
+    new BulkLoadOptions().setThreads(0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNonPositiveMaxInFlightChunks() {
+    new BulkLoadOptions().setMaxInFlightChunks(-1);
+  }
+
+  private static Iterator<Map<String, Object>> orders(final int first, final int last) {
+    return new Iterator<Map<String, Object>>() {
+      private int next = first;
+
+      @Override
+      public boolean hasNext() {
+        return next <= last;
+      }
+
+      @Override
+      public Map<String, Object> next() {
+        Map<String, Object> order = new HashMap<String, Object>();
+        order.put("id", next);
+        order.put("customer", "customer" + next);
+        next++;
+        return order;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
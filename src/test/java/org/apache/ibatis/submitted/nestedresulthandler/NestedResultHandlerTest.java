@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2018 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,11 +17,20 @@ package org.apache.ibatis.submitted.nestedresulthandler;
 
 import java.io.Reader;
 import java.sql.Connection;
+import java.sql.Statement;
 import java.util.List;
+import java.util.Properties;
 
 import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Plugin;
+import org.apache.ibatis.plugin.Signature;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
@@ -171,4 +180,47 @@ public class NestedResultHandlerTest {
     }
   }
 
+  @Test
+  public void shouldOnlyRetainObjectsOfCurrentParentWhenResultOrdered() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/nestedresulthandler/mybatis-config.xml");
+    SqlSessionFactory factory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    RetainedObjectsInterceptor interceptor = new RetainedObjectsInterceptor();
+    factory.getConfiguration().addInterceptor(interceptor);
+    SqlSession sqlSession = factory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assert.assertEquals(3, mapper.getPersons().size());
+      // one person and its two items
+      Assert.assertEquals(3, interceptor.maxRetained);
+      Assert.assertEquals(3, mapper.getPersonsWithItemsOrdered().size());
+      // all persons and items
+      Assert.assertEquals(8, interceptor.maxRetained);
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Intercepts(@Signature(type = ResultSetHandler.class, method = "handleResultSets", args = Statement.class))
+  public static class RetainedObjectsInterceptor implements Interceptor {
+
+    private int maxRetained;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      Object result = invocation.proceed();
+      maxRetained = ((DefaultResultSetHandler) invocation.getTarget()).getMaxRetainedNestedResultObjects();
+      return result;
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
 }
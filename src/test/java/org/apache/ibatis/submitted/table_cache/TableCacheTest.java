@@ -0,0 +1,178 @@
+/**
+ *    Copyright 2009-2018 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.table_cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.CacheStatsListener;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TableCacheTest {
+
+  private SqlSessionFactory sqlSessionFactory;
+
+  @Before
+  public void setUp() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache/mybatis-config.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+
+    SqlSession session = sqlSessionFactory.openSession();
+    Connection conn = session.getConnection();
+    reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache/CreateDB.sql");
+    ScriptRunner runner = new ScriptRunner(conn);
+    runner.setLogWriter(null);
+    runner.runScript(reader);
+    conn.close();
+    reader.close();
+    session.close();
+  }
+
+  @Test
+  public void shouldKeepEntriesOfOtherTablesOnDeclaredWrite() {
+    List<Map<String, Object>> persons = getPersons();
+    List<Map<String, Object>> audits = getAudits();
+
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      mapper.insertAudit(2, "updated");
+      // not visible before commit, the person entry is still served from the cache
+      assertSame(persons, mapper.getPersons());
+      assertEquals(2, mapper.getAudits().size());
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+
+    assertSame(persons, getPersons());
+    List<Map<String, Object>> newAudits = getAudits();
+    assertNotSame(audits, newAudits);
+    assertEquals(2, newAudits.size());
+  }
+
+  @Test
+  public void shouldClearWholeCacheOnUndeclaredWrite() {
+    List<Map<String, Object>> persons = getPersons();
+    updatePerson();
+    assertNotSame(persons, getPersons());
+  }
+
+  @Test
+  public void shouldDeriveTablesFromSqlWhenEnabled() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/table_cache/mybatis-config-derive.xml");
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    reader.close();
+    assertEquals(Collections.singleton("person"), sqlSessionFactory.getConfiguration()
+        .getMappedStatement("org.apache.ibatis.submitted.table_cache.Mapper.updatePerson").getTables());
+    List<Map<String, Object>> persons = getPersons();
+    List<Map<String, Object>> audits = getAudits();
+    updatePerson();
+    List<Map<String, Object>> newPersons = getPersons();
+    assertNotSame(persons, newPersons);
+    assertEquals("Janet", newPersons.get(0).get("NAME"));
+    assertSame(audits, getAudits());
+  }
+
+  @Test
+  public void shouldNotCommitInvalidatedPendingEntries() {
+    List<Map<String, Object>> persons;
+    List<Map<String, Object>> audits;
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      persons = mapper.getPersons();
+      audits = mapper.getAudits();
+      mapper.insertAudit(2, "updated");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+    assertSame(persons, getPersons());
+    List<Map<String, Object>> newAudits = getAudits();
+    assertNotSame(audits, newAudits);
+    assertEquals(2, newAudits.size());
+  }
+
+  @Test
+  public void shouldRecordCacheStatistics() {
+    final List<CacheStatsListener.Event> events = new ArrayList<CacheStatsListener.Event>();
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    configuration.addCacheStatsListener(new CacheStatsListener() {
+      @Override
+      public void onEvent(String cacheId, Event event, long loadTime) {
+        events.add(event);
+      }
+    });
+    getPersons();
+    getPersons();
+    CacheStatistics statistics = configuration.getCacheStatistics(Mapper.class.getName());
+    assertEquals(1, statistics.getHitCount());
+    assertEquals(1, statistics.getMissCount());
+    assertEquals(1, statistics.getPutCount());
+    assertEquals(1, statistics.getLoadCount());
+    assertTrue(statistics.getTotalLoadTime() > 0);
+    assertEquals(1, statistics.getSize());
+    assertEquals(0.5, statistics.getHitRatio(), 0);
+    assertEquals(Arrays.asList(CacheStatsListener.Event.MISS, CacheStatsListener.Event.LOAD,
+        CacheStatsListener.Event.PUT, CacheStatsListener.Event.HIT), events);
+  }
+
+  private List<Map<String, Object>> getPersons() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getPersons();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private List<Map<String, Object>> getAudits() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      return sqlSession.getMapper(Mapper.class).getAudits();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private void updatePerson() {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      sqlSession.getMapper(Mapper.class).updatePerson(1, "Janet");
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+}